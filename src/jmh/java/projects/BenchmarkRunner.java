@@ -0,0 +1,23 @@
+package projects;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/* Entry point of target/benchmarks.jar. Runs the JMH benchmarks selected on the command line
+ * (all of them by default) with the gc profiler attached, so every result reports the allocation
+ * rate next to ops/s and, for the SampleTime modes, the latency percentiles.
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] args) throws Exception {
+		Options options = new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.addProfiler(GCProfiler.class)
+				.build();
+
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,165 @@
+package projects.dao;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import projects.entity.Category;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.Step;
+
+/* Sets up the database the benchmarks run against. Unless projects.db.url is already set (for
+ * example to a real MySQL server), an in-memory H2 database in MySQL compatibility mode is used.
+ * Its schema mirrors projects-schema.sql plus the V2 indexes, so the embedded plans use the same
+ * indexes as production. TEXT columns are declared as VARCHAR because H2 maps TEXT to CLOB, which
+ * the entities cannot hold.
+ */
+public class BenchmarkDatabase {
+	public static final String EMBEDDED_URL =
+			"jdbc:h2:mem:projects;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+	// Categories the synthetic projects are filed under; CategoryDictionary resolves them by name
+	private static final List<String> CATEGORY_NAMES =
+			List.of("Doors and Windows", "Repairs", "Gardening", "Woodworking", "Electronics");
+
+	// @formatter:off
+	private static final String[] EMBEDDED_SCHEMA = {
+		"DROP TABLE IF EXISTS import_checkpoint",
+		"DROP TABLE IF EXISTS category_rollup",
+		"DROP TABLE IF EXISTS project_rollup",
+		"DROP TABLE IF EXISTS project_category",
+		"DROP TABLE IF EXISTS material",
+		"DROP TABLE IF EXISTS step",
+		"DROP TABLE IF EXISTS category",
+		"DROP TABLE IF EXISTS project",
+		"CREATE TABLE project (project_id INT AUTO_INCREMENT NOT NULL, project_name VARCHAR(128) NOT NULL, "
+			+ "estimated_hours DECIMAL(7, 2), actual_hours DECIMAL(7, 2), difficulty INT, notes VARCHAR(4000), "
+			+ "PRIMARY KEY (project_id))",
+		"CREATE TABLE category (category_id INT AUTO_INCREMENT NOT NULL, category_name VARCHAR(128) NOT NULL, "
+			+ "PRIMARY KEY (category_id))",
+		"CREATE TABLE step (step_id INT AUTO_INCREMENT NOT NULL, project_id INT NOT NULL, "
+			+ "step_text VARCHAR(4000) NOT NULL, step_order INT NOT NULL, PRIMARY KEY (step_id), "
+			+ "FOREIGN KEY (project_id) REFERENCES project (project_id) ON DELETE CASCADE)",
+		"CREATE TABLE material (material_id INT AUTO_INCREMENT NOT NULL, project_id INT NOT NULL, "
+			+ "material_name VARCHAR(128) NOT NULL, num_required INT, cost DECIMAL(7, 2), "
+			+ "PRIMARY KEY (material_id), "
+			+ "FOREIGN KEY (project_id) REFERENCES project (project_id) ON DELETE CASCADE)",
+		"CREATE TABLE project_category (project_id INT NOT NULL, category_id INT NOT NULL, "
+			+ "FOREIGN KEY (project_id) REFERENCES project (project_id) ON DELETE CASCADE, "
+			+ "FOREIGN KEY (category_id) REFERENCES category (category_id) ON DELETE CASCADE, "
+			+ "UNIQUE (project_id, category_id))",
+		"CREATE TABLE import_checkpoint (source_name VARCHAR(255) NOT NULL, table_name VARCHAR(64) NOT NULL, "
+			+ "rows_committed BIGINT NOT NULL, updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, "
+			+ "PRIMARY KEY (source_name, table_name))",
+		"CREATE INDEX idx_project_name_id ON project (project_name, project_id)",
+		"CREATE INDEX idx_step_project_order ON step (project_id, step_order)",
+		"CREATE INDEX idx_project_category_category ON project_category (category_id, project_id)",
+		"CREATE TABLE project_rollup (project_id INT NOT NULL, material_count INT NOT NULL, "
+			+ "material_cost DECIMAL(20, 2) NOT NULL, step_count INT NOT NULL, estimated_hours DECIMAL(20, 2) NOT NULL, "
+			+ "actual_hours DECIMAL(20, 2) NOT NULL, PRIMARY KEY (project_id), "
+			+ "FOREIGN KEY (project_id) REFERENCES project (project_id) ON DELETE CASCADE)",
+		"CREATE TABLE category_rollup (category_id INT NOT NULL, project_count INT NOT NULL, "
+			+ "material_count INT NOT NULL, material_cost DECIMAL(20, 2) NOT NULL, step_count INT NOT NULL, "
+			+ "estimated_hours DECIMAL(20, 2) NOT NULL, actual_hours DECIMAL(20, 2) NOT NULL, "
+			+ "PRIMARY KEY (category_id), "
+			+ "FOREIGN KEY (category_id) REFERENCES category (category_id) ON DELETE CASCADE)",
+		"INSERT INTO category (category_name) VALUES " + categoryValues()
+	};
+	// @formatter:on
+
+	/* Points DbConnection at the embedded database (unless another URL was given) and creates an
+	 * empty schema in it. Returns true when the embedded database is in use.
+	 */
+	public static boolean install() throws SQLException {
+		if(System.getProperty("projects.db.url") != null) {
+			return false;
+		}
+
+		System.setProperty("projects.db.url", EMBEDDED_URL);
+
+		try(Connection conn = DriverManager.getConnection(EMBEDDED_URL);
+				Statement stmt = conn.createStatement()) {
+			for(String sql : EMBEDDED_SCHEMA) {
+				stmt.execute(sql);
+			}
+		}
+
+		return true;
+	}
+
+	/* Returns the DAO to benchmark. H2 can neither return several result sets from one call nor
+	 * parse START TRANSACTION READ ONLY, so the embedded database gets the per-table DAO with only
+	 * the JDBC read-only flag.
+	 */
+	public static ProjectDao newProjectDao(boolean embedded) {
+		if(!embedded) {
+			return new ProjectDao(true);
+		}
+
+		return new ProjectDao(false) {
+			@Override
+			protected void beginReadOnlyTransaction(Connection conn) {
+			}
+		};
+	}
+
+	/* Builds projects with a few materials and steps each. The same seed gives the same data. */
+	public static List<Project> syntheticProjects(int count, long seed) {
+		Random random = new Random(seed);
+		List<Project> projects = new ArrayList<>(count);
+
+		for(int index = 0; index < count; index++) {
+			Project project = new Project();
+			project.setProjectName("Project " + Long.toString(random.nextLong() & Long.MAX_VALUE, 36));
+			project.setEstimatedHours(BigDecimal.valueOf(random.nextInt(100_000), 2));
+			project.setActualHours(BigDecimal.valueOf(random.nextInt(100_000), 2));
+			project.setDifficulty(1 + random.nextInt(5));
+			project.setNotes("Synthetic notes for benchmark project " + index);
+
+			for(int child = 0; child < 3; child++) {
+				Material material = new Material();
+				material.setMaterialName("Material " + child);
+				material.setNumRequired(1 + random.nextInt(10));
+				material.setCost(BigDecimal.valueOf(random.nextInt(10_000), 2));
+				project.getMaterials().add(material);
+
+				Step step = new Step();
+				step.setStepText("Do step " + child + " of project " + index);
+				project.getSteps().add(step);
+			}
+
+			// Alternate between linking by ID and by name, so both insert paths are measured
+			Category category = new Category();
+			int categoryIndex = random.nextInt(CATEGORY_NAMES.size());
+
+			if(index % 2 == 0) {
+				category.setCategoryId(categoryIndex + 1);
+			}
+			else {
+				category.setCategoryName(CATEGORY_NAMES.get(categoryIndex));
+			}
+
+			project.getCategories().add(category);
+
+			projects.add(project);
+		}
+
+		return projects;
+	}
+
+	private static String categoryValues() {
+		StringBuilder values = new StringBuilder();
+
+		for(String name : CATEGORY_NAMES) {
+			values.append(values.length() == 0 ? "" : ", ").append("('").append(name).append("')");
+		}
+
+		return values.toString();
+	}
+}
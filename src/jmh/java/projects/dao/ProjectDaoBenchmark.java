@@ -0,0 +1,87 @@
+package projects.dao;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import projects.entity.Project;
+
+/* End-to-end ProjectDao benchmarks: pooled connection, SQL, driver and row mapping together.
+ * By default they run against the embedded database set up by BenchmarkDatabase, populated with
+ * projectCount synthetic projects. The embedded database cannot return several result sets from
+ * one call, so the DAO is used in per-table mode there. Run with -Dprojects.db.url=... pointing
+ * at a MySQL server holding the projects schema to measure the aggregate mode against MySQL.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProjectDaoBenchmark {
+	private static final int PAGE_SIZE = 100;
+
+	@Param({ "10000" })
+	public int projectCount;
+
+	private ProjectDao projectDao;
+	private List<Project> insertBatch;
+	private List<Integer> projectIds;
+	private Random random = new Random(42);
+
+	@Setup
+	public void setUp() throws Exception {
+		boolean embedded = BenchmarkDatabase.install();
+		projectDao = BenchmarkDatabase.newProjectDao(embedded);
+
+		projectIds = new ArrayList<>(projectCount);
+
+		for(Project project : projectDao.insertProjects(BenchmarkDatabase.syntheticProjects(projectCount, 1))) {
+			projectIds.add(project.getProjectId());
+		}
+
+		insertBatch = BenchmarkDatabase.syntheticProjects(100, 2);
+	}
+
+	@Benchmark
+	public List<Project> fetchFirstPage() {
+		return projectDao.fetchProjectPage(null, null, PAGE_SIZE);
+	}
+
+	@Benchmark
+	public List<Project> fetchAllProjects() {
+		return projectDao.fetchAllProjects();
+	}
+
+	@Benchmark
+	public Object fetchProjectById() {
+		return projectDao.fetchProjectById(projectIds.get(random.nextInt(projectIds.size())));
+	}
+
+	@Benchmark
+	public List<Project> fetchProjectsByIds() {
+		int from = random.nextInt(projectIds.size() - PAGE_SIZE);
+		return projectDao.fetchProjectsByIds(projectIds.subList(from, from + PAGE_SIZE));
+	}
+
+	/* Inserts 100 project graphs per invocation. The table grows during the run, which is what
+	 * a long import would see as well.
+	 */
+	@Benchmark
+	public List<Project> insertProjects() {
+		return projectDao.insertProjects(insertBatch);
+	}
+}
@@ -0,0 +1,68 @@
+/**
+ * 
+ */
+package provided.util;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import projects.dao.BenchmarkDatabase;
+
+/**
+ * Measures {@link DaoBase#setParameter(PreparedStatement, int, Object, Class)} by binding the five
+ * parameters of a project insert. The statement is never executed.
+ * 
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParameterBindingBenchmark extends DaoBase {
+  private static final BigDecimal HOURS = new BigDecimal("12.50");
+
+  private Connection conn;
+  private PreparedStatement stmt;
+
+  @Setup
+  public void setUp() throws SQLException {
+    BenchmarkDatabase.install();
+
+    conn = DriverManager.getConnection(System.getProperty("projects.db.url"));
+    stmt = conn.prepareStatement("INSERT INTO project "
+        + "(project_name, estimated_hours, actual_hours, difficulty, notes) VALUES (?, ?, ?, ?, ?)");
+  }
+
+  @TearDown
+  public void tearDown() throws SQLException {
+    stmt.close();
+    conn.close();
+  }
+
+  @Benchmark
+  public PreparedStatement bindProjectInsert() throws SQLException {
+    setParameter(stmt, 1, "Bookshelf", String.class);
+    setParameter(stmt, 2, HOURS, BigDecimal.class);
+    setParameter(stmt, 3, null, BigDecimal.class);
+    setParameter(stmt, 4, 3, Integer.class);
+    setParameter(stmt, 5, "Notes", String.class);
+    return stmt;
+  }
+}
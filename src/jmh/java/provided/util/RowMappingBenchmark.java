@@ -0,0 +1,114 @@
+/**
+ * 
+ */
+package provided.util;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetProvider;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import projects.dao.BenchmarkDatabase;
+import projects.entity.Project;
+
+/**
+ * Measures how fast rows are turned into objects. The rows are copied into an in-memory
+ * {@link CachedRowSet} first, so the numbers reflect the mapping code and not the database. Each
+ * invocation maps {@value #ROWS} rows; throughput is reported per row.
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RowMappingBenchmark extends DaoBase {
+  private static final int ROWS = 1000;
+
+  private CachedRowSet rows;
+
+  @Setup
+  public void setUp() throws SQLException {
+    if(BenchmarkDatabase.install()) {
+      BenchmarkDatabase.newProjectDao(true).insertProjects(BenchmarkDatabase.syntheticProjects(ROWS, 1));
+    }
+
+    try(Connection conn = DriverManager.getConnection(System.getProperty("projects.db.url"));
+        Statement stmt = conn.createStatement();
+        ResultSet rs = stmt.executeQuery("SELECT * FROM project LIMIT " + ROWS)) {
+      rows = RowSetProvider.newFactory().createCachedRowSet();
+      rows.populate(rs);
+    }
+  }
+
+  /**
+   * The plan is obtained once and reused for every row, as the DAO loops do.
+   */
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public void mapWithPlan(Blackhole bh) throws SQLException {
+    rows.beforeFirst();
+    RowMapper<Project> mapper = rowMapper(rows, Project.class);
+
+    while(rows.next()) {
+      bh.consume(mapper.map(rows));
+    }
+  }
+
+  /**
+   * extract() looks the plan up for every row.
+   */
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public void extractPerRow(Blackhole bh) throws SQLException {
+    rows.beforeFirst();
+
+    while(rows.next()) {
+      bh.consume(extract(rows, Project.class));
+    }
+  }
+
+  /**
+   * Hand-written JDBC mapping, the lower bound the plan is compared against.
+   */
+  @Benchmark
+  @OperationsPerInvocation(ROWS)
+  public void handWritten(Blackhole bh) throws SQLException {
+    rows.beforeFirst();
+
+    while(rows.next()) {
+      Project project = new Project();
+      project.setProjectId(rows.getInt(1));
+      project.setProjectName(rows.getString(2));
+      project.setEstimatedHours(rows.getBigDecimal(3));
+      project.setActualHours(rows.getBigDecimal(4));
+      project.setDifficulty(rows.getInt(5));
+      project.setNotes(rows.getString(6));
+      bh.consume(project);
+    }
+  }
+
+  @Benchmark
+  public String camelCaseToSnakeCase() {
+    return DaoBase.camelCaseToSnakeCase("estimatedHours");
+  }
+}
@@ -1,20 +1,29 @@
 package projects;
 
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Objects;
 import java.util.Scanner;
 
 import projects.entity.Project;
+import projects.entity.ProjectSummary;
 import projects.exception.DbException;
+import projects.search.SearchResult;
 import projects.service.ProjectService;
+import projects.service.TimedProjectService;
 
 // Program allows users to add projects to a project management system
 
 public class ProjectsApp {
 	private Scanner scanner = new Scanner(System.in);
-	private ProjectService projectService = new ProjectService();
+	private ProjectService projectService = new TimedProjectService();
 	private Project curProject;
+	private static final int LIST_PAGE_SIZE = 100;
+	private static final int SEARCH_RESULT_LIMIT = 20;
+	private static final String SNAPSHOT_PROPERTY = "projects.snapshot";
 
 	// @formatter:off
 	private List<String> operations = List.of(
@@ -22,7 +31,8 @@ public class ProjectsApp {
 		"2) List projects",
 		"3) Select a Project",
 		"4) Update project details",
-		"5) Delete a project"
+		"5) Delete a project",
+		"6) Search projects"
 	);
 	// @formatter:on
 
@@ -30,10 +40,53 @@ public class ProjectsApp {
 // ProjectsApp class is created, and the processUserSelections method is called to handle user input and menu navigation
 	
 	public static void main(String[] args) {
-		new ProjectsApp().processUserSelections();
+		ProjectsApp app = new ProjectsApp();
+		app.warmCacheFromSnapshot();
+		app.processUserSelections();
+		app.saveSnapshot();
 
 	}
 
+// If -Dprojects.snapshot=<file> is set, the project cache starts from that snapshot file and the file
+// is rewritten on exit, so the next start only has to reload projects that changed in the meantime.
+
+	private void warmCacheFromSnapshot() {
+		Path snapshot = getSnapshotPath();
+
+		if(Objects.isNull(snapshot) || !Files.exists(snapshot)) {
+			return;
+		}
+
+		try {
+			int cached = projectService.warmCache(snapshot);
+			System.out.println("Loaded " + cached + " projects from snapshot " + snapshot);
+		}
+		catch (Exception e) {
+			System.out.println("Unable to load snapshot " + snapshot + ": " + e);
+		}
+	}
+
+	private void saveSnapshot() {
+		Path snapshot = getSnapshotPath();
+
+		if(Objects.isNull(snapshot)) {
+			return;
+		}
+
+		try {
+			int written = projectService.writeSnapshot(snapshot);
+			System.out.println("Saved " + written + " projects to snapshot " + snapshot);
+		}
+		catch (Exception e) {
+			System.out.println("Unable to save snapshot " + snapshot + ": " + e);
+		}
+	}
+
+	private Path getSnapshotPath() {
+		String snapshot = System.getProperty(SNAPSHOT_PROPERTY);
+		return Objects.isNull(snapshot) || snapshot.isBlank() ? null : Paths.get(snapshot);
+	}
+
 // processUserSelections method contains a loop that continues until the user chooses to exit the program
 // The available menu options are defined in the operations list
 
@@ -68,6 +121,10 @@ public class ProjectsApp {
 				case 5:
 					deleteProject();
 					break;
+					
+				case 6:
+					searchProjects();
+					break;
 
 				default:
 					System.out.println("\n" + selection + " is not a valid selection.  Try again");
@@ -83,6 +140,23 @@ public class ProjectsApp {
 		}
 
 	}
+	// Searches the notes and step text of all projects and lists the best matches
+	private void searchProjects() {
+		String query = getStringInput("Enter words to search for (use quotes for a phrase)");
+		
+		if(Objects.isNull(query)) {
+			return;
+		}
+		
+		List<SearchResult> results = projectService.searchProjects(query, SEARCH_RESULT_LIMIT);
+		
+		if(results.isEmpty()) {
+			System.out.println("No projects match " + query);
+		}
+		
+		results.forEach(result -> System.out.println("   " + result.getProjectId() + ": " + result.getProjectName()));
+	}
+	
 	/*
 	 * The deleteProject() method lists the projects, prompts the user to enter an ID, deletes the project with
 	 * the provided ID, updates the curProject variable if necessary, and prints a success message.
@@ -127,19 +201,41 @@ private void updateProjectDetails() {
 	
 	String notes = getStringInput("Enter the project notes [" + curProject.getNotes() + "]");
 	
+	// Start from a clean copy of the current project so that only the fields the user changed are written
 	Project project = new Project();
 	
 	project.setProjectId(curProject.getProjectId());
+	project.setProjectName(curProject.getProjectName());
+	project.setEstimatedHours(curProject.getEstimatedHours());
+	project.setActualHours(curProject.getActualHours());
+	project.setDifficulty(curProject.getDifficulty());
+	project.setNotes(curProject.getNotes());
+	project.markClean();
 	
-	project.setProjectName(Objects.isNull(projectName) ? curProject.getProjectName() : projectName);
+	if(Objects.nonNull(projectName)) {
+		project.setProjectName(projectName);
+	}
 	
-	project.setEstimatedHours(Objects.isNull(estimatedHours) ? curProject.getEstimatedHours() : estimatedHours);
+	if(Objects.nonNull(estimatedHours)) {
+		project.setEstimatedHours(estimatedHours);
+	}
 	
-	project.setActualHours(Objects.isNull(actualHours) ? curProject.getActualHours() : actualHours);
+	if(Objects.nonNull(actualHours)) {
+		project.setActualHours(actualHours);
+	}
 	
-	project.setDifficulty(Objects.isNull(difficulty) ? curProject.getDifficulty() : difficulty);
+	if(Objects.nonNull(difficulty)) {
+		project.setDifficulty(difficulty);
+	}
 	
-	project.setNotes(Objects.isNull(notes) ? curProject.getNotes() : notes);
+	if(Objects.nonNull(notes)) {
+		project.setNotes(notes);
+	}
+	
+	if(!project.isChanged()) {
+		System.out.println("Nothing was changed.");
+		return;
+	}
 	
 	projectService.modifyProjectDetails(project);
 	
@@ -159,13 +255,24 @@ private void updateProjectDetails() {
 }
 
 	// method retrieves a list of projects and allows the user to see a list
-	// of available projects and their corresponding IDs before selecting one
+	// of available projects and their corresponding IDs before selecting one.
+	// Only the ID and name are read, a page at a time, so only one page is ever held in memory.
 	private void listProjects() {
-		List<Project> projects = projectService.fetchAllProjects();
-		
 		System.out.println("\nProjects:");
 		
-		projects.forEach(project -> System.out.println("   " + project.getProjectId() + ": " + project.getProjectName()));
+		List<ProjectSummary> projects = projectService.fetchProjectSummaries(ProjectSummary.LISTING_COLUMNS, null, null, LIST_PAGE_SIZE);
+		
+		while(!projects.isEmpty()) {
+			projects.forEach(project -> System.out.println("   " + project.getProjectId() + ": " + project.getProjectName()));
+			
+			if(projects.size() < LIST_PAGE_SIZE) {
+				break;
+			}
+			
+			ProjectSummary last = projects.get(projects.size() - 1);
+			projects = projectService.fetchProjectSummaries(ProjectSummary.LISTING_COLUMNS, last.getProjectName(),
+					last.getProjectId(), LIST_PAGE_SIZE);
+		}
 	
 }
 
@@ -0,0 +1,189 @@
+package projects.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+import projects.entity.Category;
+import projects.exception.DbException;
+import provided.util.RowMapper;
+
+/* CategoryDictionary holds the whole category table in memory. The table is small and rarely
+ * changes, so ProjectDao reads only the category IDs of a project and resolves them here
+ * instead of joining category and mapping a new Category object for every row.
+ *
+ * Each category exists as a single shared Category instance. The shared instances are read-only:
+ * their setters throw UnsupportedOperationException, so one caller cannot rename a category in
+ * every project that other callers have loaded. Copy a category to change it.
+ *
+ * The instances are kept in an array indexed by category ID (or a map if the IDs are very sparse),
+ * and by lower-case name for lookups in the other direction.
+ *
+ * The dictionary is loaded on first use and reloaded when it is older than REFRESH_INTERVAL_MILLIS,
+ * when an unknown ID is looked up (at most once per MIN_RELOAD_INTERVAL_MILLIS), or after
+ * invalidate(). Code that writes categories should call invalidate().
+ */
+public class CategoryDictionary {
+	private static final CategoryDictionary INSTANCE = new CategoryDictionary();
+
+	private static final long REFRESH_INTERVAL_MILLIS = 300_000;
+	private static final long MIN_RELOAD_INTERVAL_MILLIS = 1_000;
+
+	// Above this ID the categories go in a map instead of an array
+	private static final int MAX_DENSE_ID = 1 << 16;
+
+	private volatile Entries entries;
+
+	private CategoryDictionary() {
+	}
+
+	public static CategoryDictionary get() {
+		return INSTANCE;
+	}
+
+	/* Returns the category with the given ID, or null if there is none. */
+	public Category getCategory(int categoryId) {
+		Entries current = current();
+		Category category = current.find(categoryId);
+
+		// Use the entries just read: the field may already have been cleared by invalidate()
+		if(Objects.isNull(category) && current.ageMillis() >= MIN_RELOAD_INTERVAL_MILLIS) {
+			category = refresh().find(categoryId);
+		}
+
+		return category;
+	}
+
+	/* Finds a category by name, ignoring case as the default MySQL collation does. */
+	public Optional<Category> findByName(String categoryName) {
+		if(Objects.isNull(categoryName)) {
+			return Optional.empty();
+		}
+
+		return Optional.ofNullable(current().byName.get(categoryName.toLowerCase(Locale.ROOT)));
+	}
+
+	// All categories in name order
+	public List<Category> getCategories() {
+		return current().all;
+	}
+
+	/* Marks the dictionary stale so the next lookup reloads it. */
+	public void invalidate() {
+		entries = null;
+	}
+
+	/* Reloads the category table now and returns the new entries. */
+	synchronized Entries refresh() {
+		try(Connection conn = DbConnection.getReadConnection()) {
+			try(PreparedStatement stmt = conn.prepareStatement(ProjectSql.CATEGORY_SELECT_ALL.sql());
+					ResultSet rs = stmt.executeQuery()) {
+				List<Category> categories = new ArrayList<>();
+				RowMapper<Category> mapper = RowMapper.forResultSet(rs, Category.class);
+
+				while(rs.next()) {
+					categories.add(new SharedCategory(mapper.map(rs)));
+				}
+
+				Entries loaded = new Entries(categories);
+				entries = loaded;
+				return loaded;
+			}
+		}
+		catch(SQLException e) {
+			throw new DbException(e);
+		}
+	}
+
+	private Entries current() {
+		Entries current = entries;
+
+		if(Objects.isNull(current) || current.ageMillis() >= REFRESH_INTERVAL_MILLIS) {
+			synchronized(this) {
+				current = entries;
+
+				if(Objects.isNull(current) || current.ageMillis() >= REFRESH_INTERVAL_MILLIS) {
+					current = refresh();
+				}
+			}
+		}
+
+		return current;
+	}
+
+	/* The read-only form in which categories are handed out */
+	private static class SharedCategory extends Category {
+		private SharedCategory(Category loaded) {
+			super.setCategoryId(loaded.getCategoryId());
+			super.setCategoryName(loaded.getCategoryName());
+		}
+
+		@Override
+		public void setCategoryId(Integer categoryId) {
+			throw new UnsupportedOperationException("Categories from CategoryDictionary are shared and read-only");
+		}
+
+		@Override
+		public void setCategoryName(String categoryName) {
+			throw new UnsupportedOperationException("Categories from CategoryDictionary are shared and read-only");
+		}
+	}
+
+	/* One immutable load of the category table */
+	static class Entries {
+		private final Category[] byId;
+		private final Map<Integer, Category> sparseById;
+		private final Map<String, Category> byName = new HashMap<>();
+		private final List<Category> all;
+		private final long loadedAt = System.currentTimeMillis();
+
+		private Entries(List<Category> categories) {
+			int maxId = 0;
+
+			for(Category category : categories) {
+				maxId = Math.max(maxId, category.getCategoryId());
+				byName.putIfAbsent(category.getCategoryName().toLowerCase(Locale.ROOT), category);
+			}
+
+			if(maxId <= MAX_DENSE_ID) {
+				byId = new Category[maxId + 1];
+				sparseById = null;
+
+				for(Category category : categories) {
+					byId[category.getCategoryId()] = category;
+				}
+			}
+			else {
+				byId = null;
+				sparseById = new HashMap<>();
+
+				for(Category category : categories) {
+					sparseById.put(category.getCategoryId(), category);
+				}
+			}
+
+			this.all = Collections.unmodifiableList(categories);
+		}
+
+		private Category find(int categoryId) {
+			if(Objects.nonNull(byId)) {
+				return categoryId >= 0 && categoryId < byId.length ? byId[categoryId] : null;
+			}
+
+			return sparseById.get(categoryId);
+		}
+
+		private long ageMillis() {
+			return System.currentTimeMillis() - loadedAt;
+		}
+	}
+}
@@ -0,0 +1,478 @@
+package projects.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import projects.exception.DbException;
+
+/* ConnectionPool keeps a bounded set of physical connections open so that callers of
+ * DbConnection.getConnection() no longer pay a TCP + authentication handshake per DAO call.
+ * Connections are handed out as proxies; calling close() on the proxy returns the physical
+ * connection to the pool instead of closing it, so try-with-resources in the DAO keeps working.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+	/* Opens a new physical connection. DbConnection supplies the DriverManager call. */
+	@FunctionalInterface
+	public interface ConnectionFactory {
+		Connection open() throws SQLException;
+	}
+
+	// Connections idle for less than this are handed out without a validation round trip
+	private static final long VALIDATION_BYPASS_MILLIS = 500;
+	private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+	private final ConnectionFactory factory;
+	private final int maxSize;
+	private final long acquireTimeoutMillis;
+	private final long idleTimeoutMillis;
+	private final long leakThresholdMillis;
+	private final boolean captureBorrowSites;
+
+	// Idle connections, most recently returned first so warm connections are reused
+	private final LinkedBlockingDeque<PooledEntry> idle = new LinkedBlockingDeque<>();
+	private final Set<PooledEntry> borrowed = ConcurrentHashMap.newKeySet();
+	private final Semaphore permits;
+	private final ScheduledExecutorService housekeeper;
+	private volatile boolean closed;
+
+	private final LongAdder acquireCount = new LongAdder();
+	private final LongAdder acquireNanos = new LongAdder();
+	private final AtomicLong maxAcquireNanos = new AtomicLong();
+	private final LongAdder acquireTimeouts = new LongAdder();
+	private final LongAdder created = new LongAdder();
+	private final LongAdder destroyed = new LongAdder();
+	private final LongAdder validationFailures = new LongAdder();
+	private final LongAdder leaksDetected = new LongAdder();
+
+	public ConnectionPool(ConnectionFactory factory, int maxSize, long acquireTimeoutMillis,
+			long idleTimeoutMillis, long leakThresholdMillis) {
+		this(factory, maxSize, acquireTimeoutMillis, idleTimeoutMillis, leakThresholdMillis, false);
+	}
+
+	/* With captureBorrowSites a stack trace is taken on every borrow so a leak report can show
+	 * where the connection was borrowed. That costs a stack walk per getConnection(), so it is meant
+	 * for tracking down a leak, not for normal running; without it a report names only the thread.
+	 */
+	public ConnectionPool(ConnectionFactory factory, int maxSize, long acquireTimeoutMillis,
+			long idleTimeoutMillis, long leakThresholdMillis, boolean captureBorrowSites) {
+		if(maxSize < 1) {
+			throw new IllegalArgumentException("Pool size must be at least 1, was " + maxSize);
+		}
+
+		this.factory = factory;
+		this.maxSize = maxSize;
+		this.acquireTimeoutMillis = acquireTimeoutMillis;
+		this.idleTimeoutMillis = idleTimeoutMillis;
+		this.leakThresholdMillis = leakThresholdMillis;
+		this.captureBorrowSites = captureBorrowSites && leakThresholdMillis > 0;
+		this.permits = new Semaphore(maxSize, true);
+
+		this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "connection-pool-housekeeper");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		long period = Math.max(1000, Math.min(idleTimeoutMillis, leakThresholdMillis) / 2);
+		housekeeper.scheduleWithFixedDelay(this::housekeep, period, period, TimeUnit.MILLISECONDS);
+	}
+
+	/* Borrows a connection. Waits up to the acquire timeout for a free slot, reuses an idle
+	 * connection when one is available (validating it if it has been idle for a while) and
+	 * otherwise opens a new physical connection.
+	 */
+	public Connection getConnection() {
+		if(closed) {
+			throw new DbException("Connection pool is closed");
+		}
+
+		long start = System.nanoTime();
+
+		try {
+			if(!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+				acquireTimeouts.increment();
+				throw new DbException("Timed out after " + acquireTimeoutMillis
+						+ "ms waiting for a connection (pool size " + maxSize + ")");
+			}
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DbException("Interrupted while waiting for a connection", e);
+		}
+
+		try {
+			PooledEntry entry = takeIdleOrCreate();
+
+			entry.borrowedAt = System.currentTimeMillis();
+			entry.borrowThread = Thread.currentThread().getName();
+			entry.borrowSite = captureBorrowSites ? new Exception("Connection borrowed here") : null;
+			entry.leakReported = false;
+			borrowed.add(entry);
+
+			recordAcquire(System.nanoTime() - start);
+			return entry.newProxy();
+		}
+		catch(RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	private PooledEntry takeIdleOrCreate() {
+		PooledEntry entry;
+
+		while((entry = idle.pollFirst()) != null) {
+			if(isUsable(entry)) {
+				return entry;
+			}
+
+			validationFailures.increment();
+			destroy(entry);
+		}
+
+		Connection physical = null;
+
+		try {
+			physical = factory.open();
+			entry = new PooledEntry(physical);
+			created.increment();
+			return entry;
+		}
+		catch(SQLException e) {
+			// Opened but not usable: close it so the server-side session does not linger
+			if(physical != null) {
+				try {
+					physical.close();
+				}
+				catch(SQLException closeFailure) {
+					e.addSuppressed(closeFailure);
+				}
+			}
+
+			throw new DbException(e);
+		}
+	}
+
+	private boolean isUsable(PooledEntry entry) {
+		if(System.currentTimeMillis() - entry.lastUsedAt < VALIDATION_BYPASS_MILLIS) {
+			return true;
+		}
+
+		try {
+			return entry.physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+		}
+		catch(SQLException e) {
+			return false;
+		}
+	}
+
+	private void recordAcquire(long nanos) {
+		acquireCount.increment();
+		acquireNanos.add(nanos);
+		maxAcquireNanos.accumulateAndGet(nanos, Math::max);
+	}
+
+	/* Called when a proxy is closed. The physical connection is reset to the state a fresh
+	 * connection would have so that the next borrower does not inherit an open transaction,
+	 * read-only flag or isolation level. If the reset fails the connection is discarded.
+	 */
+	private void release(PooledEntry entry) {
+		borrowed.remove(entry);
+		entry.borrowSite = null;
+
+		try {
+			if(!closed && reset(entry)) {
+				entry.lastUsedAt = System.currentTimeMillis();
+				idle.offerFirst(entry);
+			}
+			else {
+				destroy(entry);
+			}
+		}
+		finally {
+			permits.release();
+		}
+	}
+
+	private boolean reset(PooledEntry entry) {
+		Connection conn = entry.physical;
+
+		try {
+			if(conn.isClosed()) {
+				return false;
+			}
+
+			if(!conn.getAutoCommit()) {
+				conn.rollback();
+				conn.setAutoCommit(true);
+			}
+
+			if(conn.isReadOnly()) {
+				conn.setReadOnly(false);
+			}
+
+			if(conn.getTransactionIsolation() != entry.defaultIsolation) {
+				conn.setTransactionIsolation(entry.defaultIsolation);
+			}
+
+			conn.clearWarnings();
+			return true;
+		}
+		catch(SQLException e) {
+			return false;
+		}
+	}
+
+	private void destroy(PooledEntry entry) {
+		destroyed.increment();
+
+		try {
+			entry.physical.close();
+		}
+		catch(SQLException e) {
+			// The connection is being thrown away; nothing more to do with it
+		}
+	}
+
+	/* Runs periodically: closes connections that have sat idle past the idle timeout and reports
+	 * connections that have been borrowed for longer than the leak threshold.
+	 */
+	private void housekeep() {
+		long now = System.currentTimeMillis();
+
+		Iterator<PooledEntry> oldestFirst = idle.descendingIterator();
+
+		while(oldestFirst.hasNext()) {
+			PooledEntry entry = oldestFirst.next();
+
+			if(now - entry.lastUsedAt > idleTimeoutMillis && idle.remove(entry)) {
+				destroy(entry);
+			}
+		}
+
+		if(leakThresholdMillis <= 0) {
+			return;
+		}
+
+		for(PooledEntry entry : borrowed) {
+			if(!entry.leakReported && now - entry.borrowedAt > leakThresholdMillis) {
+				entry.leakReported = true;
+				leaksDetected.increment();
+				System.err.println(leakReport(entry, now));
+			}
+		}
+	}
+
+	private static String leakReport(PooledEntry entry, long now) {
+		StringBuilder report = new StringBuilder("Possible connection leak: connection held for ")
+				.append(now - entry.borrowedAt).append("ms by thread ").append(entry.borrowThread);
+		Exception site = entry.borrowSite;
+
+		if(site == null) {
+			report.append(" (set projects.db.leakDebug=true to record where connections are borrowed)");
+		}
+		else {
+			for(StackTraceElement frame : site.getStackTrace()) {
+				report.append(System.lineSeparator()).append("\tat ").append(frame);
+			}
+		}
+
+		return report.toString();
+	}
+
+	public Stats getStats() {
+		return new Stats(this);
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/* Closes all idle connections and stops the housekeeper. Borrowed connections are closed
+	 * when their borrowers return them.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		housekeeper.shutdownNow();
+
+		PooledEntry entry;
+
+		while((entry = idle.pollFirst()) != null) {
+			destroy(entry);
+		}
+	}
+
+	/* One physical connection together with its pool bookkeeping */
+	private final class PooledEntry {
+		private final Connection physical;
+		private final int defaultIsolation;
+		private volatile long lastUsedAt = System.currentTimeMillis();
+		private volatile long borrowedAt;
+		private volatile String borrowThread;
+		private volatile Exception borrowSite;
+		private volatile boolean leakReported;
+
+		private PooledEntry(Connection physical) throws SQLException {
+			this.physical = physical;
+			this.defaultIsolation = physical.getTransactionIsolation();
+		}
+
+		private Connection newProxy() {
+			return (Connection)Proxy.newProxyInstance(Connection.class.getClassLoader(),
+					new Class<?>[] { Connection.class }, new Handle(this));
+		}
+	}
+
+	/* The object behind each proxy handed to a borrower. close() returns the connection to the
+	 * pool exactly once; any other call after close() fails as it would on a real connection.
+	 */
+	private final class Handle implements InvocationHandler {
+		private volatile PooledEntry entry;
+
+		private Handle(PooledEntry entry) {
+			this.entry = entry;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch(method.getName()) {
+				case "close":
+					synchronized(this) {
+						if(entry != null) {
+							PooledEntry returned = entry;
+							entry = null;
+							release(returned);
+						}
+					}
+					return null;
+
+				case "isClosed":
+					return entry == null || entry.physical.isClosed();
+
+				case "equals":
+					return proxy == args[0];
+
+				case "hashCode":
+					return System.identityHashCode(proxy);
+
+				case "toString":
+					return "PooledConnection[" + (entry == null ? "closed" : entry.physical) + "]";
+
+				default:
+					break;
+			}
+
+			PooledEntry current = entry;
+
+			if(current == null) {
+				throw new SQLException("Connection is closed");
+			}
+
+			try {
+				return method.invoke(current.physical, args);
+			}
+			catch(InvocationTargetException e) {
+				throw e.getCause();
+			}
+		}
+	}
+
+	/* A point-in-time view of the pool counters */
+	public static class Stats {
+		private final int maxSize;
+		private final int active;
+		private final int idle;
+		private final long acquireCount;
+		private final long acquireTimeouts;
+		private final long averageAcquireMicros;
+		private final long maxAcquireMicros;
+		private final long created;
+		private final long destroyed;
+		private final long validationFailures;
+		private final long leaksDetected;
+
+		private Stats(ConnectionPool pool) {
+			long count = pool.acquireCount.sum();
+
+			this.maxSize = pool.maxSize;
+			this.active = pool.borrowed.size();
+			this.idle = pool.idle.size();
+			this.acquireCount = count;
+			this.acquireTimeouts = pool.acquireTimeouts.sum();
+			this.averageAcquireMicros = count == 0 ? 0 : pool.acquireNanos.sum() / count / 1000;
+			this.maxAcquireMicros = pool.maxAcquireNanos.get() / 1000;
+			this.created = pool.created.sum();
+			this.destroyed = pool.destroyed.sum();
+			this.validationFailures = pool.validationFailures.sum();
+			this.leaksDetected = pool.leaksDetected.sum();
+		}
+
+		public int getMaxSize() {
+			return maxSize;
+		}
+
+		public int getActive() {
+			return active;
+		}
+
+		public int getIdle() {
+			return idle;
+		}
+
+		public long getAcquireCount() {
+			return acquireCount;
+		}
+
+		public long getAcquireTimeouts() {
+			return acquireTimeouts;
+		}
+
+		public long getAverageAcquireMicros() {
+			return averageAcquireMicros;
+		}
+
+		public long getMaxAcquireMicros() {
+			return maxAcquireMicros;
+		}
+
+		public long getCreated() {
+			return created;
+		}
+
+		public long getDestroyed() {
+			return destroyed;
+		}
+
+		public long getValidationFailures() {
+			return validationFailures;
+		}
+
+		public long getLeaksDetected() {
+			return leaksDetected;
+		}
+
+		@Override
+		public String toString() {
+			return "active=" + active + "/" + maxSize + ", idle=" + idle + ", acquires=" + acquireCount
+					+ ", timeouts=" + acquireTimeouts + ", avgAcquire=" + averageAcquireMicros + "us"
+					+ ", maxAcquire=" + maxAcquireMicros + "us, created=" + created + ", destroyed="
+					+ destroyed + ", validationFailures=" + validationFailures + ", leaks=" + leaksDetected;
+		}
+	}
+}
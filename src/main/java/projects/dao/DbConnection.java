@@ -3,9 +3,17 @@ package projects.dao;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
 import projects.exception.DbException;
+import projects.metrics.Metrics;
 
-public class DbConnection { /*DbConnection class is responsible for establishing a database 
+public class DbConnection { /*DbConnection class is responsible for establishing a database
 	connection using using JDBC (Java Database Connectivity) for a MySQL database. */
 
 	private static String HOST = "localhost";
@@ -14,22 +22,199 @@ public class DbConnection { /*DbConnection class is responsible for establishing
 	private static String SCHEMA = "projects";
 	private static String USER = "projects";
 //Defines private static fields (HOST, PASSWORD, PORT, SCHEMA, and USER) that hold the connection parameters.
-	
-	public static Connection getConnection() { //getConnection() method returns a Connection object, representing the connection to the MySQL database.
-		String uri = String.format("jdbc:mysql://%s:%d/%s?user=%s&password=%s", 
-				HOST, PORT, SCHEMA, USER, PASSWORD); //connection URI is constructed using the provided connection parameters.
-		
-		/*Inside a try-catch block, the DriverManager.getConnection() method is called with the constructed URI
-		to establish a connection to the database.*/
-		
+
+	private static int POOL_SIZE = 10;
+	private static long ACQUIRE_TIMEOUT_MILLIS = 30_000;
+	private static long IDLE_TIMEOUT_MILLIS = 600_000;
+	private static long LEAK_THRESHOLD_MILLIS = 60_000;
+	private static boolean LEAK_DEBUG = Boolean.getBoolean("projects.db.leakDebug");
+//Pool settings: at most POOL_SIZE physical connections, idle ones are closed after IDLE_TIMEOUT_MILLIS
+//and a connection held longer than LEAK_THRESHOLD_MILLIS is reported as a possible leak. The report
+//includes the borrowing stack trace only when the system property projects.db.leakDebug is true.
+
+	/* Connector/J options appended to the URI.
+	 * allowMultiQueries lets ProjectDao load a project graph with several statements in one round trip.
+	 * rewriteBatchedStatements turns a JDBC batch of INSERTs into one multi-row INSERT.
+	 * useServerPrepStmts and cachePrepStmts make the server parse each ProjectSql statement once per
+	 * connection; closing a prepared statement keeps it in a per-connection cache for the next call.
+	 * useLocalSessionState skips auto-commit/isolation/read-only changes that would not change anything.
+	 * readOnlyPropagatesToServer=false keeps Connection.setReadOnly a client-side routing flag; read-only
+	 * transactions are started explicitly by DaoBase.startReadOnlyTransaction.
+	 */
+	private static String DRIVER_OPTIONS = ""
+			+ "&allowMultiQueries=true"
+			+ "&rewriteBatchedStatements=true"
+			+ "&useServerPrepStmts=true"
+			+ "&cachePrepStmts=true"
+			+ "&prepStmtCacheSize=256"
+			+ "&prepStmtCacheSqlLimit=8192"
+			+ "&useLocalSessionState=true"
+			+ "&readOnlyPropagatesToServer=false";
+
+	/* Read replicas. The system property projects.db.replicas lists them as host:port pairs separated
+	 * by commas; they use the same schema, user and driver options as the primary. Without it every
+	 * read goes to the primary. A replica further behind the primary than MAX_REPLICA_LAG_MILLIS is
+	 * not used. Replicas only report their lag in whole seconds and it is re-measured at most once
+	 * per ReplicaRouter.LAG_CHECK_INTERVAL_MILLIS, so a replica read can be up to
+	 * getReplicaStalenessMillis() old; for that long after a write the same session reads from the
+	 * primary, so it always sees its own writes.
+	 */
+	private static String REPLICAS = System.getProperty("projects.db.replicas", "");
+	private static long MAX_REPLICA_LAG_MILLIS = Long.getLong("projects.db.maxReplicaLagMillis", 1_000);
+
+	// Set once the first physical connection has been opened, so the success message is printed once
+	private static final AtomicBoolean CONNECTED = new AtomicBoolean();
+
+	// The session of the current thread; each thread is its own session unless one is passed in with inSession
+	private static final ThreadLocal<Session> SESSION = ThreadLocal.withInitial(Session::new);
+
+	/* The pool is created the first time a connection is requested (holder idiom), so the URI is
+	 * built once instead of on every call. Setting the system property projects.db.url replaces the
+	 * whole URI, e.g. to point the benchmarks at an embedded database.
+	 */
+	private static class PoolHolder {
+		private static final String URI = System.getProperty("projects.db.url", uri(HOST, PORT));
+
+		private static final ConnectionPool POOL = new ConnectionPool(() -> openPhysicalConnection(URI),
+				POOL_SIZE, ACQUIRE_TIMEOUT_MILLIS, IDLE_TIMEOUT_MILLIS, LEAK_THRESHOLD_MILLIS, LEAK_DEBUG);
+	}
+
+	// The replica pools are only created when the first read asks for a connection
+	private static class ReplicaHolder {
+		private static final ReplicaRouter ROUTER = new ReplicaRouter(replicas(), MAX_REPLICA_LAG_MILLIS);
+
+		private static List<ReplicaRouter.Replica> replicas() {
+			List<ReplicaRouter.Replica> replicas = new ArrayList<>();
+
+			for(String endpoint : REPLICAS.split(",")) {
+				endpoint = endpoint.strip();
+
+				if(endpoint.isEmpty()) {
+					continue;
+				}
+
+				int colon = endpoint.lastIndexOf(':');
+				String host = colon < 0 ? endpoint : endpoint.substring(0, colon);
+				int port = colon < 0 ? PORT : Integer.parseInt(endpoint.substring(colon + 1));
+				String uri = uri(host, port);
+
+				replicas.add(new ReplicaRouter.Replica(endpoint, new ConnectionPool(() -> openPhysicalConnection(uri),
+						POOL_SIZE, ACQUIRE_TIMEOUT_MILLIS, IDLE_TIMEOUT_MILLIS, LEAK_THRESHOLD_MILLIS, LEAK_DEBUG)));
+			}
+
+			return replicas;
+		}
+	}
+
+	//connection URI is constructed using the provided connection parameters.
+	private static String uri(String host, int port) {
+		return String.format("jdbc:mysql://%s:%d/%s?user=%s&password=%s", host, port, SCHEMA, USER, PASSWORD)
+				+ DRIVER_OPTIONS;
+	}
+
+	/* getConnection() method returns a Connection object, representing the connection to the MySQL database.
+	 * The connection is borrowed from the pool; closing it hands it back to the pool for the next caller.
+	 */
+	public static Connection getConnection() {
+		return Metrics.get().time("connection.acquire", () -> PoolHolder.POOL.getConnection());
+	}
+
+	/* getReadConnection() returns a connection for a read. It comes from a replica when replicas are
+	 * configured, one is within the lag bound, and the current session has not written recently;
+	 * otherwise it comes from the primary like getConnection().
+	 */
+	public static Connection getReadConnection() {
+		if(REPLICAS.isBlank() || SESSION.get().wroteWithin(getReplicaStalenessMillis())) {
+			return getConnection();
+		}
+
+		Connection conn = Metrics.get().time("connection.acquireReplica", () -> ReplicaHolder.ROUTER.getConnection());
+		return Objects.nonNull(conn) ? conn : getConnection();
+	}
+
+	/* Call after committing a write. For the next getReplicaStalenessMillis() the session's reads
+	 * go to the primary, because a replica may not have applied the write yet.
+	 */
+	public static void recordWrite() {
+		SESSION.get().recordWrite(System.currentTimeMillis());
+	}
+
+	/* How old the data read from a replica can be: the lag bound, plus up to a second because
+	 * replicas report their lag in whole seconds (ReplicaRouter rounds it up), plus the time
+	 * between two lag checks. 0 when no replicas are configured, since then every read sees the
+	 * primary.
+	 */
+	public static long getReplicaStalenessMillis() {
+		return REPLICAS.isBlank() ? 0 : MAX_REPLICA_LAG_MILLIS + ReplicaRouter.LAG_CHECK_INTERVAL_MILLIS;
+	}
+
+	// Returns the session of the current thread, to be passed to inSession on another thread
+	public static Session currentSession() {
+		return SESSION.get();
+	}
+
+	/* Runs work on the current thread as part of the given session, so the reads see the writes the
+	 * session has made and the writes count for the session's later reads. Used where one caller's
+	 * requests are carried out on pool threads.
+	 */
+	public static <T> T inSession(Session session, Supplier<T> work) {
+		Session previous = SESSION.get();
+		SESSION.set(session);
+
+		try {
+			return work.get();
+		}
+		finally {
+			SESSION.set(previous);
+		}
+	}
+
+	/* The unit of read-your-writes routing: a caller and every thread working on its behalf. It
+	 * only remembers when the session last committed a write.
+	 */
+	public static class Session {
+		private final AtomicLong lastWriteAt = new AtomicLong(Long.MIN_VALUE);
+
+		/* Records a write committed at the given time (System.currentTimeMillis()). A writer that
+		 * commits on behalf of the session, like GroupCommitWriter, passes the commit time.
+		 */
+		public void recordWrite(long committedAt) {
+			if(!REPLICAS.isBlank()) {
+				lastWriteAt.accumulateAndGet(committedAt, Math::max);
+			}
+		}
+
+		private boolean wroteWithin(long millis) {
+			long last = lastWriteAt.get();
+			return last != Long.MIN_VALUE && System.currentTimeMillis() - last < millis;
+		}
+	}
+
+	// Returns the pool counters (active/idle connections, acquire times, leaks) for monitoring
+	public static ConnectionPool.Stats getPoolStats() {
+		return PoolHolder.POOL.getStats();
+	}
+
+	public static int getPoolSize() {
+		return POOL_SIZE;
+	}
+
+	/*Inside a try-catch block, the DriverManager.getConnection() method is called with the constructed URI
+	to establish a physical connection to the database. The pool only calls this when it needs to grow.*/
+	private static Connection openPhysicalConnection(String uri) {
 		try {
-			Connection conn = DriverManager.getConnection(uri);//If the connection is successfully established, a success message is printed
-			System.out.println("Connection to schema " + SCHEMA + " is Successful.");
+			Connection conn = DriverManager.getConnection(uri);//If the first connection is successfully established, a success message is printed
+			
+			// Once per process, not each time a pool opens another connection
+			if(CONNECTED.compareAndSet(false, true)) {
+				System.out.println("Connection to schema " + SCHEMA + " is Successful.");
+			}
+			
 			return conn; // returns connection if successful
 		} catch (SQLException e) { //If an SQLException thrown during connection process, error message is printed to the console,DbException is thrown.
 			System.out.println("Unable to get connection at " + uri);
-			throw new DbException("Unable to get connection at " + uri);
-			
+			throw new DbException("Unable to get connection at " + uri, e);
+
 		}
 	}
 }
@@ -0,0 +1,272 @@
+package projects.dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import projects.entity.Project;
+import projects.exception.DbException;
+import projects.metrics.Metrics;
+import provided.util.DaoBase;
+
+/* GroupCommitWriter batches small writes from many threads into shared transactions. Each call
+ * queues the write and returns a future at once. A background thread takes the first queued
+ * write, waits up to the window for more (or until maxGroupSize are queued), and applies the
+ * whole group on one connection in one transaction, so the group pays for a single commit and
+ * log flush instead of one per write.
+ *
+ * Every write runs behind its own savepoint. A write that fails is rolled back to its savepoint
+ * and its future fails with the error, while the rest of the group still commits. If the commit
+ * itself fails, every future in the group fails. The writes use the same ProjectDao code as the
+ * direct calls, including the rollup maintenance.
+ *
+ * A caller waits up to one window longer than with a direct call, in exchange for higher
+ * throughput when many writers are active. Objects passed in must not be changed until their
+ * future completes. Close the writer to flush the queue and stop the thread.
+ *
+ * Each write belongs to the DbConnection session of the thread that submitted it. The commit time
+ * is recorded in that session before the future completes, so the caller's next read goes to the
+ * primary and sees the write. This class only writes; ProjectService wraps it and keeps the
+ * project cache and search index up to date.
+ */
+public class GroupCommitWriter extends DaoBase implements AutoCloseable {
+	private static final long DEFAULT_WINDOW_MILLIS = 5;
+	private static final int DEFAULT_MAX_GROUP_SIZE = 256;
+
+	// How often an idle writer checks whether it has been closed
+	private static final long IDLE_POLL_MILLIS = 100;
+
+	private final ProjectDao projectDao;
+	private final long windowNanos;
+	private final int maxGroupSize;
+	private final BlockingQueue<Request<?>> queue = new LinkedBlockingQueue<>();
+	private final Thread flusher;
+	// Held while checking closed and queueing, so no write is queued after close() has been called
+	private final Object submitLock = new Object();
+	private volatile boolean closed;
+
+	public GroupCommitWriter() {
+		this(new ProjectDao(), DEFAULT_WINDOW_MILLIS, DEFAULT_MAX_GROUP_SIZE);
+	}
+
+	public GroupCommitWriter(ProjectDao projectDao, long windowMillis, int maxGroupSize) {
+		if(windowMillis < 0 || maxGroupSize < 1) {
+			throw new IllegalArgumentException("Invalid group commit settings: window " + windowMillis
+					+ "ms, group size " + maxGroupSize);
+		}
+
+		this.projectDao = projectDao;
+		this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+		this.maxGroupSize = maxGroupSize;
+		this.flusher = new Thread(this::run, "group-commit-writer");
+		this.flusher.setDaemon(true);
+		this.flusher.start();
+	}
+
+	/* Inserts the project graph; the future returns the project with its generated IDs. */
+	public CompletableFuture<Project> insertProject(Project project) {
+		return submit(new Request<Project>() {
+			@Override
+			Project apply(Connection conn) throws SQLException {
+				projectDao.insertProjects(conn, List.of(project));
+				return project;
+			}
+		});
+	}
+
+	/* Writes the changed columns; the future returns false if the project does not exist. The
+	 * project is marked clean once the group has committed.
+	 */
+	public CompletableFuture<Boolean> modifyProjectDetails(Project project) {
+		return submit(new Request<Boolean>() {
+			@Override
+			Boolean apply(Connection conn) throws SQLException {
+				return projectDao.modifyProjectDetails(conn, project);
+			}
+
+			@Override
+			void committed(Boolean modified) {
+				if(modified) {
+					project.markClean();
+				}
+			}
+		});
+	}
+
+	/* Deletes the project; the future returns false if it does not exist. */
+	public CompletableFuture<Boolean> deleteProject(Integer projectId) {
+		return submit(new Request<Boolean>() {
+			@Override
+			Boolean apply(Connection conn) throws SQLException {
+				return projectDao.deleteProject(conn, projectId);
+			}
+		});
+	}
+
+	// The number of writes waiting for the next group
+	public int getQueuedWrites() {
+		return queue.size();
+	}
+
+	/* Stops accepting writes, commits the ones already queued and waits for the thread to end. */
+	@Override
+	public void close() {
+		synchronized(submitLock) {
+			closed = true;
+		}
+
+		try {
+			flusher.join();
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private <T> CompletableFuture<T> submit(Request<T> request) {
+		synchronized(submitLock) {
+			if(closed) {
+				return CompletableFuture.failedFuture(new IllegalStateException("The group commit writer is closed"));
+			}
+
+			queue.add(request);
+		}
+
+		return request.future;
+	}
+
+	private void run() {
+		List<Request<?>> group = new ArrayList<>(maxGroupSize);
+
+		while(!closed || !queue.isEmpty()) {
+			try {
+				Request<?> first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+
+				if(Objects.isNull(first)) {
+					continue;
+				}
+
+				group.add(first);
+				long deadline = System.nanoTime() + windowNanos;
+
+				while(group.size() < maxGroupSize) {
+					long remaining = deadline - System.nanoTime();
+					Request<?> next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+
+					if(Objects.isNull(next)) {
+						break;
+					}
+
+					group.add(next);
+				}
+			}
+			catch(InterruptedException e) {
+				// Keep going until the queue is drained; close() is the way to stop
+			}
+
+			if(!group.isEmpty()) {
+				// Timed here rather than in a decorator: a group runs on this thread, not in any public call
+				Metrics.get().time("dao.groupCommit", () -> commitGroup(group));
+				group.clear();
+			}
+		}
+	}
+
+	/* Applies the group in one transaction and completes every future. */
+	private void commitGroup(List<Request<?>> group) {
+		long committedAt;
+
+		try(Connection conn = DbConnection.getConnection()) {
+			startTransaction(conn);
+
+			try {
+				for(Request<?> request : group) {
+					Savepoint savepoint = conn.setSavepoint();
+
+					try {
+						request.applyAndHold(conn);
+						conn.releaseSavepoint(savepoint);
+					}
+					catch(Exception e) {
+						conn.rollback(savepoint);
+						request.error = e;
+					}
+				}
+
+				commitTransaction(conn);
+				committedAt = System.currentTimeMillis();
+			}
+			catch(Exception e) {
+				rollbackTransaction(conn);
+				throw new DbException(e);
+			}
+		}
+		catch(Exception e) {
+			for(Request<?> request : group) {
+				request.future.completeExceptionally(e);
+			}
+
+			return;
+		}
+
+		for(Request<?> request : group) {
+			request.complete(committedAt);
+		}
+	}
+
+	@Override
+	protected void commitTransaction(Connection conn) throws SQLException {
+		super.commitTransaction(conn);
+		Metrics.get().commit();
+	}
+
+	@Override
+	protected void rollbackTransaction(Connection conn) throws SQLException {
+		Metrics.get().rollback();
+		super.rollbackTransaction(conn);
+	}
+
+	/* One queued write. apply runs inside the group's transaction; committed runs after the
+	 * group has committed, before the future completes. It is created on the submitting thread and
+	 * takes that thread's session along.
+	 */
+	private abstract static class Request<T> {
+		private final CompletableFuture<T> future = new CompletableFuture<>();
+		private final DbConnection.Session session = DbConnection.currentSession();
+		private T result;
+		private Exception error;
+
+		abstract T apply(Connection conn) throws SQLException;
+
+		void committed(T result) {
+		}
+
+		private void applyAndHold(Connection conn) throws SQLException {
+			result = apply(conn);
+		}
+
+		private void complete(long committedAt) {
+			if(Objects.nonNull(error)) {
+				future.completeExceptionally(new DbException(error));
+				return;
+			}
+
+			session.recordWrite(committedAt);
+
+			try {
+				committed(result);
+				future.complete(result);
+			}
+			catch(RuntimeException e) {
+				future.completeExceptionally(e);
+			}
+		}
+	}
+}
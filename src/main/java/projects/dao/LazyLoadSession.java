@@ -0,0 +1,127 @@
+package projects.dao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+import projects.entity.Category;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.Step;
+
+/* LazyLoadSession loads projects without their materials, steps and categories. Each child list
+ * is a LazyList that reads from the database the first time it is accessed. When it does, the
+ * same kind of child is loaded for every project in the session that has not loaded it yet, with
+ * IN-list queries, so touching the steps of 100 projects one after another costs one query
+ * rather than 100.
+ *
+ * A project ID is loaded at most once per session; asking for it again returns the same object.
+ * The children are read in a later transaction than the project row, so a lazily loaded graph
+ * is not a consistent snapshot the way ProjectDao.fetchProjectById's is. A session is meant to
+ * be short-lived, for example one per menu selection.
+ */
+public class LazyLoadSession {
+	private final ProjectDao projectDao;
+	private final Map<Integer, Project> projects = new HashMap<>();
+
+	private final ChildBatch<Material> materials;
+	private final ChildBatch<Step> steps;
+	private final ChildBatch<Category> categories;
+
+	public LazyLoadSession() {
+		this(new ProjectDao());
+	}
+
+	public LazyLoadSession(ProjectDao projectDao) {
+		this.projectDao = projectDao;
+		this.materials = new ChildBatch<>(projectDao::fetchMaterialsByProjectIds);
+		this.steps = new ChildBatch<>(projectDao::fetchStepsByProjectIds);
+		this.categories = new ChildBatch<>(projectDao::fetchCategoriesByProjectIds);
+	}
+
+	/* Loads the project row only; the child lists load on first access. */
+	public Optional<Project> fetchProjectById(Integer projectId) {
+		return fetchProjectsByIds(List.of(projectId)).stream().findFirst();
+	}
+
+	/* Loads the project rows only, in the order the IDs were given. IDs that do not exist are
+	 * skipped.
+	 */
+	public synchronized List<Project> fetchProjectsByIds(Collection<Integer> projectIds) {
+		Set<Integer> ids = new LinkedHashSet<>(projectIds);
+		ids.removeIf(Objects::isNull);
+
+		List<Integer> missing = new ArrayList<>();
+
+		for(Integer projectId : ids) {
+			if(!projects.containsKey(projectId)) {
+				missing.add(projectId);
+			}
+		}
+
+		if(!missing.isEmpty()) {
+			for(Project project : projectDao.fetchProjectHeadersByIds(missing).values()) {
+				Integer projectId = project.getProjectId();
+
+				project.setChildLoaders(() -> materials.load(projectId), () -> steps.load(projectId),
+						() -> categories.load(projectId));
+				materials.pending.add(projectId);
+				steps.pending.add(projectId);
+				categories.pending.add(projectId);
+				projects.put(projectId, project);
+			}
+		}
+
+		List<Project> result = new ArrayList<>(ids.size());
+
+		for(Integer projectId : ids) {
+			Project project = projects.get(projectId);
+
+			if(Objects.nonNull(project)) {
+				result.add(project);
+			}
+		}
+
+		return result;
+	}
+
+	/* One kind of child row. Projects whose children have not been read yet are pending; the
+	 * first load reads them all and parks the lists until each project's LazyList asks for its own.
+	 */
+	private class ChildBatch<T> {
+		private final Function<List<Integer>, Map<Integer, List<T>>> fetcher;
+		private final Set<Integer> pending = new LinkedHashSet<>();
+		private final Map<Integer, List<T>> loaded = new HashMap<>();
+
+		private ChildBatch(Function<List<Integer>, Map<Integer, List<T>>> fetcher) {
+			this.fetcher = fetcher;
+		}
+
+		private List<T> load(Integer projectId) {
+			synchronized(LazyLoadSession.this) {
+				if(pending.contains(projectId)) {
+					List<Integer> ids = new ArrayList<>(pending);
+					Map<Integer, List<T>> children = fetcher.apply(ids);
+
+					for(Integer id : ids) {
+						loaded.put(id, children.getOrDefault(id, Collections.emptyList()));
+					}
+
+					pending.clear();
+				}
+
+				// The LazyList copies the list, so the session does not need to keep it
+				List<T> children = loaded.remove(projectId);
+				return Objects.isNull(children) ? Collections.emptyList() : children;
+			}
+		}
+	}
+}
@@ -5,75 +5,83 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 import projects.entity.Category;
+import projects.entity.CategoryRollup;
 import projects.entity.Material;
 import projects.entity.Project;
+import projects.entity.ProjectBatch;
+import projects.entity.ProjectColumn;
+import projects.entity.ProjectRollup;
+import projects.entity.ProjectSummary;
 import projects.entity.Step;
 import projects.exception.DbException;
+import projects.metrics.Metrics;
 import provided.util.DaoBase;
+import provided.util.RowMapper;
 
 // ProjectDao class is responsible for inserting a Project object into the database
-// The class defines several constant variables representing table names in the database
-// These variables are used in the SQL statements to reference the corresponding tables
+// The SQL statements it sends are defined once in the ProjectSql registry
 
 public class ProjectDao extends DaoBase {
-	private static final String CATEGORY_TABLE = "category";
-	private static final String MATERIAL_TABLE = "material";
-	private static final String PROJECT_TABLE = "project";
-	private static final String PROJECT_CATEGORY_TABLE = "project_category";
-	private static final String STEP_TABLE = "step";
+	// The largest number of IDs bound into one IN list by fetchProjectsByIds
+	private static final int IN_LIST_CHUNK_SIZE = ProjectSql.MAX_IN_LIST_SIZE;
+	
+	// The number of rows sent to the server in one JDBC batch by insertProjects
+	private static final int INSERT_BATCH_SIZE = 1000;
+	
+	// Graph reads issue several statements that must all see the same snapshot of the data
+	private static final int GRAPH_READ_ISOLATION = Connection.TRANSACTION_REPEATABLE_READ;
+	
+	private final boolean aggregateLoad;
+	private final CategoryDictionary categoryDictionary = CategoryDictionary.get();
+	
+	/* By default a project graph is loaded in one round trip. Pass false to query each table
+	 * separately, for databases or drivers that cannot return several result sets from one call.
+	 */
+	public ProjectDao() {
+		this(true);
+	}
+	
+	public ProjectDao(boolean aggregateLoad) {
+		this.aggregateLoad = aggregateLoad;
+	}
 
-// The insertProject method takes a Project object as a parameter and returns a Project object	
+// The insertProject method takes a Project object as a parameter and returns a Project object
+// with its generated ID set. It is a one-element call to insertProjects.
 
 	public Project insertProject(Project project) {
-		
-// The method prepares an SQL statement to insert the project into the PROJECT_TABLE
-		
-		//@formatter:off
-		
-		String sql = ""
-		+ "INSERT INTO " + PROJECT_TABLE + " "
-		+ "(project_name, estimated_hours, actual_hours, difficulty, notes) "
-		+ "VALUES "
-		+ "(?, ?, ?, ?, ?)";
-		
-		//@formatter:on
+		return insertProjects(List.of(project)).get(0);
+	}
 
-/* The method obtains a connection from the DbConnection.getConnection 
- * method and starts a transaction using the startTransaction method 
+/* insertProjects writes the given projects and all of their materials, steps and category links
+ * in one transaction. Each table is written with JDBC batches of up to INSERT_BATCH_SIZE rows;
+ * with rewriteBatchedStatements the driver sends each batch as one multi-row INSERT, so the
+ * number of round trips depends on the number of batches rather than the number of rows. The
+ * generated keys of each batch are copied back into the project, material and step objects.
+ * Categories must already exist; only the project_category links are written.
  */
+	public List<Project> insertProjects(List<Project> projects) {
 		try (Connection conn = DbConnection.getConnection()) {
 			startTransaction(conn);
 
-/* Within the transaction, the method creates a prepared statement from the 
- * SQL statement and sets the parameter values using the setParameter
- */
-			
-			try (PreparedStatement stmt = conn.prepareStatement(sql)) {
-				setParameter(stmt, 1, project.getProjectName(), String.class);
-				setParameter(stmt, 2, project.getEstimatedHours(), BigDecimal.class);
-				setParameter(stmt, 3, project.getActualHours(), BigDecimal.class);
-				setParameter(stmt, 4, project.getDifficulty(), Integer.class);
-				setParameter(stmt, 5, project.getNotes(), String.class);
-
-// The statement is executed using executeUpdate to perform the insertion into the database				
-
-				stmt.executeUpdate();
-				
-// After the successful insertion, the method retrieves the last inserted ID using the getLastInsertId method
-// The transaction is then committed using the commitTransaction method 	
-				
-				Integer projectId = getLastInsertId(conn, PROJECT_TABLE);
+			try {
+				insertProjects(conn, projects);
 				commitTransaction(conn);
-
-				project.setProjectId(projectId);
-				return project;
-
+				return projects;
 			}
 
 /* If any exception occurs during the execution or transaction handling, 
@@ -88,52 +96,442 @@ public class ProjectDao extends DaoBase {
 			throw new DbException(e);
 		}
 	}
+	
+	// Writes the project graphs on a connection whose transaction is managed by the caller
+	void insertProjects(Connection conn, List<Project> projects) throws SQLException {
+		try (PreparedStatement stmt = conn.prepareStatement(ProjectSql.PROJECT_INSERT.sql(), Statement.RETURN_GENERATED_KEYS)) {
+			BatchWriter<Project> batch = new BatchWriter<>(stmt, Project::setProjectId);
+			
+			for(Project project : projects) {
+				setParameter(stmt, 1, project.getProjectName(), String.class);
+				setParameter(stmt, 2, project.getEstimatedHours(), BigDecimal.class);
+				setParameter(stmt, 3, project.getActualHours(), BigDecimal.class);
+				setParameter(stmt, 4, project.getDifficulty(), Integer.class);
+				setParameter(stmt, 5, project.getNotes(), String.class);
+				batch.add(project);
+			}
+			
+			batch.flush();
+		}
+		
+		try (PreparedStatement stmt = conn.prepareStatement(ProjectSql.MATERIAL_INSERT.sql(), Statement.RETURN_GENERATED_KEYS)) {
+			BatchWriter<Material> batch = new BatchWriter<>(stmt, Material::setMaterialId);
+			
+			for(Project project : projects) {
+				for(Material material : project.getMaterials()) {
+					material.setProjectId(project.getProjectId());
+					
+					setParameter(stmt, 1, material.getProjectId(), Integer.class);
+					setParameter(stmt, 2, material.getMaterialName(), String.class);
+					setParameter(stmt, 3, material.getNumRequired(), Integer.class);
+					setParameter(stmt, 4, material.getCost(), BigDecimal.class);
+					batch.add(material);
+				}
+			}
+			
+			batch.flush();
+		}
+		
+		try (PreparedStatement stmt = conn.prepareStatement(ProjectSql.STEP_INSERT.sql(), Statement.RETURN_GENERATED_KEYS)) {
+			BatchWriter<Step> batch = new BatchWriter<>(stmt, Step::setStepId);
+			
+			for(Project project : projects) {
+				int position = 0;
+				
+				for(Step step : project.getSteps()) {
+					position++;
+					step.setProjectId(project.getProjectId());
+					
+					// Leave room between the steps, see StepSequencer
+					if(Objects.isNull(step.getStepOrder())) {
+						step.setStepOrder(position * StepSequencer.GAP);
+					}
+					
+					setParameter(stmt, 1, step.getProjectId(), Integer.class);
+					setParameter(stmt, 2, step.getStepText(), String.class);
+					setParameter(stmt, 3, step.getStepOrder(), Integer.class);
+					batch.add(step);
+				}
+			}
+			
+			batch.flush();
+		}
+		
+		try (PreparedStatement stmt = conn.prepareStatement(ProjectSql.PROJECT_CATEGORY_INSERT.sql())) {
+			BatchWriter<Category> batch = new BatchWriter<>(stmt, null);
+			
+			for(Project project : projects) {
+				for(Category category : project.getCategories()) {
+					Integer categoryId = category.getCategoryId();
+					
+					// A category given by name only is looked up in the dictionary
+					if(Objects.isNull(categoryId)) {
+						categoryId = categoryDictionary.findByName(category.getCategoryName())
+								.map(Category::getCategoryId)
+								.orElseThrow(() -> new DbException("Category " + category.getCategoryName()
+								+ " does not exist. Categories must exist before projects are linked to them."));
+					}
+					
+					setParameter(stmt, 1, project.getProjectId(), Integer.class);
+					setParameter(stmt, 2, categoryId, Integer.class);
+					batch.add(category);
+				}
+			}
+			
+			batch.flush();
+		}
+		
+		List<Integer> projectIds = new ArrayList<>(projects.size());
+		
+		for(Project project : projects) {
+			projectIds.add(project.getProjectId());
+		}
+		
+		ProjectRollups.afterChange(conn, projectIds);
+	}
+	
+	/* Collects rows added to a prepared statement and executes them every INSERT_BATCH_SIZE rows.
+	 * When a key setter is given, the generated keys of each executed batch are assigned to the
+	 * rows in the order they were added.
+	 */
+	private static class BatchWriter<T> {
+		private final PreparedStatement stmt;
+		private final BiConsumer<T, Integer> keySetter;
+		private final List<T> pending = new ArrayList<>(INSERT_BATCH_SIZE);
+		
+		private BatchWriter(PreparedStatement stmt, BiConsumer<T, Integer> keySetter) {
+			this.stmt = stmt;
+			this.keySetter = keySetter;
+		}
+		
+		private void add(T row) throws SQLException {
+			stmt.addBatch();
+			pending.add(row);
+			
+			if(pending.size() >= INSERT_BATCH_SIZE) {
+				flush();
+			}
+		}
+		
+		private void flush() throws SQLException {
+			if(pending.isEmpty()) {
+				return;
+			}
+			
+			stmt.executeBatch();
+			
+			if(Objects.nonNull(keySetter)) {
+				try (ResultSet keys = stmt.getGeneratedKeys()) {
+					for(T row : pending) {
+						if(!keys.next()) {
+							throw new SQLException("Fewer generated keys than inserted rows");
+						}
+						
+						keySetter.accept(row, keys.getInt(1));
+					}
+				}
+			}
+			
+			pending.clear();
+		}
+	}
 /* This method performs a database query to retrieve all projects from a table, maps the retrieved 
- * data to Project objects, and returns a list of the fetched projects.
+ * data to Project objects, and returns a list of the fetched projects. It is a single read, so it
+ * runs in auto-commit mode instead of opening a transaction.
  */
 	public List<Project> fetchAllProjects() {
-		String sql = "SELECT * FROM " + PROJECT_TABLE + " ORDER BY project_name";
-		
-		try (Connection conn = DbConnection.getConnection()){
-			startTransaction(conn);
+		try (Connection conn = DbConnection.getReadConnection()){
+			startReadOnly(conn);
 			
-			try(PreparedStatement stmt = conn.prepareStatement(sql)){
+			try(PreparedStatement stmt = conn.prepareStatement(ProjectSql.PROJECT_SELECT_ALL.sql())){
 				try(ResultSet rs = stmt.executeQuery()){
 					List<Project> projects = new LinkedList<>();
+					readRows(rs, Project.class, projects);
+					return projects;
+				}
+			}
+		}
+		catch(SQLException e) {
+			throw new DbException(e);
+		}
+	}
+/* Streams every project, in project name order, to the given action one row at a time. The
+ * driver is asked to stream rows instead of buffering the whole result, so memory use does not
+ * grow with the size of the table and the first project is handed over as soon as it arrives.
+ * The connection stays borrowed until the last row has been processed, so the action should
+ * not take long per project.
+ */
+	public void forEachProject(Consumer<? super Project> action) {
+		try(Connection conn = DbConnection.getReadConnection()){
+			startReadOnly(conn);
+			
+			try(PreparedStatement stmt = conn.prepareStatement(ProjectSql.PROJECT_STREAM_ALL.sql(), ResultSet.TYPE_FORWARD_ONLY,
+					ResultSet.CONCUR_READ_ONLY)){
+				stmt.setFetchSize(Integer.MIN_VALUE);
+				
+				try(ResultSet rs = stmt.executeQuery()){
+					RowMapper<Project> mapper = rowMapper(rs, Project.class);
+					long count = 0;
+					
+					while(rs.next()) {
+						action.accept(mapper.map(rs));
+						count++;
+					}
+					
+					Metrics.get().rowsMapped(count);
+				}
+			}
+		}
+		catch(SQLException e) {
+			throw new DbException(e);
+		}
+	}
+	
+/* Streams every step, ordered by project and step order, the same way forEachProject streams
+ * projects. Used to build indexes over the step text without loading whole project graphs.
+ */
+	public void forEachStep(Consumer<? super Step> action) {
+		try(Connection conn = DbConnection.getReadConnection()){
+			startReadOnly(conn);
+		
+			try(PreparedStatement stmt = conn.prepareStatement(ProjectSql.STEP_STREAM_ALL.sql(), ResultSet.TYPE_FORWARD_ONLY,
+					ResultSet.CONCUR_READ_ONLY)){
+				stmt.setFetchSize(Integer.MIN_VALUE);
+			
+				try(ResultSet rs = stmt.executeQuery()){
+					RowMapper<Step> mapper = rowMapper(rs, Step.class);
+					long count = 0;
+					
+					while(rs.next()) {
+						action.accept(mapper.map(rs));
+						count++;
+					}
+					
+					Metrics.get().rowsMapped(count);
+				}
+			}
+		}
+		catch(SQLException e) {
+			throw new DbException(e);
+		}
+	}
+	
+/* Returns the ID of every project in ascending order. The primary key index alone answers the
+ * query, so no project rows are read.
+ */
+	public List<Integer> fetchProjectIds() {
+		try(Connection conn = DbConnection.getReadConnection()){
+			startReadOnly(conn);
+		
+			try(PreparedStatement stmt = conn.prepareStatement(ProjectSql.PROJECT_IDS.sql())){
+				try(ResultSet rs = stmt.executeQuery()){
+					List<Integer> projectIds = new ArrayList<>();
 					
 					while(rs.next()) {
-						projects.add(extract(rs, Project.class));
+						projectIds.add(rs.getInt(1));
 					}
+					
+					Metrics.get().rowsMapped(projectIds.size());
+					return projectIds;
+				}
+			}
+		}
+		catch(SQLException e) {
+			throw new DbException(e);
+		}
+	}
+	
+/* Returns a checksum of every project graph (the project row and its materials, steps and
+ * categories), keyed by project ID. The whole calculation runs on the server and only one number
+ * per project comes back, so a client holding a copy of the data can find the projects that
+ * changed without reading them.
+ */
+	public Map<Integer, Long> fetchProjectDigests() {
+		try(Connection conn = DbConnection.getReadConnection()){
+			startReadOnly(conn);
+		
+			try(PreparedStatement stmt = conn.prepareStatement(ProjectSql.PROJECT_DIGESTS.sql())){
+				try(ResultSet rs = stmt.executeQuery()){
+					Map<Integer, Long> digests = new HashMap<>();
+					
+					while(rs.next()) {
+						digests.put(rs.getInt(1), rs.getLong(2));
+					}
+					
+					Metrics.get().rowsMapped(digests.size());
+					return digests;
+				}
+			}
+		}
+		catch(SQLException e) {
+			throw new DbException(e);
+		}
+	}
+	
+/* Returns at most limit projects in (project_name, project_id) order, starting after the given
+ * name and ID. Pass a null name for the first page, then the name and ID of the last project of
+ * each page to get the next one. Unlike OFFSET paging, each page costs the same however deep
+ * into the list it is.
+ */
+	public List<Project> fetchProjectPage(String afterProjectName, Integer afterProjectId, int limit) {
+		boolean firstPage = Objects.isNull(afterProjectName);
+		
+		String sql = (firstPage ? ProjectSql.PROJECT_FIRST_PAGE : ProjectSql.PROJECT_NEXT_PAGE).sql();
+		
+		try(Connection conn = DbConnection.getReadConnection()){
+			startReadOnly(conn);
+			
+			try(PreparedStatement stmt = conn.prepareStatement(sql)){
+				int index = 1;
+				
+				if(!firstPage) {
+					setParameter(stmt, index++, afterProjectName, String.class);
+					setParameter(stmt, index++, afterProjectId, Integer.class);
+				}
+				
+				setParameter(stmt, index, limit, Integer.class);
+				
+				try(ResultSet rs = stmt.executeQuery()){
+					List<Project> projects = new ArrayList<>(limit);
+					readRows(rs, Project.class, projects);
 					return projects;
 				}
 			}
-			catch(Exception e) {
-				rollbackTransaction(conn);
-				throw new DbException(e);
-			} 
 		}
 		catch(SQLException e) {
 			throw new DbException(e);
 		}
 	}
+	
+/* Like fetchProjectPage, but selects only the given columns (plus the project ID and name, which
+ * the paging needs) and maps them into lightweight ProjectSummary objects. Use it for listings
+ * that do not display every column, in particular not the notes.
+ */
+	public List<ProjectSummary> fetchProjectSummaries(Set<ProjectColumn> columns, String afterProjectName,
+			Integer afterProjectId, int limit) {
+		boolean firstPage = Objects.isNull(afterProjectName);
+		String sql = ProjectSql.projectSummaryPage(columns, firstPage);
+	
+		try(Connection conn = DbConnection.getReadConnection()){
+			startReadOnly(conn);
+		
+			try(PreparedStatement stmt = conn.prepareStatement(sql)){
+				int index = 1;
+			
+				if(!firstPage) {
+					setParameter(stmt, index++, afterProjectName, String.class);
+					setParameter(stmt, index++, afterProjectId, Integer.class);
+				}
+			
+				setParameter(stmt, index, limit, Integer.class);
+			
+				try(ResultSet rs = stmt.executeQuery()){
+					List<ProjectSummary> summaries = new ArrayList<>(limit);
+					readRows(rs, ProjectSummary.class, summaries);
+					return summaries;
+				}
+			}
+		}
+		catch(SQLException e) {
+			throw new DbException(e);
+		}
+	}
+	
+	/* Reads up to limit projects with IDs greater than afterProjectId, with all their children,
+	 * into a columnar ProjectBatch. Pass 0 for the first batch and getLastProjectId() of the
+	 * previous batch for the next one; a batch smaller than limit is the last. Nothing is
+	 * mapped into entity objects: the values go straight from the result sets into primitive
+	 * arrays. The four queries share one read-only transaction, so the batch is consistent.
+	 */
+	public ProjectBatch fetchProjectBatch(int afterProjectId, int limit) {
+		return readInTransaction(conn -> {
+			ProjectBatch.Builder builder = new ProjectBatch.Builder();
+			int firstId = 0;
+			int lastId = 0;
+			long count = 0;
+			
+			try(PreparedStatement stmt = conn.prepareStatement(ProjectSql.PROJECT_BATCH.sql())){
+				setParameter(stmt, 1, afterProjectId, Integer.class);
+				setParameter(stmt, 2, limit, Integer.class);
+				
+				try(ResultSet rs = stmt.executeQuery()){
+					while(rs.next()) {
+						lastId = rs.getInt(1);
+						firstId = count == 0 ? lastId : firstId;
+						builder.addProject(lastId, rs.getString(2), getFixed(rs, 3), getFixed(rs, 4),
+								getInt(rs, 5), rs.getString(6));
+						count++;
+					}
+				}
+			}
+			
+			if(count > 0) {
+				count += readBatchChildren(conn, ProjectSql.MATERIAL_BATCH, firstId, lastId, rs ->
+						builder.addMaterial(rs.getInt(1), rs.getInt(2), rs.getString(3), getInt(rs, 4), getFixed(rs, 5)));
+				count += readBatchChildren(conn, ProjectSql.STEP_BATCH, firstId, lastId, rs ->
+						builder.addStep(rs.getInt(1), rs.getInt(2), rs.getString(3), rs.getInt(4)));
+				count += readBatchChildren(conn, ProjectSql.PROJECT_CATEGORY_BATCH, firstId, lastId, rs ->
+						builder.addCategory(rs.getInt(1), rs.getInt(2)));
+			}
+			
+			Metrics.get().rowsMapped(count);
+			return builder.build();
+		});
+	}
+	
+	// Runs a batch child query over the ID range and passes each row to the handler; returns the row count
+	private long readBatchChildren(Connection conn, ProjectSql query, int firstId, int lastId,
+			ResultSetHandler rowHandler) throws SQLException {
+		try(PreparedStatement stmt = conn.prepareStatement(query.sql())){
+			setParameter(stmt, 1, firstId, Integer.class);
+			setParameter(stmt, 2, lastId, Integer.class);
+			
+			try(ResultSet rs = stmt.executeQuery()){
+				long count = 0;
+				
+				while(rs.next()) {
+					rowHandler.handle(rs);
+					count++;
+				}
+				
+				return count;
+			}
+		}
+	}
+	
+	private static int getInt(ResultSet rs, int column) throws SQLException {
+		int value = rs.getInt(column);
+		return rs.wasNull() ? ProjectBatch.NULL_INT : value;
+	}
+	
+	private static long getFixed(ResultSet rs, int column) throws SQLException {
+		long value = rs.getLong(column);
+		return rs.wasNull() ? ProjectBatch.NULL_FIXED : value;
+	}
+	
 /* This method performs a database query to retrieve a project by its ID, maps the retrieved
- * data to a Project object, and returns it wrapped in an Optional
+ * data to a Project object, and returns it wrapped in an Optional. In aggregate mode the project
+ * and its materials, steps and categories come back in one round trip; otherwise each table is
+ * queried separately.
  */
 	public Optional<Project> fetchProjectById(Integer projectId) {
-		String sql = "SELECT * FROM " + PROJECT_TABLE + " WHERE project_id = ?";
+		if(aggregateLoad) {
+			return fetchProjectGraphById(projectId);
+		}
 		
-		try(Connection conn = DbConnection.getConnection()){
-			startTransaction(conn);
+		try(Connection conn = DbConnection.getReadConnection()){
+			startReadOnlyTransaction(conn, GRAPH_READ_ISOLATION);
 			
 			try {
 				Project project = null;
 				
-				try(PreparedStatement stmt = conn.prepareStatement(sql)){
+				try(PreparedStatement stmt = conn.prepareStatement(ProjectSql.PROJECT_SELECT_BY_ID.sql())){
 					setParameter(stmt, 1, projectId, Integer.class);
 					
 					try(ResultSet rs = stmt.executeQuery()){
 						if(rs.next()) {
 							project = extract(rs, Project.class);
+							Metrics.get().rowsMapped(1);
 						}
 					}
 					
@@ -159,45 +557,382 @@ public class ProjectDao extends DaoBase {
 		}
 	}
 
-	/* This method performs a database query to retrieve the categories associated with a specific project. It maps the 
-	 * retrieved data to Category objects and returns a list of the fetched categories.
+	/* Loads the project and all three child collections with a single multi-statement call. The
+	 * statements run inside one read-only transaction that is opened and committed by the same
+	 * call, so the graph is read from one consistent snapshot. The result sets come back in the
+	 * order the statements are written and are demultiplexed here into the same Project graph
+	 * that the per-table queries build.
+	 */
+	private Optional<Project> fetchProjectGraphById(Integer projectId) {
+		try(Connection conn = DbConnection.getReadConnection()){
+			startReadOnly(conn);
+			
+			try(PreparedStatement stmt = conn.prepareStatement(ProjectSql.PROJECT_GRAPH_BY_ID.sql())){
+				for(int index = 1; index <= 4; index++) {
+					setParameter(stmt, index, projectId, Integer.class);
+				}
+				
+				Project project = null;
+				List<Material> materials = new LinkedList<>();
+				List<Step> steps = new LinkedList<>();
+				List<Category> categories = new LinkedList<>();
+				int resultSetIndex = 0;
+				boolean isResultSet = stmt.execute();
+				
+				while(isResultSet || stmt.getUpdateCount() != -1) {
+					if(isResultSet) {
+						try(ResultSet rs = stmt.getResultSet()){
+							switch(resultSetIndex++) {
+								case 0:
+									if(rs.next()) {
+										project = extract(rs, Project.class);
+										Metrics.get().rowsMapped(1);
+									}
+									break;
+									
+								case 1:
+									readRows(rs, Material.class, materials);
+									break;
+									
+								case 2:
+									readRows(rs, Step.class, steps);
+									break;
+									
+								default:
+									readCategories(rs, categories);
+									break;
+							}
+						}
+					}
+					
+					isResultSet = stmt.getMoreResults();
+				}
+				
+				// Every result has been read, the last being the update count of the COMMIT in the text
+				Metrics.get().commit();
+				
+				if(Objects.nonNull(project)) {
+					project.getMaterials().addAll(materials);
+					project.getSteps().addAll(steps);
+					project.getCategories().addAll(categories);
+				}
+				
+				return Optional.ofNullable(project);
+			}
+			catch(Exception e) {
+				endReadOnlyTransaction(conn);
+				throw new DbException(e);
+			}
+		}
+		catch(SQLException e) {
+			throw new DbException(e);
+		}
+	}
+	
+	/* The transaction in fetchProjectGraphById is opened by a statement rather than by turning
+	 * auto-commit off, so it has to be ended with a statement if the call fails part way.
+	 */
+	private void endReadOnlyTransaction(Connection conn) throws SQLException {
+		Metrics.get().rollback();
+		
+		try(Statement stmt = conn.createStatement()){
+			stmt.execute("ROLLBACK");
+		}
+	}
+	
+	// Counts transactions in the metrics as well as committing or rolling them back
+	@Override
+	protected void commitTransaction(Connection conn) throws SQLException {
+		boolean write = !conn.isReadOnly();
+		super.commitTransaction(conn);
+		Metrics.get().commit();
+		
+		if(write) {
+			DbConnection.recordWrite();
+		}
+	}
+	
+	@Override
+	protected void rollbackTransaction(Connection conn) throws SQLException {
+		Metrics.get().rollback();
+		super.rollbackTransaction(conn);
+	}
+	
+	// Maps every remaining row of the result set into the given list
+	private <T> void readRows(ResultSet rs, Class<T> classType, List<T> rows) throws SQLException {
+		RowMapper<T> mapper = rowMapper(rs, classType);
+		long count = 0;
+		
+		while(rs.next()) {
+			rows.add(mapper.map(rs));
+			count++;
+		}
+		
+		Metrics.get().rowsMapped(count);
+	}
+
+	/* Loads the full graphs of many projects at once. Instead of four queries per project, each
+	 * table is read with IN-list queries over chunks of at most IN_LIST_CHUNK_SIZE IDs, and the
+	 * child rows are attached to their projects through a hash map. The number of queries grows
+	 * with the number of chunks, not the number of projects. Projects are returned in the order
+	 * their IDs were given; IDs that do not exist are skipped.
+	 */
+	public List<Project> fetchProjectsByIds(Collection<Integer> projectIds) {
+		List<Integer> ids = new ArrayList<>(new LinkedHashSet<>(projectIds));
+		ids.removeIf(Objects::isNull);
+		
+		if(ids.isEmpty()) {
+			return new ArrayList<>();
+		}
+		
+		try(Connection conn = DbConnection.getReadConnection()){
+			startReadOnlyTransaction(conn, GRAPH_READ_ISOLATION);
+			
+			try {
+				Map<Integer, Project> projects = readProjectsByIds(conn, ids);
+				
+				List<Integer> foundIds = new ArrayList<>(projects.keySet());
+				
+				readMaterialsByProjects(conn, foundIds, (projectId, material) ->
+						projects.get(projectId).getMaterials().add(material));
+				readStepsByProjects(conn, foundIds, (projectId, step) ->
+						projects.get(projectId).getSteps().add(step));
+				readCategoriesByProjects(conn, foundIds, (projectId, category) ->
+						projects.get(projectId).getCategories().add(category));
+				
+				commitTransaction(conn);
+				
+				List<Project> result = new ArrayList<>(projects.size());
+				
+				for(Integer projectId : ids) {
+					Project project = projects.get(projectId);
+					
+					if(Objects.nonNull(project)) {
+						result.add(project);
+					}
+				}
+				
+				return result;
+			}
+			catch(Exception e) {
+				rollbackTransaction(conn);
+				throw new DbException(e);
+			}
+		}
+		catch(SQLException e) {
+			throw new DbException(e);
+		}
+	}
+	
+	/* Loads only the project rows for the given IDs, keyed by project ID. Used by LazyLoadSession,
+	 * which attaches the child lists itself.
+	 */
+	Map<Integer, Project> fetchProjectHeadersByIds(List<Integer> projectIds) {
+		return readInTransaction(conn -> readProjectsByIds(conn, projectIds));
+	}
+	
+	/* Loads one child table for many projects, keyed by project ID. Projects without children
+	 * have no entry. Used by LazyLoadSession.
+	 */
+	Map<Integer, List<Material>> fetchMaterialsByProjectIds(List<Integer> projectIds) {
+		return readChildren(projectIds, this::readMaterialsByProjects);
+	}
+	
+	Map<Integer, List<Step>> fetchStepsByProjectIds(List<Integer> projectIds) {
+		return readChildren(projectIds, this::readStepsByProjects);
+	}
+	
+	Map<Integer, List<Category>> fetchCategoriesByProjectIds(List<Integer> projectIds) {
+		return readChildren(projectIds, this::readCategoriesByProjects);
+	}
+	
+	/* Reads the child rows of many projects and passes each one to the sink with its project ID.
+	 * Declared here because BiConsumer cannot throw SQLException.
+	 */
+	@FunctionalInterface
+	private interface ChildReader<T> {
+		void read(Connection conn, List<Integer> projectIds, BiConsumer<Integer, T> sink) throws SQLException;
+	}
+	
+	// Work done inside readInTransaction
+	@FunctionalInterface
+	private interface ConnectionWork<R> {
+		R apply(Connection conn) throws SQLException;
+	}
+	
+	private <T> Map<Integer, List<T>> readChildren(List<Integer> projectIds, ChildReader<T> reader) {
+		return readInTransaction(conn -> {
+			Map<Integer, List<T>> children = new HashMap<>();
+			reader.read(conn, projectIds, (projectId, child) ->
+					children.computeIfAbsent(projectId, id -> new ArrayList<>()).add(child));
+			return children;
+		});
+	}
+	
+	// Runs the work in a read-only transaction on a pooled connection
+	private <R> R readInTransaction(ConnectionWork<R> work) {
+		try(Connection conn = DbConnection.getReadConnection()){
+			startReadOnlyTransaction(conn, GRAPH_READ_ISOLATION);
+			
+			try {
+				R result = work.apply(conn);
+				commitTransaction(conn);
+				return result;
+			}
+			catch(Exception e) {
+				rollbackTransaction(conn);
+				throw new DbException(e);
+			}
+		}
+		catch(SQLException e) {
+			throw new DbException(e);
+		}
+	}
+	
+	private Map<Integer, Project> readProjectsByIds(Connection conn, List<Integer> projectIds) throws SQLException {
+		Map<Integer, Project> projects = new HashMap<>(projectIds.size() * 4 / 3 + 1);
+		
+		queryInChunks(conn, ProjectSql.PROJECT_SELECT_BY_IDS, projectIds, rs -> {
+			RowMapper<Project> mapper = rowMapper(rs, Project.class);
+			long count = 0;
+			
+			while(rs.next()) {
+				Project project = mapper.map(rs);
+				projects.put(project.getProjectId(), project);
+				count++;
+			}
+			
+			Metrics.get().rowsMapped(count);
+		});
+		
+		return projects;
+	}
+	
+	private void readMaterialsByProjects(Connection conn, List<Integer> projectIds,
+			BiConsumer<Integer, Material> sink) throws SQLException {
+		queryInChunks(conn, ProjectSql.MATERIAL_SELECT_BY_PROJECTS, projectIds, rs -> {
+			RowMapper<Material> mapper = rowMapper(rs, Material.class);
+			long count = 0;
+			
+			while(rs.next()) {
+				Material material = mapper.map(rs);
+				sink.accept(material.getProjectId(), material);
+				count++;
+			}
+			
+			Metrics.get().rowsMapped(count);
+		});
+	}
+	
+	// Steps arrive ordered by project and step_order, so each project's steps are added in order
+	private void readStepsByProjects(Connection conn, List<Integer> projectIds,
+			BiConsumer<Integer, Step> sink) throws SQLException {
+		queryInChunks(conn, ProjectSql.STEP_SELECT_BY_PROJECTS, projectIds, rs -> {
+			RowMapper<Step> mapper = rowMapper(rs, Step.class);
+			long count = 0;
+			
+			while(rs.next()) {
+				Step step = mapper.map(rs);
+				sink.accept(step.getProjectId(), step);
+				count++;
+			}
+			
+			Metrics.get().rowsMapped(count);
+		});
+	}
+	
+	private void readCategoriesByProjects(Connection conn, List<Integer> projectIds,
+			BiConsumer<Integer, Category> sink) throws SQLException {
+		queryInChunks(conn, ProjectSql.PROJECT_CATEGORY_SELECT_BY_PROJECTS, projectIds, rs -> {
+			long count = 0;
+			
+			while(rs.next()) {
+				Category category = categoryDictionary.getCategory(rs.getInt(2));
+				
+				if(Objects.nonNull(category)) {
+					sink.accept(rs.getInt(1), category);
+				}
+				
+				count++;
+			}
+			
+			Metrics.get().rowsMapped(count);
+		});
+	}
+	
+	/* Reads the rows of one result set. Declared here because the JDK functional interfaces
+	 * cannot throw SQLException.
+	 */
+	@FunctionalInterface
+	private interface ResultSetHandler {
+		void handle(ResultSet rs) throws SQLException;
+	}
+	
+	/* Runs the IN-list template once per chunk of IDs. The placeholder count is rounded up to a
+	 * power of two and padded with the last ID, so only a handful of distinct statement shapes are
+	 * ever sent to the server and each of them stays in the prepared-statement cache.
+	 */
+	private void queryInChunks(Connection conn, ProjectSql template, List<Integer> ids,
+			ResultSetHandler handler) throws SQLException {
+		for(int from = 0; from < ids.size(); from += IN_LIST_CHUNK_SIZE) {
+			List<Integer> chunk = ids.subList(from, Math.min(ids.size(), from + IN_LIST_CHUNK_SIZE));
+			int size = Math.min(IN_LIST_CHUNK_SIZE, Integer.highestOneBit(chunk.size() * 2 - 1));
+			try(PreparedStatement stmt = conn.prepareStatement(template.sql(size))){
+				for(int index = 0; index < size; index++) {
+					Integer id = chunk.get(Math.min(index, chunk.size() - 1));
+					setParameter(stmt, index + 1, id, Integer.class);
+				}
+				
+				try(ResultSet rs = stmt.executeQuery()){
+					handler.handle(rs);
+				}
+			}
+		}
+	}
+
+	/* This method performs a database query to retrieve the categories associated with a specific project. Only
+	 * the category IDs are read; the shared Category objects come from the category dictionary.
 	 */
 	private List<Category> fetchCategoriesForProject(Connection conn, Integer projectId) throws SQLException {
-		// @formatter:off
-		String sql = ""
-			+ "SELECT c.* FROM " + CATEGORY_TABLE + " c "
-			+ "JOIN " + PROJECT_CATEGORY_TABLE + " pc USING (category_id) "
-			+ "WHERE project_id = ?";
-		// @formatter:on
-		
-		try(PreparedStatement stmt = conn.prepareStatement(sql)){
+		try(PreparedStatement stmt = conn.prepareStatement(ProjectSql.PROJECT_CATEGORY_SELECT_BY_PROJECT.sql())){
 			setParameter(stmt, 1, projectId, Integer.class);
 			
 			try(ResultSet rs = stmt.executeQuery()){
 				List<Category> categories = new LinkedList<>();
-				
-				while (rs.next()) {
-					categories.add(extract(rs, Category.class));
-				}
+				readCategories(rs, categories);
 				return categories;
 			}	
 		}
 	}
+	
+	// Resolves every category ID in the first column of the result set through the dictionary
+	private void readCategories(ResultSet rs, List<Category> categories) throws SQLException {
+		long count = 0;
+		
+		while(rs.next()) {
+			Category category = categoryDictionary.getCategory(rs.getInt(1));
+			
+			// A category deleted since the link was read is left out
+			if(Objects.nonNull(category)) {
+				categories.add(category);
+			}
+			
+			count++;
+		}
+		
+		Metrics.get().rowsMapped(count);
+	}
+	
 /*  This method performs a database query to retrieve the steps associated with a specific project. It maps 
  *  the retrieved data to Step objects and returns a list of the fetched steps.
  */
 	private List<Step> fetchStepsForProject(Connection conn, Integer projectId) throws SQLException {
-		String sql = "SELECT * FROM " + STEP_TABLE + " WHERE project_id = ?";
-		
-		try(PreparedStatement stmt = conn.prepareStatement(sql)){
+		try(PreparedStatement stmt = conn.prepareStatement(ProjectSql.STEP_SELECT_BY_PROJECT.sql())){
 			setParameter(stmt, 1, projectId, Integer.class);
 			
 			try(ResultSet rs = stmt.executeQuery()){
 				List<Step> steps = new LinkedList<>();
-				
-				while (rs.next()) {
-					steps.add(extract(rs, Step.class));
-				}
+				readRows(rs, Step.class, steps);
 				return steps;
 			}
 		}
@@ -206,17 +941,12 @@ public class ProjectDao extends DaoBase {
  * retrieved data to Material objects and returns a list of the fetched materials.
  */
 	private List<Material> fetchMaterialsForProject(Connection conn, Integer projectId) throws SQLException {
-		String sql = "SELECT * FROM " + MATERIAL_TABLE + " WHERE project_id = ?";
-		
-		try(PreparedStatement stmt = conn.prepareStatement(sql)){
+		try(PreparedStatement stmt = conn.prepareStatement(ProjectSql.MATERIAL_SELECT_BY_PROJECT.sql())){
 			setParameter(stmt, 1, projectId, Integer.class);
 			
 			try(ResultSet rs = stmt.executeQuery()){
 				List<Material> materials = new LinkedList<>();
-				
-				while (rs.next()) {
-					materials.add(extract(rs, Material.class));
-				}
+				readRows(rs, Material.class, materials);
 				return materials;
 			}
 		}
@@ -224,36 +954,29 @@ public class ProjectDao extends DaoBase {
 	
 	/*
 	 * the modifyProjectDetails() method executes an SQL update statement to modify the 
-	 * project details in the database. It handles transaction management and returns a 
+	 * project details in the database. Only the columns changed on the project (see
+	 * Project.getChangedColumns) are written, so an edit of the name does not rewrite the notes.
+	 * If nothing changed, no statement is sent and true is returned. After a successful update
+	 * the project is marked clean. It handles transaction management and returns a 
 	 * boolean value indicating the success of the modification.
 	 */
 	
 	public boolean modifyProjectDetails(Project project) {
-		// @formatter:off
-		String sql = ""
-				+ "UPDATE " + PROJECT_TABLE + " SET "
-				+ "project_name = ?, "
-				+ "estimated_hours = ?, "
-				+ "actual_hours = ?, "
-				+ "difficulty = ?, "
-				+ "notes = ? "
-				+ "WHERE project_id = ?";
-		// @formatter:on
+		if(!project.isChanged()) {
+			return true;
+		}
 		
 		try(Connection conn = DbConnection.getConnection()){
 			startTransaction(conn);
 			
-			try(PreparedStatement stmt = conn.prepareStatement(sql)){
-				setParameter(stmt, 1, project.getProjectName(), String.class);
-				setParameter(stmt, 2, project.getEstimatedHours(), BigDecimal.class);
-				setParameter(stmt, 3, project.getActualHours(), BigDecimal.class);
-				setParameter(stmt, 4, project.getDifficulty(), Integer.class);
-				setParameter(stmt, 5, project.getNotes(), String.class);
-				setParameter(stmt, 6, project.getProjectId(), Integer.class);
-				
-				boolean modified = stmt.executeUpdate() == 1;
+			try {
+				boolean modified = modifyProjectDetails(conn, project);
 				commitTransaction(conn);
 				
+				if(modified) {
+					project.markClean();
+				}
+				
 				return modified;
 				
 			}
@@ -270,6 +993,122 @@ public class ProjectDao extends DaoBase {
 		
 	}
 	
+	/* Writes the changed columns on a connection whose transaction is managed by the caller. The
+	 * project is not marked clean; the caller does that once the transaction has committed.
+	 */
+	boolean modifyProjectDetails(Connection conn, Project project) throws SQLException {
+		Set<ProjectColumn> columns = project.getChangedColumns();
+		
+		if(columns.isEmpty()) {
+			return true;
+		}
+		
+		try(PreparedStatement stmt = conn.prepareStatement(ProjectSql.projectUpdate(columns))){
+			int index = 1;
+			
+			for(ProjectColumn column : columns) {
+				setParameter(stmt, index++, column.getValue(project), column.getType());
+			}
+			
+			setParameter(stmt, index, project.getProjectId(), Integer.class);
+			
+			// The hours are part of the rollups; the other columns are not
+			boolean rollupsChange = columns.contains(ProjectColumn.ESTIMATED_HOURS)
+					|| columns.contains(ProjectColumn.ACTUAL_HOURS);
+			List<Integer> projectIds = List.of(project.getProjectId());
+			
+			if(rollupsChange) {
+				ProjectRollups.beforeChange(conn, projectIds);
+			}
+		
+			boolean modified = stmt.executeUpdate() == 1;
+			
+			if(rollupsChange) {
+				ProjectRollups.afterChange(conn, projectIds);
+			}
+			
+			return modified;
+		}
+	}
+
+	
+	/*
+	 *  Returns the precomputed totals of a project (material count and cost, step count, hours),
+	 *  read by primary key from project_rollup.
+	 */
+	public Optional<ProjectRollup> fetchProjectRollup(Integer projectId) {
+		return fetchRollup(ProjectSql.PROJECT_ROLLUP_SELECT, projectId, ProjectRollup.class);
+	}
+	
+	/*
+	 *  Returns true if a project with the given ID exists. Reads only the primary key index.
+	 */
+	public boolean projectExists(Integer projectId) {
+		try(Connection conn = DbConnection.getReadConnection()){
+			startReadOnly(conn);
+			
+			try(PreparedStatement stmt = conn.prepareStatement(ProjectSql.PROJECT_EXISTS.sql())){
+				setParameter(stmt, 1, projectId, Integer.class);
+				
+				try(ResultSet rs = stmt.executeQuery()){
+					return rs.next();
+				}
+			}
+		}
+		catch(SQLException e) {
+			throw new DbException(e);
+		}
+	}
+	
+	/*
+	 *  Returns the precomputed totals of all projects in a category, read by primary key from
+	 *  category_rollup.
+	 */
+	public Optional<CategoryRollup> fetchCategoryRollup(Integer categoryId) {
+		return fetchRollup(ProjectSql.CATEGORY_ROLLUP_SELECT, categoryId, CategoryRollup.class);
+	}
+	
+	/*
+	 *  Recomputes both rollup tables from the project tables. Writes through this class keep the
+	 *  rollups current; call this after loading data some other way, such as the bulk importer.
+	 */
+	public void rebuildRollups() {
+		try(Connection conn = DbConnection.getConnection()){
+			startTransaction(conn);
+			
+			try {
+				ProjectRollups.rebuild(conn);
+				commitTransaction(conn);
+			}
+			catch(Exception e) {
+				rollbackTransaction(conn);
+				throw new DbException(e);
+			}
+		}
+		catch(SQLException e) {
+			throw new DbException(e);
+		}
+	}
+	
+	private <T> Optional<T> fetchRollup(ProjectSql query, Integer id, Class<T> classType) {
+		try(Connection conn = DbConnection.getReadConnection()){
+			startReadOnly(conn);
+			
+			try(PreparedStatement stmt = conn.prepareStatement(query.sql())){
+				setParameter(stmt, 1, id, Integer.class);
+				
+				try(ResultSet rs = stmt.executeQuery()){
+					List<T> rows = new ArrayList<>(1);
+					readRows(rs, classType, rows);
+					return rows.stream().findFirst();
+				}
+			}
+		}
+		catch(SQLException e) {
+			throw new DbException(e);
+		}
+	}
+	
 	/*
 	 *  the deleteProject() method executes an SQL delete statement to remove a project 
 	 *  from the database based on its ID. It handles transaction management and returns 
@@ -277,15 +1116,11 @@ public class ProjectDao extends DaoBase {
 	 */
 	
 	public boolean deleteProject(Integer projectId) {
-		String sql = "DELETE FROM " + PROJECT_TABLE + " WHERE project_id = ?";
-		
 		try(Connection conn = DbConnection.getConnection()){
 			startTransaction(conn);
 			
-			try(PreparedStatement stmt = conn.prepareStatement(sql)){
-				setParameter(stmt, 1, projectId, Integer.class);
-				
-				boolean deleted = stmt.executeUpdate() == 1;
+			try {
+				boolean deleted = deleteProject(conn, projectId);
 				
 				commitTransaction(conn);
 				return deleted;
@@ -300,4 +1135,17 @@ public class ProjectDao extends DaoBase {
 		}
 	}
 
+	// Deletes the project on a connection whose transaction is managed by the caller
+	boolean deleteProject(Connection conn, Integer projectId) throws SQLException {
+		try(PreparedStatement stmt = conn.prepareStatement(ProjectSql.PROJECT_DELETE.sql())){
+			setParameter(stmt, 1, projectId, Integer.class);
+			
+			// Take the project out of its categories' totals; its own rollup row is deleted by cascade
+			ProjectRollups.beforeChange(conn, List.of(projectId));
+		
+			return stmt.executeUpdate() == 1;
+		}
+	}
+
+
 }
@@ -0,0 +1,63 @@
+package projects.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+
+/* ProjectRollups keeps the project_rollup and category_rollup summary tables in step with the
+ * project tables. ProjectDao calls it inside the transaction of every write, so the totals
+ * always match the rows they summarize and are read back with a primary-key lookup.
+ *
+ * A change to a project is applied in three steps:
+ *   1. before the change, subtract the project's old totals from each of its categories,
+ *   2. after the change, recompute the project's totals from its material and step rows,
+ *   3. add the new totals to each of its categories.
+ * Only the changed projects are read. Each statement covers a single project because MySQL
+ * updates a row at most once per multi-table UPDATE, which would lose the totals of all but one
+ * project sharing a category. The statements are sent as JDBC batches.
+ *
+ * Writes that change the same category serialize on its category_rollup row until they commit.
+ */
+class ProjectRollups {
+	private ProjectRollups() {
+	}
+
+	/* Step 1. Call before changing or deleting the projects (new projects can skip it). */
+	static void beforeChange(Connection conn, Collection<Integer> projectIds) throws SQLException {
+		executeForEach(conn, ProjectSql.ROLLUP_SUBTRACT_FROM_CATEGORIES, projectIds);
+	}
+
+	/* Steps 2 and 3. Call after inserting or changing the projects. */
+	static void afterChange(Connection conn, Collection<Integer> projectIds) throws SQLException {
+		executeForEach(conn, ProjectSql.ROLLUP_RECOMPUTE_PROJECT, projectIds);
+		executeForEach(conn, ProjectSql.ROLLUP_ADD_TO_CATEGORIES, projectIds);
+	}
+
+	/* Recomputes both tables from scratch, in the caller's transaction. */
+	static void rebuild(Connection conn) throws SQLException {
+		try(Statement stmt = conn.createStatement()) {
+			stmt.executeUpdate(ProjectSql.ROLLUP_CLEAR_CATEGORIES.sql());
+			stmt.executeUpdate(ProjectSql.ROLLUP_CLEAR_PROJECTS.sql());
+			stmt.executeUpdate(ProjectSql.ROLLUP_REBUILD_PROJECTS.sql());
+			stmt.executeUpdate(ProjectSql.ROLLUP_REBUILD_CATEGORIES.sql());
+		}
+	}
+
+	private static void executeForEach(Connection conn, ProjectSql statement, Collection<Integer> projectIds)
+			throws SQLException {
+		if(projectIds.isEmpty()) {
+			return;
+		}
+
+		try(PreparedStatement stmt = conn.prepareStatement(statement.sql())) {
+			for(Integer projectId : projectIds) {
+				stmt.setInt(1, projectId);
+				stmt.addBatch();
+			}
+
+			stmt.executeBatch();
+		}
+	}
+}
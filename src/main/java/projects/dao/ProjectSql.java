@@ -0,0 +1,415 @@
+package projects.dao;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.StringJoiner;
+
+import projects.entity.ProjectColumn;
+
+/* ProjectSql is the registry of every SQL statement ProjectDao sends. Each statement is built
+ * once, when the enum is loaded, instead of being concatenated on every DAO call. Because every
+ * call then sends exactly the same text, the driver's prepared-statement cache (see the driver
+ * options in DbConnection) can match it and reuse the server-side prepared statement, so each
+ * statement is parsed once per connection rather than once per call.
+ *
+ * Templates marked as IN lists contain a %s where the placeholders go. Use sql(int) to get the
+ * text for a given number of IDs; the formatted text is also cached per size.
+ */
+enum ProjectSql {
+	// @formatter:off
+	PROJECT_INSERT(""
+		+ "INSERT INTO " + Table.PROJECT + " "
+		+ "(project_name, estimated_hours, actual_hours, difficulty, notes) "
+		+ "VALUES "
+		+ "(?, ?, ?, ?, ?)"),
+
+	PROJECT_SELECT_ALL(
+		"SELECT * FROM " + Table.PROJECT + " ORDER BY project_name"),
+
+	PROJECT_STREAM_ALL(
+		"SELECT * FROM " + Table.PROJECT + " ORDER BY project_name, project_id"),
+
+	PROJECT_FIRST_PAGE(""
+		+ "SELECT * FROM " + Table.PROJECT + " "
+		+ "ORDER BY project_name, project_id "
+		+ "LIMIT ?"),
+
+	PROJECT_NEXT_PAGE(""
+		+ "SELECT * FROM " + Table.PROJECT + " "
+		+ "WHERE (project_name, project_id) > (?, ?) "
+		+ "ORDER BY project_name, project_id "
+		+ "LIMIT ?"),
+
+	/* Columnar batch reads, see ProjectDao.fetchProjectBatch. Decimals are read as fixed-point
+	 * integers in hundredths (the columns are DECIMAL(7,2)), so no BigDecimal is created per row.
+	 * The children are read by the ID range of the batch, grouped by project. */
+	PROJECT_BATCH(""
+		+ "SELECT project_id, project_name, CAST(estimated_hours * 100 AS SIGNED), "
+		+ "CAST(actual_hours * 100 AS SIGNED), difficulty, notes "
+		+ "FROM " + Table.PROJECT + " WHERE project_id > ? "
+		+ "ORDER BY project_id LIMIT ?"),
+
+	MATERIAL_BATCH(""
+		+ "SELECT project_id, material_id, material_name, num_required, CAST(cost * 100 AS SIGNED) "
+		+ "FROM " + Table.MATERIAL + " WHERE project_id BETWEEN ? AND ? "
+		+ "ORDER BY project_id, material_id"),
+
+	STEP_BATCH(""
+		+ "SELECT project_id, step_id, step_text, step_order "
+		+ "FROM " + Table.STEP + " WHERE project_id BETWEEN ? AND ? "
+		+ "ORDER BY project_id, step_order"),
+
+	PROJECT_CATEGORY_BATCH(""
+		+ "SELECT project_id, category_id "
+		+ "FROM " + Table.PROJECT_CATEGORY + " WHERE project_id BETWEEN ? AND ? "
+		+ "ORDER BY project_id, category_id"),
+
+	PROJECT_SELECT_BY_ID(
+		"SELECT * FROM " + Table.PROJECT + " WHERE project_id = ?"),
+
+	/* Multi-statement graph load. The driver prepares statements containing ';' on the client,
+	 * so this one is never server-side prepared. */
+	PROJECT_GRAPH_BY_ID(""
+		+ "START TRANSACTION READ ONLY; "
+		+ "SELECT * FROM " + Table.PROJECT + " WHERE project_id = ?; "
+		+ "SELECT * FROM " + Table.MATERIAL + " WHERE project_id = ?; "
+		+ "SELECT * FROM " + Table.STEP + " WHERE project_id = ? ORDER BY step_order; "
+		+ "SELECT category_id FROM " + Table.PROJECT_CATEGORY + " WHERE project_id = ?; "
+		+ "COMMIT"),
+
+	PROJECT_EXISTS(
+		"SELECT 1 FROM " + Table.PROJECT + " WHERE project_id = ?"),
+
+	PROJECT_IDS(
+		"SELECT project_id FROM " + Table.PROJECT + " ORDER BY project_id"),
+
+	/* One row per project with a checksum of the project row and all of its child rows; see
+	 * projects.snapshot.ProjectDigest, which computes the same value on the client. Each row is
+	 * CRC32'd as its '|'-separated column values (NULL as ''), and the row checksums are
+	 * combined with XOR so that the order of the child rows does not matter. */
+	PROJECT_DIGESTS(""
+		+ "SELECT p.project_id, "
+		+ "CRC32(CONCAT_WS('|', 'p', p.project_id, COALESCE(p.project_name, ''), "
+		+ "COALESCE(p.estimated_hours, ''), COALESCE(p.actual_hours, ''), "
+		+ "COALESCE(p.difficulty, ''), COALESCE(p.notes, ''))) "
+		+ "^ COALESCE(m.digest, 0) ^ COALESCE(s.digest, 0) ^ COALESCE(c.digest, 0) AS digest "
+		+ "FROM " + Table.PROJECT + " p "
+		+ "LEFT JOIN (SELECT project_id, BIT_XOR(CRC32(CONCAT_WS('|', 'm', material_id, "
+		+ "COALESCE(material_name, ''), COALESCE(num_required, ''), COALESCE(cost, '')))) AS digest "
+		+ "FROM " + Table.MATERIAL + " GROUP BY project_id) m ON m.project_id = p.project_id "
+		+ "LEFT JOIN (SELECT project_id, BIT_XOR(CRC32(CONCAT_WS('|', 's', step_id, "
+		+ "COALESCE(step_text, ''), COALESCE(step_order, '')))) AS digest "
+		+ "FROM " + Table.STEP + " GROUP BY project_id) s ON s.project_id = p.project_id "
+		+ "LEFT JOIN (SELECT pc.project_id, BIT_XOR(CRC32(CONCAT_WS('|', 'c', pc.category_id, "
+		+ "COALESCE(c.category_name, '')))) AS digest "
+		+ "FROM " + Table.PROJECT_CATEGORY + " pc JOIN " + Table.CATEGORY + " c USING (category_id) "
+		+ "GROUP BY pc.project_id) c ON c.project_id = p.project_id"),
+
+	PROJECT_SELECT_BY_IDS(
+		"SELECT * FROM " + Table.PROJECT + " WHERE project_id IN (%s)", true),
+
+	PROJECT_DELETE(
+		"DELETE FROM " + Table.PROJECT + " WHERE project_id = ?"),
+
+	MATERIAL_INSERT(""
+		+ "INSERT INTO " + Table.MATERIAL + " "
+		+ "(project_id, material_name, num_required, cost) "
+		+ "VALUES "
+		+ "(?, ?, ?, ?)"),
+
+	MATERIAL_SELECT_BY_PROJECT(
+		"SELECT * FROM " + Table.MATERIAL + " WHERE project_id = ?"),
+
+	MATERIAL_SELECT_BY_PROJECTS(
+		"SELECT * FROM " + Table.MATERIAL + " WHERE project_id IN (%s)", true),
+
+	STEP_INSERT(""
+		+ "INSERT INTO " + Table.STEP + " "
+		+ "(project_id, step_text, step_order) "
+		+ "VALUES "
+		+ "(?, ?, ?)"),
+
+	STEP_SELECT_BY_PROJECT(
+		"SELECT * FROM " + Table.STEP + " WHERE project_id = ? ORDER BY step_order"),
+
+	STEP_STREAM_ALL(
+		"SELECT * FROM " + Table.STEP + " ORDER BY project_id, step_order"),
+
+	STEP_SELECT_BY_PROJECTS(""
+		+ "SELECT * FROM " + Table.STEP + " WHERE project_id IN (%s) "
+		+ "ORDER BY project_id, step_order", true),
+
+	/* Step ordering, see StepSequencer. PROJECT_LOCK serializes step writes per project. */
+	PROJECT_LOCK(
+		"SELECT project_id FROM " + Table.PROJECT + " WHERE project_id = ? FOR UPDATE"),
+
+	STEP_ORDER_SELECT(
+		"SELECT step_order FROM " + Table.STEP + " WHERE step_id = ? AND project_id = ?"),
+
+	STEP_NEXT_ORDER(""
+		+ "SELECT MIN(step_order) FROM " + Table.STEP + " "
+		+ "WHERE project_id = ? AND step_order > ? AND step_id <> ?"),
+
+	STEP_MAX_ORDER(
+		"SELECT MAX(step_order) FROM " + Table.STEP + " WHERE project_id = ?"),
+
+	STEP_IDS_BY_PROJECT(
+		"SELECT step_id FROM " + Table.STEP + " WHERE project_id = ? ORDER BY step_order, step_id"),
+
+	STEP_MOVE(
+		"UPDATE " + Table.STEP + " SET step_order = ? WHERE step_id = ?"),
+
+	STEP_DELETE(
+		"DELETE FROM " + Table.STEP + " WHERE step_id = ? AND project_id = ?"),
+
+	PROJECT_CATEGORY_INSERT(""
+		+ "INSERT INTO " + Table.PROJECT_CATEGORY + " "
+		+ "(project_id, category_id) "
+		+ "VALUES "
+		+ "(?, ?)"),
+
+	CATEGORY_SELECT_ALL(
+		"SELECT * FROM " + Table.CATEGORY + " ORDER BY category_name"),
+
+	/* Only the category IDs are read; CategoryDictionary resolves them to Category objects. */
+	PROJECT_CATEGORY_SELECT_BY_PROJECT(
+		"SELECT category_id FROM " + Table.PROJECT_CATEGORY + " WHERE project_id = ?"),
+
+	PROJECT_CATEGORY_SELECT_BY_PROJECTS(
+		"SELECT project_id, category_id FROM " + Table.PROJECT_CATEGORY + " WHERE project_id IN (%s)", true),
+
+	/* Rollup maintenance, see ProjectRollups. Each statement takes one project ID. */
+	ROLLUP_SUBTRACT_FROM_CATEGORIES(""
+		+ "UPDATE " + Table.CATEGORY_ROLLUP + " cr "
+		+ "JOIN " + Table.PROJECT_CATEGORY + " pc ON pc.category_id = cr.category_id "
+		+ "JOIN " + Table.PROJECT_ROLLUP + " pr ON pr.project_id = pc.project_id "
+		+ "SET cr.project_count = cr.project_count - 1, "
+		+ "cr.material_count = cr.material_count - pr.material_count, "
+		+ "cr.material_cost = cr.material_cost - pr.material_cost, "
+		+ "cr.step_count = cr.step_count - pr.step_count, "
+		+ "cr.estimated_hours = cr.estimated_hours - pr.estimated_hours, "
+		+ "cr.actual_hours = cr.actual_hours - pr.actual_hours "
+		+ "WHERE pc.project_id = ?"),
+
+	ROLLUP_RECOMPUTE_PROJECT(""
+		+ "INSERT INTO " + Table.PROJECT_ROLLUP + " "
+		+ "(project_id, material_count, material_cost, step_count, estimated_hours, actual_hours) "
+		+ "SELECT p.project_id, "
+		+ "(SELECT COUNT(*) FROM " + Table.MATERIAL + " m WHERE m.project_id = p.project_id), "
+		+ "(SELECT COALESCE(SUM(m.num_required * m.cost), 0) FROM " + Table.MATERIAL + " m WHERE m.project_id = p.project_id), "
+		+ "(SELECT COUNT(*) FROM " + Table.STEP + " s WHERE s.project_id = p.project_id), "
+		+ "COALESCE(p.estimated_hours, 0), COALESCE(p.actual_hours, 0) "
+		+ "FROM " + Table.PROJECT + " p WHERE p.project_id = ? "
+		+ "ON DUPLICATE KEY UPDATE material_count = VALUES(material_count), "
+		+ "material_cost = VALUES(material_cost), step_count = VALUES(step_count), "
+		+ "estimated_hours = VALUES(estimated_hours), actual_hours = VALUES(actual_hours)"),
+
+	ROLLUP_ADD_TO_CATEGORIES(""
+		+ "INSERT INTO " + Table.CATEGORY_ROLLUP + " "
+		+ "(category_id, project_count, material_count, material_cost, step_count, estimated_hours, actual_hours) "
+		+ "SELECT pc.category_id, 1, pr.material_count, pr.material_cost, pr.step_count, "
+		+ "pr.estimated_hours, pr.actual_hours "
+		+ "FROM " + Table.PROJECT_CATEGORY + " pc "
+		+ "JOIN " + Table.PROJECT_ROLLUP + " pr ON pr.project_id = pc.project_id "
+		+ "WHERE pc.project_id = ? "
+		+ "ON DUPLICATE KEY UPDATE project_count = project_count + VALUES(project_count), "
+		+ "material_count = material_count + VALUES(material_count), "
+		+ "material_cost = material_cost + VALUES(material_cost), "
+		+ "step_count = step_count + VALUES(step_count), "
+		+ "estimated_hours = estimated_hours + VALUES(estimated_hours), "
+		+ "actual_hours = actual_hours + VALUES(actual_hours)"),
+
+	/* Full rebuild of both rollup tables, for writes that bypass ProjectDao such as bulk imports. */
+	ROLLUP_CLEAR_CATEGORIES(
+		"DELETE FROM " + Table.CATEGORY_ROLLUP),
+
+	ROLLUP_CLEAR_PROJECTS(
+		"DELETE FROM " + Table.PROJECT_ROLLUP),
+
+	ROLLUP_REBUILD_PROJECTS(""
+		+ "INSERT INTO " + Table.PROJECT_ROLLUP + " "
+		+ "(project_id, material_count, material_cost, step_count, estimated_hours, actual_hours) "
+		+ "SELECT p.project_id, COALESCE(m.material_count, 0), COALESCE(m.material_cost, 0), "
+		+ "COALESCE(s.step_count, 0), COALESCE(p.estimated_hours, 0), COALESCE(p.actual_hours, 0) "
+		+ "FROM " + Table.PROJECT + " p "
+		+ "LEFT JOIN (SELECT project_id, COUNT(*) AS material_count, SUM(num_required * cost) AS material_cost "
+		+ "FROM " + Table.MATERIAL + " GROUP BY project_id) m ON m.project_id = p.project_id "
+		+ "LEFT JOIN (SELECT project_id, COUNT(*) AS step_count FROM " + Table.STEP + " "
+		+ "GROUP BY project_id) s ON s.project_id = p.project_id"),
+
+	ROLLUP_REBUILD_CATEGORIES(""
+		+ "INSERT INTO " + Table.CATEGORY_ROLLUP + " "
+		+ "(category_id, project_count, material_count, material_cost, step_count, estimated_hours, actual_hours) "
+		+ "SELECT c.category_id, COUNT(pr.project_id), COALESCE(SUM(pr.material_count), 0), "
+		+ "COALESCE(SUM(pr.material_cost), 0), COALESCE(SUM(pr.step_count), 0), "
+		+ "COALESCE(SUM(pr.estimated_hours), 0), COALESCE(SUM(pr.actual_hours), 0) "
+		+ "FROM " + Table.CATEGORY + " c "
+		+ "LEFT JOIN " + Table.PROJECT_CATEGORY + " pc ON pc.category_id = c.category_id "
+		+ "LEFT JOIN " + Table.PROJECT_ROLLUP + " pr ON pr.project_id = pc.project_id "
+		+ "GROUP BY c.category_id"),
+
+	PROJECT_ROLLUP_SELECT(
+		"SELECT * FROM " + Table.PROJECT_ROLLUP + " WHERE project_id = ?"),
+
+	CATEGORY_ROLLUP_SELECT(
+		"SELECT * FROM " + Table.CATEGORY_ROLLUP + " WHERE category_id = ?");
+	// @formatter:on
+
+	/* The table names used in the statements above */
+	interface Table {
+		String CATEGORY = "category";
+		String CATEGORY_ROLLUP = "category_rollup";
+		String MATERIAL = "material";
+		String PROJECT = "project";
+		String PROJECT_CATEGORY = "project_category";
+		String PROJECT_ROLLUP = "project_rollup";
+		String STEP = "step";
+	}
+
+	// IN-list sizes are powers of two up to this value, see ProjectDao.queryInChunks
+	static final int MAX_IN_LIST_SIZE = 1024;
+
+	// Project UPDATE statements, one per combination of changed columns, indexed by column bit mask
+	private static final String[] PROJECT_UPDATES = new String[1 << ProjectColumn.values().length];
+
+	// Projection page queries, [0] for the first page and [1] for later pages, indexed by column bit mask
+	private static final String[][] PROJECT_SUMMARY_PAGES = new String[2][1 << ProjectColumn.values().length];
+
+	// Step reorder statements, indexed by log2 of the number of steps they set
+	private static final String[] STEP_REORDERS = new String[Integer.numberOfTrailingZeros(MAX_IN_LIST_SIZE) + 1];
+
+	private final String sql;
+	private final String[] inListSql;
+
+	private ProjectSql(String sql) {
+		this(sql, false);
+	}
+
+	private ProjectSql(String sql, boolean inList) {
+		this.sql = sql;
+		this.inListSql = inList ? new String[Integer.numberOfTrailingZeros(MAX_IN_LIST_SIZE) + 1] : null;
+	}
+
+	String sql() {
+		if(inListSql != null) {
+			throw new IllegalStateException(name() + " is an IN-list template; call sql(int)");
+		}
+
+		return sql;
+	}
+
+	/* Returns the IN-list statement with the given number of placeholders, which must be a power
+	 * of two no larger than MAX_IN_LIST_SIZE.
+	 */
+	String sql(int placeholderCount) {
+		if(inListSql == null) {
+			throw new IllegalStateException(name() + " is not an IN-list template");
+		}
+
+		if(Integer.bitCount(placeholderCount) != 1 || placeholderCount > MAX_IN_LIST_SIZE) {
+			throw new IllegalArgumentException("IN-list size must be a power of two up to "
+					+ MAX_IN_LIST_SIZE + ", was " + placeholderCount);
+		}
+
+		int slot = Integer.numberOfTrailingZeros(placeholderCount);
+		String formatted = inListSql[slot];
+
+		if(formatted == null) {
+			formatted = String.format(sql, String.join(", ", Collections.nCopies(placeholderCount, "?")));
+			inListSql[slot] = formatted;
+		}
+
+		return formatted;
+	}
+
+	/* Returns the UPDATE statement that sets the given project columns, in ProjectColumn order,
+	 * followed by the project ID in the WHERE clause. There are only a few dozen combinations, so
+	 * each one is built once and then reused like the fixed statements above.
+	 */
+	static String projectUpdate(Set<ProjectColumn> columns) {
+		if(columns.isEmpty() || columns.contains(ProjectColumn.PROJECT_ID)) {
+			throw new IllegalArgumentException("Cannot build a project update for columns " + columns);
+		}
+
+		int mask = 0;
+
+		for(ProjectColumn column : columns) {
+			mask |= 1 << column.ordinal();
+		}
+
+		String sql = PROJECT_UPDATES[mask];
+
+		if(sql == null) {
+			StringJoiner assignments = new StringJoiner(", ");
+
+			for(ProjectColumn column : ProjectColumn.values()) {
+				if(columns.contains(column)) {
+					assignments.add(column.getColumnName() + " = ?");
+				}
+			}
+
+			sql = "UPDATE " + Table.PROJECT + " SET " + assignments + " WHERE project_id = ?";
+			PROJECT_UPDATES[mask] = sql;
+		}
+
+		return sql;
+	}
+
+	/* Returns an UPDATE that sets the step_order of stepCount steps of one project in a single
+	 * statement. The parameters are stepCount (step_id, step_order) pairs for the CASE, then the
+	 * project ID, then the stepCount step IDs again for the IN list. Like the IN-list templates,
+	 * stepCount must be a power of two up to MAX_IN_LIST_SIZE; pad by repeating the last step.
+	 */
+	static String stepReorder(int stepCount) {
+		if(Integer.bitCount(stepCount) != 1 || stepCount > MAX_IN_LIST_SIZE) {
+			throw new IllegalArgumentException("Step reorder size must be a power of two up to "
+					+ MAX_IN_LIST_SIZE + ", was " + stepCount);
+		}
+
+		int slot = Integer.numberOfTrailingZeros(stepCount);
+		String sql = STEP_REORDERS[slot];
+
+		if(sql == null) {
+			sql = "UPDATE " + Table.STEP + " SET step_order = CASE step_id "
+					+ String.join(" ", Collections.nCopies(stepCount, "WHEN ? THEN ?"))
+					+ " END WHERE project_id = ? AND step_id IN ("
+					+ String.join(", ", Collections.nCopies(stepCount, "?")) + ")";
+			STEP_REORDERS[slot] = sql;
+		}
+
+		return sql;
+	}
+
+	/* Returns a keyset page query like PROJECT_FIRST_PAGE / PROJECT_NEXT_PAGE that selects only the
+	 * given columns. The ID and name are always selected because the pages are ordered by them;
+	 * with just those two, the (project_name, project_id) index covers the query and the table
+	 * rows are never read.
+	 */
+	static String projectSummaryPage(Set<ProjectColumn> columns, boolean firstPage) {
+		int mask = (1 << ProjectColumn.PROJECT_ID.ordinal()) | (1 << ProjectColumn.PROJECT_NAME.ordinal());
+
+		for(ProjectColumn column : columns) {
+			mask |= 1 << column.ordinal();
+		}
+
+		String[] pages = PROJECT_SUMMARY_PAGES[firstPage ? 0 : 1];
+		String sql = pages[mask];
+
+		if(sql == null) {
+			StringJoiner selected = new StringJoiner(", ");
+
+			for(ProjectColumn column : ProjectColumn.values()) {
+				if((mask & (1 << column.ordinal())) != 0) {
+					selected.add(column.getColumnName());
+				}
+			}
+
+			sql = "SELECT " + selected + " FROM " + Table.PROJECT + " "
+					+ (firstPage ? "" : "WHERE (project_name, project_id) > (?, ?) ")
+					+ "ORDER BY project_name, project_id LIMIT ?";
+			pages[mask] = sql;
+		}
+
+		return sql;
+	}
+}
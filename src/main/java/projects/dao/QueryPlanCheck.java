@@ -0,0 +1,148 @@
+package projects.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import projects.entity.ProjectSummary;
+import projects.exception.DbException;
+
+/* QueryPlanCheck runs EXPLAIN on the hot ProjectDao queries and fails when one of them no longer
+ * uses the index it was given (see db/migration/V2__hot_query_indexes.sql), or has to sort rows
+ * that should come back in index order. It catches a dropped or renamed index, or a query edit
+ * that stops the optimizer from using one, before it shows up as a slow page in production.
+ *
+ * On tables with only a few rows MySQL often prefers a full scan, whatever indexes exist, so a
+ * query is skipped while its table has fewer than MIN_TABLE_ROWS rows. Run the check against a
+ * database with a realistic amount of data. It only runs on MySQL.
+ */
+public class QueryPlanCheck {
+	private static final int MIN_TABLE_ROWS = 1000;
+
+	// @formatter:off
+	private static final List<Expectation> EXPECTATIONS = List.of(
+		new Expectation(ProjectSql.PROJECT_FIRST_PAGE.name(), ProjectSql.PROJECT_FIRST_PAGE.sql(),
+			ProjectSql.Table.PROJECT, ProjectSql.Table.PROJECT, "idx_project_name_id", true, 100),
+		new Expectation(ProjectSql.PROJECT_NEXT_PAGE.name(), ProjectSql.PROJECT_NEXT_PAGE.sql(),
+			ProjectSql.Table.PROJECT, ProjectSql.Table.PROJECT, "idx_project_name_id", true, "m", 0, 100),
+		new Expectation("project listing page", ProjectSql.projectSummaryPage(ProjectSummary.LISTING_COLUMNS, false),
+			ProjectSql.Table.PROJECT, ProjectSql.Table.PROJECT, "idx_project_name_id", true, "m", 0, 100),
+		new Expectation(ProjectSql.STEP_SELECT_BY_PROJECT.name(), ProjectSql.STEP_SELECT_BY_PROJECT.sql(),
+			ProjectSql.Table.STEP, ProjectSql.Table.STEP, "idx_step_project_order", true, 1),
+		new Expectation(ProjectSql.STEP_SELECT_BY_PROJECTS.name(), ProjectSql.STEP_SELECT_BY_PROJECTS.sql(4),
+			ProjectSql.Table.STEP, ProjectSql.Table.STEP, "idx_step_project_order", true, 1, 2, 3, 4),
+		new Expectation(ProjectSql.STEP_BATCH.name(), ProjectSql.STEP_BATCH.sql(),
+			ProjectSql.Table.STEP, ProjectSql.Table.STEP, "idx_step_project_order", true, 1, 100),
+		new Expectation(ProjectSql.PROJECT_CATEGORY_SELECT_BY_PROJECT.name(), ProjectSql.PROJECT_CATEGORY_SELECT_BY_PROJECT.sql(),
+			ProjectSql.Table.PROJECT_CATEGORY, ProjectSql.Table.PROJECT_CATEGORY, "project_id", false, 1),
+		new Expectation(ProjectSql.MATERIAL_SELECT_BY_PROJECT.name(), ProjectSql.MATERIAL_SELECT_BY_PROJECT.sql(),
+			ProjectSql.Table.MATERIAL, ProjectSql.Table.MATERIAL, "project_id", false, 1)
+	);
+	// @formatter:on
+
+	/* Returns one report line per query and throws a DbException listing every query whose plan
+	 * does not use the expected index.
+	 */
+	public List<String> verify() {
+		List<String> report = new ArrayList<>();
+		List<String> failures = new ArrayList<>();
+
+		try(Connection conn = DbConnection.getConnection()) {
+			if(!"MySQL".equals(conn.getMetaData().getDatabaseProductName())) {
+				report.add("Query plan check skipped: it only runs on MySQL");
+				return report;
+			}
+
+			for(Expectation expectation : EXPECTATIONS) {
+				String result = check(conn, expectation);
+				report.add(result);
+
+				if(result.startsWith("FAIL")) {
+					failures.add(result);
+				}
+			}
+		}
+		catch(SQLException e) {
+			throw new DbException(e);
+		}
+
+		if(!failures.isEmpty()) {
+			throw new DbException("Hot queries lost their index:\n  " + String.join("\n  ", failures));
+		}
+
+		return report;
+	}
+
+	private String check(Connection conn, Expectation expectation) throws SQLException {
+		if(countRows(conn, expectation.table) < MIN_TABLE_ROWS) {
+			return "SKIP " + expectation.name + ": " + expectation.table + " has fewer than " + MIN_TABLE_ROWS + " rows";
+		}
+
+		try(PreparedStatement stmt = conn.prepareStatement("EXPLAIN " + expectation.sql)) {
+			for(int index = 0; index < expectation.parameters.length; index++) {
+				stmt.setObject(index + 1, expectation.parameters[index]);
+			}
+
+			try(ResultSet rs = stmt.executeQuery()) {
+				while(rs.next()) {
+					if(!expectation.alias.equalsIgnoreCase(rs.getString("table"))) {
+						continue;
+					}
+
+					String key = rs.getString("key");
+					String extra = rs.getString("Extra");
+					String plan = "type=" + rs.getString("type") + ", key=" + key + ", extra=" + extra;
+
+					if(!expectation.key.equalsIgnoreCase(key)) {
+						return "FAIL " + expectation.name + ": expected key " + expectation.key + " on "
+								+ expectation.alias + ", plan is " + plan;
+					}
+
+					if(expectation.ordered && extra != null && extra.toLowerCase(Locale.ROOT).contains("filesort")) {
+						return "FAIL " + expectation.name + ": rows are sorted instead of read in index order, plan is " + plan;
+					}
+
+					return "OK   " + expectation.name + ": " + plan;
+				}
+			}
+		}
+
+		return "FAIL " + expectation.name + ": the plan has no row for table " + expectation.alias;
+	}
+
+	// Counts rows up to MIN_TABLE_ROWS, which is all the check needs to know
+	private long countRows(Connection conn, String table) throws SQLException {
+		String sql = "SELECT COUNT(*) FROM (SELECT 1 FROM " + table + " LIMIT " + MIN_TABLE_ROWS + ") t";
+
+		try(PreparedStatement stmt = conn.prepareStatement(sql); ResultSet rs = stmt.executeQuery()) {
+			rs.next();
+			return rs.getLong(1);
+		}
+	}
+
+	/* The index a query must use on one of its tables. Ordered queries must also avoid a filesort. */
+	private static class Expectation {
+		private final String name;
+		private final String sql;
+		private final String table;
+		private final String alias;
+		private final String key;
+		private final boolean ordered;
+		private final Object[] parameters;
+
+		private Expectation(String name, String sql, String table, String alias, String key, boolean ordered,
+				Object... parameters) {
+			this.name = name;
+			this.sql = sql;
+			this.table = table;
+			this.alias = alias;
+			this.key = key;
+			this.ordered = ordered;
+			this.parameters = parameters;
+		}
+	}
+}
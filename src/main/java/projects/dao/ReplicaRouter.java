@@ -0,0 +1,167 @@
+package projects.dao;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* ReplicaRouter hands out connections to read replicas for DbConnection.getReadConnection. Each
+ * replica has its own ConnectionPool. Requests go round-robin over the replicas, skipping any
+ * that are down or further behind the primary than the lag bound. If every replica is skipped
+ * it returns null and the read goes to the primary.
+ *
+ * A replica's lag is measured at most once per LAG_CHECK_INTERVAL_MILLIS, on a connection that
+ * was borrowed for a read anyway, with SHOW REPLICA STATUS. A server that reports no replication
+ * status (for example a second local instance standing in for a replica) counts as up to date;
+ * one whose replication has stopped counts as infinitely far behind.
+ *
+ * Seconds_Behind_Source is a whole number of seconds, so a reported 0 can mean up to 999 ms. The
+ * lag is taken as the top of that range, which keeps the bound honest: with the default bound of
+ * 1000 ms only a replica reporting 0 is used, and a bound below 999 ms sends every read to the
+ * primary. Between checks the lag can grow, so DbConnection.getReplicaStalenessMillis() adds the
+ * check interval on top.
+ */
+class ReplicaRouter {
+	static final long LAG_CHECK_INTERVAL_MILLIS = 1_000;
+
+	private final List<Replica> replicas;
+	private final long maxLagMillis;
+	private final AtomicInteger next = new AtomicInteger();
+
+	ReplicaRouter(List<Replica> replicas, long maxLagMillis) {
+		this.replicas = List.copyOf(replicas);
+		this.maxLagMillis = maxLagMillis;
+	}
+
+	/* Returns a connection to a replica that is within the lag bound, or null if there is none. */
+	Connection getConnection() {
+		int count = replicas.size();
+
+		if(count == 0) {
+			return null;
+		}
+
+		int start = Math.floorMod(next.getAndIncrement(), count);
+
+		for(int offset = 0; offset < count; offset++) {
+			Connection conn = replicas.get((start + offset) % count).tryConnection(maxLagMillis);
+
+			if(Objects.nonNull(conn)) {
+				return conn;
+			}
+		}
+
+		return null;
+	}
+
+	/* One replica endpoint and the last lag measured on it */
+	static class Replica {
+		private final String name;
+		private final ConnectionPool pool;
+		private final AtomicLong checkedAt = new AtomicLong();
+		private volatile long lagMillis;
+
+		Replica(String name, ConnectionPool pool) {
+			this.name = name;
+			this.pool = pool;
+		}
+
+		/* Borrows a connection, measuring the lag on it if the last measurement is too old.
+		 * Returns null if the replica is down or too far behind.
+		 */
+		private Connection tryConnection(long maxLagMillis) {
+			long now = System.currentTimeMillis();
+			long lastCheck = checkedAt.get();
+			boolean checkDue = now - lastCheck >= LAG_CHECK_INTERVAL_MILLIS && checkedAt.compareAndSet(lastCheck, now);
+
+			if(!checkDue && lagMillis > maxLagMillis) {
+				return null;
+			}
+
+			Connection conn;
+
+			try {
+				conn = pool.getConnection();
+			}
+			catch(RuntimeException e) {
+				// Reported when the replica goes down, not on every retry while it stays down
+				if(lagMillis != Long.MAX_VALUE) {
+					System.err.println("Replica " + name + " is unavailable: " + e.getMessage());
+				}
+
+				lagMillis = Long.MAX_VALUE;
+				checkedAt.set(now);
+				return null;
+			}
+
+			if(checkDue) {
+				lagMillis = measureLag(conn);
+			}
+
+			if(lagMillis > maxLagMillis) {
+				closeQuietly(conn);
+				return null;
+			}
+
+			return conn;
+		}
+
+		private long measureLag(Connection conn) {
+			try(Statement stmt = conn.createStatement()) {
+				ResultSet rs;
+
+				// MySQL before 8.0.22 only knows the old name of the statement
+				try {
+					rs = stmt.executeQuery("SHOW REPLICA STATUS");
+				}
+				catch(SQLException e) {
+					rs = stmt.executeQuery("SHOW SLAVE STATUS");
+				}
+
+				try(ResultSet status = rs) {
+					if(!status.next()) {
+						return 0;
+					}
+
+					int column = findColumn(status.getMetaData(), "Seconds_Behind_Source", "Seconds_Behind_Master");
+
+					if(column == 0) {
+						return 0;
+					}
+
+					long seconds = status.getLong(column);
+					return status.wasNull() ? Long.MAX_VALUE : seconds * 1000 + 999;
+				}
+			}
+			catch(SQLException e) {
+				return Long.MAX_VALUE;
+			}
+		}
+
+		private static int findColumn(ResultSetMetaData meta, String... labels) throws SQLException {
+			for(String label : labels) {
+				for(int column = 1; column <= meta.getColumnCount(); column++) {
+					if(label.equalsIgnoreCase(meta.getColumnLabel(column))) {
+						return column;
+					}
+				}
+			}
+
+			return 0;
+		}
+
+		private static void closeQuietly(Connection conn) {
+			try {
+				conn.close();
+			}
+			catch(SQLException e) {
+				// The pool discards connections it cannot reset
+			}
+		}
+	}
+}
@@ -0,0 +1,356 @@
+package projects.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import projects.entity.Step;
+import projects.exception.DbException;
+import projects.metrics.Metrics;
+import provided.util.DaoBase;
+
+/* StepSequencer orders the steps of a project with gaps between their step_order values: the
+ * steps of a project are numbered GAP, 2 * GAP, 3 * GAP and so on. A step is inserted or moved
+ * between two others by giving it the value halfway between theirs, which writes that one row
+ * and never renumbers its neighbours. Deleting a step just leaves a wider gap.
+ *
+ * When two neighbours have no value left between them (after about ten insertions at the same
+ * spot), the project's steps are resequenced to even gaps again with one batched UPDATE, and the
+ * insertion continues. reorderSteps uses the same statement to put a whole project's steps in a
+ * new order at once.
+ *
+ * Every write locks the project row first, so concurrent writers to the steps of one project
+ * take turns instead of computing the same step_order. Steps are read in step_order order, as
+ * ProjectDao does.
+ */
+public class StepSequencer extends DaoBase {
+	// The distance between neighbouring step_order values after resequencing
+	public static final int GAP = 1024;
+
+	// Above this value an appended step would overflow the INT column, so the project is resequenced
+	static final int MAX_ORDER = Integer.MAX_VALUE - GAP;
+
+	/* Adds a step after the last step of the project. */
+	public Step appendStep(Integer projectId, String stepText) {
+		return inTransaction(conn -> {
+			lockProject(conn, projectId);
+			Integer last = queryInt(conn, ProjectSql.STEP_MAX_ORDER, projectId);
+
+			if(Objects.nonNull(last) && last > MAX_ORDER) {
+				resequence(conn, projectId);
+				last = queryInt(conn, ProjectSql.STEP_MAX_ORDER, projectId);
+			}
+
+			return insertStep(conn, projectId, stepText, Objects.isNull(last) ? GAP : last + GAP);
+		});
+	}
+
+	/* Inserts a step right after the step with ID afterStepId, or first if afterStepId is null. */
+	public Step insertStepAfter(Integer projectId, Integer afterStepId, String stepText) {
+		return inTransaction(conn -> {
+			lockProject(conn, projectId);
+			int order = slotAfter(conn, projectId, afterStepId, null);
+			return insertStep(conn, projectId, stepText, order);
+		});
+	}
+
+	/* Moves a step right after the step with ID afterStepId, or first if afterStepId is null. Only
+	 * the moved step is written, unless the project has to be resequenced first.
+	 */
+	public void moveStepAfter(Integer projectId, Integer stepId, Integer afterStepId) {
+		if(Objects.equals(stepId, afterStepId)) {
+			throw new IllegalArgumentException("Step " + stepId + " cannot be moved after itself");
+		}
+
+		inTransaction(conn -> {
+			lockProject(conn, projectId);
+			requireOrder(conn, projectId, stepId);
+			int order = slotAfter(conn, projectId, afterStepId, stepId);
+
+			try(PreparedStatement stmt = conn.prepareStatement(ProjectSql.STEP_MOVE.sql())) {
+				setParameter(stmt, 1, order, Integer.class);
+				setParameter(stmt, 2, stepId, Integer.class);
+				stmt.executeUpdate();
+			}
+
+			return null;
+		});
+	}
+
+	/* Puts the steps of a project in the given order. The list must name every step of the project
+	 * exactly once. The new step_order values are written with one UPDATE per MAX_IN_LIST_SIZE
+	 * steps (see writeOrder).
+	 */
+	public void reorderSteps(Integer projectId, List<Integer> stepIds) {
+		inTransaction(conn -> {
+			lockProject(conn, projectId);
+
+			Set<Integer> current = new HashSet<>(fetchStepIds(conn, projectId));
+			Set<Integer> requested = new HashSet<>(stepIds);
+
+			if(requested.size() != stepIds.size() || !requested.equals(current)) {
+				throw new DbException("The new order must list each of the " + current.size()
+						+ " steps of project " + projectId + " exactly once");
+			}
+
+			writeOrder(conn, projectId, stepIds);
+			return null;
+		});
+	}
+
+	/* Deletes a step. The remaining steps keep their step_order values. */
+	public boolean deleteStep(Integer projectId, Integer stepId) {
+		return inTransaction(conn -> {
+			lockProject(conn, projectId);
+			ProjectRollups.beforeChange(conn, List.of(projectId));
+
+			try(PreparedStatement stmt = conn.prepareStatement(ProjectSql.STEP_DELETE.sql())) {
+				setParameter(stmt, 1, stepId, Integer.class);
+				setParameter(stmt, 2, projectId, Integer.class);
+
+				boolean deleted = stmt.executeUpdate() == 1;
+				ProjectRollups.afterChange(conn, List.of(projectId));
+				return deleted;
+			}
+		});
+	}
+
+	/* Renumbers the steps of a project to GAP, 2 * GAP, ... keeping their current order. */
+	public void resequence(Integer projectId) {
+		inTransaction(conn -> {
+			lockProject(conn, projectId);
+			resequence(conn, projectId);
+			return null;
+		});
+	}
+
+	private void resequence(Connection conn, Integer projectId) throws SQLException {
+		writeOrder(conn, projectId, fetchStepIds(conn, projectId));
+	}
+
+	/* Returns a step_order that places a step right after afterStepId (or first), skipping the step
+	 * being moved. Resequences the project if there is no free value in that spot.
+	 */
+	private int slotAfter(Connection conn, Integer projectId, Integer afterStepId, Integer movingStepId)
+			throws SQLException {
+		for(int attempt = 0; ; attempt++) {
+			int previous = Objects.isNull(afterStepId) ? 0 : requireOrder(conn, projectId, afterStepId);
+			Integer slot = slotBetween(previous, nextOrder(conn, projectId, previous, movingStepId));
+
+			if(Objects.nonNull(slot)) {
+				return slot;
+			}
+
+			if(attempt > 0) {
+				throw new DbException("No step_order is free after step " + afterStepId + " in project " + projectId);
+			}
+
+			resequence(conn, projectId);
+		}
+	}
+
+	/* Returns the step_order halfway between two neighbours, or GAP after the last step (next is
+	 * null). Returns null when there is no free value, and the project has to be resequenced.
+	 */
+	static Integer slotBetween(int previous, Integer next) {
+		if(Objects.isNull(next)) {
+			return previous <= MAX_ORDER ? previous + GAP : null;
+		}
+
+		return next - previous >= 2 ? previous + (next - previous) / 2 : null;
+	}
+
+	private Integer nextOrder(Connection conn, Integer projectId, int order, Integer excludedStepId)
+			throws SQLException {
+		try(PreparedStatement stmt = conn.prepareStatement(ProjectSql.STEP_NEXT_ORDER.sql())) {
+			setParameter(stmt, 1, projectId, Integer.class);
+			setParameter(stmt, 2, order, Integer.class);
+			setParameter(stmt, 3, Objects.isNull(excludedStepId) ? 0 : excludedStepId, Integer.class);
+			return readInt(stmt);
+		}
+	}
+
+	// Returns the step_order of a step, which must belong to the project
+	private int requireOrder(Connection conn, Integer projectId, Integer stepId) throws SQLException {
+		try(PreparedStatement stmt = conn.prepareStatement(ProjectSql.STEP_ORDER_SELECT.sql())) {
+			setParameter(stmt, 1, stepId, Integer.class);
+			setParameter(stmt, 2, projectId, Integer.class);
+
+			Integer order = readInt(stmt);
+
+			if(Objects.isNull(order)) {
+				throw new DbException("Step with ID=" + stepId + " does not exist in project " + projectId + ".");
+			}
+
+			return order;
+		}
+	}
+
+	private List<Integer> fetchStepIds(Connection conn, Integer projectId) throws SQLException {
+		try(PreparedStatement stmt = conn.prepareStatement(ProjectSql.STEP_IDS_BY_PROJECT.sql())) {
+			setParameter(stmt, 1, projectId, Integer.class);
+
+			try(ResultSet rs = stmt.executeQuery()) {
+				List<Integer> stepIds = new ArrayList<>();
+
+				while(rs.next()) {
+					stepIds.add(rs.getInt(1));
+				}
+
+				return stepIds;
+			}
+		}
+	}
+
+	/* Gives the steps the step_order values GAP, 2 * GAP, ... in list order, MAX_IN_LIST_SIZE steps
+	 * per UPDATE. The full chunks share one prepared statement and are sent as one JDBC batch; the
+	 * remaining steps, if any, are padded to a power of two by repeating the last one, like
+	 * ProjectDao's IN lists, and sent as one more statement. A project of up to MAX_IN_LIST_SIZE
+	 * steps is therefore written with a single UPDATE.
+	 */
+	void writeOrder(Connection conn, Integer projectId, List<Integer> stepIds) throws SQLException {
+		int chunkSize = ProjectSql.MAX_IN_LIST_SIZE;
+		int fullChunks = stepIds.size() / chunkSize;
+
+		if(fullChunks > 0) {
+			try(PreparedStatement stmt = conn.prepareStatement(ProjectSql.stepReorder(chunkSize))) {
+				for(int chunk = 0; chunk < fullChunks; chunk++) {
+					bindOrder(stmt, projectId, stepIds, chunk * chunkSize, chunkSize, chunkSize);
+					stmt.addBatch();
+				}
+
+				stmt.executeBatch();
+			}
+		}
+
+		int from = fullChunks * chunkSize;
+		int remaining = stepIds.size() - from;
+
+		if(remaining > 0) {
+			int size = Integer.highestOneBit(remaining * 2 - 1);
+
+			try(PreparedStatement stmt = conn.prepareStatement(ProjectSql.stepReorder(size))) {
+				bindOrder(stmt, projectId, stepIds, from, remaining, size);
+				stmt.executeUpdate();
+			}
+		}
+	}
+
+	// Binds count steps starting at from to a stepReorder(size) statement, repeating the last to fill it
+	private void bindOrder(PreparedStatement stmt, Integer projectId, List<Integer> stepIds, int from, int count,
+			int size) throws SQLException {
+		int parameter = 1;
+
+		for(int index = 0; index < size; index++) {
+			int position = from + Math.min(index, count - 1);
+			setParameter(stmt, parameter++, stepIds.get(position), Integer.class);
+			setParameter(stmt, parameter++, (position + 1) * GAP, Integer.class);
+		}
+
+		setParameter(stmt, parameter++, projectId, Integer.class);
+
+		for(int index = 0; index < size; index++) {
+			setParameter(stmt, parameter++, stepIds.get(from + Math.min(index, count - 1)), Integer.class);
+		}
+	}
+
+	private Step insertStep(Connection conn, Integer projectId, String stepText, int order) throws SQLException {
+		ProjectRollups.beforeChange(conn, List.of(projectId));
+
+		Step step = new Step();
+		step.setProjectId(projectId);
+		step.setStepText(stepText);
+		step.setStepOrder(order);
+
+		try(PreparedStatement stmt = conn.prepareStatement(ProjectSql.STEP_INSERT.sql(), Statement.RETURN_GENERATED_KEYS)) {
+			setParameter(stmt, 1, projectId, Integer.class);
+			setParameter(stmt, 2, stepText, String.class);
+			setParameter(stmt, 3, order, Integer.class);
+			stmt.executeUpdate();
+
+			try(ResultSet keys = stmt.getGeneratedKeys()) {
+				if(keys.next()) {
+					step.setStepId(keys.getInt(1));
+				}
+			}
+		}
+
+		ProjectRollups.afterChange(conn, List.of(projectId));
+		return step;
+	}
+
+	// Locks the project row until the transaction ends
+	private void lockProject(Connection conn, Integer projectId) throws SQLException {
+		if(Objects.isNull(queryInt(conn, ProjectSql.PROJECT_LOCK, projectId))) {
+			throw new DbException("Project with ID=" + projectId + " does not exist.");
+		}
+	}
+
+	private Integer queryInt(Connection conn, ProjectSql query, Integer projectId) throws SQLException {
+		try(PreparedStatement stmt = conn.prepareStatement(query.sql())) {
+			setParameter(stmt, 1, projectId, Integer.class);
+			return readInt(stmt);
+		}
+	}
+
+	// Returns the first column of the first row, or null if there is no row or the value is NULL
+	private Integer readInt(PreparedStatement stmt) throws SQLException {
+		try(ResultSet rs = stmt.executeQuery()) {
+			if(rs.next()) {
+				int value = rs.getInt(1);
+				return rs.wasNull() ? null : value;
+			}
+
+			return null;
+		}
+	}
+
+	@Override
+	protected void commitTransaction(Connection conn) throws SQLException {
+		super.commitTransaction(conn);
+		Metrics.get().commit();
+		DbConnection.recordWrite();
+	}
+
+	@Override
+	protected void rollbackTransaction(Connection conn) throws SQLException {
+		Metrics.get().rollback();
+		super.rollbackTransaction(conn);
+	}
+
+	@FunctionalInterface
+	private interface TransactionWork<R> {
+		R apply(Connection conn) throws SQLException;
+	}
+
+	private <R> R inTransaction(TransactionWork<R> work) {
+		try(Connection conn = DbConnection.getConnection()) {
+			startTransaction(conn);
+
+			try {
+				R result = work.apply(conn);
+				commitTransaction(conn);
+				return result;
+			}
+			catch(DbException e) {
+				// Already describes the problem, such as a missing project or step
+				rollbackTransaction(conn);
+				throw e;
+			}
+			catch(Exception e) {
+				rollbackTransaction(conn);
+				throw new DbException(e);
+			}
+		}
+		catch(SQLException e) {
+			throw new DbException(e);
+		}
+	}
+}
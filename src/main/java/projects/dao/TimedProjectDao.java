@@ -0,0 +1,143 @@
+package projects.dao;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import projects.entity.Category;
+import projects.entity.CategoryRollup;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.ProjectBatch;
+import projects.entity.ProjectColumn;
+import projects.entity.ProjectRollup;
+import projects.entity.ProjectSummary;
+import projects.entity.Step;
+import projects.metrics.Metrics;
+
+/* TimedProjectDao records the latency and failures of every ProjectDao operation under
+ * "dao.<method>" in Metrics. The DAO itself only counts rows, commits and rollbacks, so the timing
+ * lives here in one place instead of around each method body. insertProject and the connection
+ * overloads used inside other transactions are not timed separately.
+ */
+public class TimedProjectDao extends ProjectDao {
+	public TimedProjectDao() {
+		super();
+	}
+
+	public TimedProjectDao(boolean aggregateLoad) {
+		super(aggregateLoad);
+	}
+
+	@Override
+	public List<Project> insertProjects(List<Project> projects) {
+		return Metrics.get().time("dao.insertProjects", () -> super.insertProjects(projects));
+	}
+
+	@Override
+	public List<Project> fetchAllProjects() {
+		return Metrics.get().time("dao.fetchAllProjects", () -> super.fetchAllProjects());
+	}
+
+	@Override
+	public void forEachProject(Consumer<? super Project> action) {
+		Metrics.get().time("dao.forEachProject", () -> super.forEachProject(action));
+	}
+
+	@Override
+	public void forEachStep(Consumer<? super Step> action) {
+		Metrics.get().time("dao.forEachStep", () -> super.forEachStep(action));
+	}
+
+	@Override
+	public List<Integer> fetchProjectIds() {
+		return Metrics.get().time("dao.fetchProjectIds", () -> super.fetchProjectIds());
+	}
+
+	@Override
+	public Map<Integer, Long> fetchProjectDigests() {
+		return Metrics.get().time("dao.fetchProjectDigests", () -> super.fetchProjectDigests());
+	}
+
+	@Override
+	public List<Project> fetchProjectPage(String afterProjectName, Integer afterProjectId, int limit) {
+		return Metrics.get().time("dao.fetchProjectPage",
+				() -> super.fetchProjectPage(afterProjectName, afterProjectId, limit));
+	}
+
+	@Override
+	public List<ProjectSummary> fetchProjectSummaries(Set<ProjectColumn> columns, String afterProjectName,
+			Integer afterProjectId, int limit) {
+		return Metrics.get().time("dao.fetchProjectSummaries",
+				() -> super.fetchProjectSummaries(columns, afterProjectName, afterProjectId, limit));
+	}
+
+	@Override
+	public ProjectBatch fetchProjectBatch(int afterProjectId, int limit) {
+		return Metrics.get().time("dao.fetchProjectBatch", () -> super.fetchProjectBatch(afterProjectId, limit));
+	}
+
+	@Override
+	public Optional<Project> fetchProjectById(Integer projectId) {
+		return Metrics.get().time("dao.fetchProjectById", () -> super.fetchProjectById(projectId));
+	}
+
+	@Override
+	public List<Project> fetchProjectsByIds(Collection<Integer> projectIds) {
+		return Metrics.get().time("dao.fetchProjectsByIds", () -> super.fetchProjectsByIds(projectIds));
+	}
+
+	@Override
+	Map<Integer, Project> fetchProjectHeadersByIds(List<Integer> projectIds) {
+		return Metrics.get().time("dao.fetchProjectHeadersByIds", () -> super.fetchProjectHeadersByIds(projectIds));
+	}
+
+	@Override
+	Map<Integer, List<Material>> fetchMaterialsByProjectIds(List<Integer> projectIds) {
+		return Metrics.get().time("dao.fetchMaterialsByProjectIds", () -> super.fetchMaterialsByProjectIds(projectIds));
+	}
+
+	@Override
+	Map<Integer, List<Step>> fetchStepsByProjectIds(List<Integer> projectIds) {
+		return Metrics.get().time("dao.fetchStepsByProjectIds", () -> super.fetchStepsByProjectIds(projectIds));
+	}
+
+	@Override
+	Map<Integer, List<Category>> fetchCategoriesByProjectIds(List<Integer> projectIds) {
+		return Metrics.get().time("dao.fetchCategoriesByProjectIds",
+				() -> super.fetchCategoriesByProjectIds(projectIds));
+	}
+
+	@Override
+	public boolean modifyProjectDetails(Project project) {
+		return Metrics.get().time("dao.modifyProjectDetails", () -> super.modifyProjectDetails(project));
+	}
+
+	@Override
+	public boolean projectExists(Integer projectId) {
+		return Metrics.get().time("dao.projectExists", () -> super.projectExists(projectId));
+	}
+
+	@Override
+	public Optional<ProjectRollup> fetchProjectRollup(Integer projectId) {
+		return Metrics.get().time("dao.fetchProjectRollup", () -> super.fetchProjectRollup(projectId));
+	}
+
+	@Override
+	public Optional<CategoryRollup> fetchCategoryRollup(Integer categoryId) {
+		return Metrics.get().time("dao.fetchCategoryRollup", () -> super.fetchCategoryRollup(categoryId));
+	}
+
+	@Override
+	public void rebuildRollups() {
+		Metrics.get().time("dao.rebuildRollups", () -> super.rebuildRollups());
+	}
+
+	@Override
+	public boolean deleteProject(Integer projectId) {
+		return Metrics.get().time("dao.deleteProject", () -> super.deleteProject(projectId));
+	}
+}
@@ -0,0 +1,41 @@
+package projects.dao;
+
+import java.util.List;
+
+import projects.entity.Step;
+import projects.metrics.Metrics;
+
+/* TimedStepSequencer records the latency and failures of each StepSequencer operation under
+ * "dao.<operation>" in Metrics, like TimedProjectDao does for ProjectDao.
+ */
+public class TimedStepSequencer extends StepSequencer {
+	@Override
+	public Step appendStep(Integer projectId, String stepText) {
+		return Metrics.get().time("dao.appendStep", () -> super.appendStep(projectId, stepText));
+	}
+
+	@Override
+	public Step insertStepAfter(Integer projectId, Integer afterStepId, String stepText) {
+		return Metrics.get().time("dao.insertStepAfter", () -> super.insertStepAfter(projectId, afterStepId, stepText));
+	}
+
+	@Override
+	public void moveStepAfter(Integer projectId, Integer stepId, Integer afterStepId) {
+		Metrics.get().time("dao.moveStepAfter", () -> super.moveStepAfter(projectId, stepId, afterStepId));
+	}
+
+	@Override
+	public void reorderSteps(Integer projectId, List<Integer> stepIds) {
+		Metrics.get().time("dao.reorderSteps", () -> super.reorderSteps(projectId, stepIds));
+	}
+
+	@Override
+	public boolean deleteStep(Integer projectId, Integer stepId) {
+		return Metrics.get().time("dao.deleteStep", () -> super.deleteStep(projectId, stepId));
+	}
+
+	@Override
+	public void resequence(Integer projectId) {
+		Metrics.get().time("dao.resequenceSteps", () -> super.resequence(projectId));
+	}
+}
@@ -0,0 +1,58 @@
+/**
+ * 
+ */
+package projects.entity;
+
+import java.math.BigDecimal;
+
+/**
+ * The precomputed totals of all projects in one category, from the category_rollup table: the
+ * number of projects, and the sums of their {@link ProjectRollup} totals.
+ * 
+ * @author Promineo
+ *
+ */
+public class CategoryRollup {
+  private Integer categoryId;
+  private Integer projectCount;
+  private Integer materialCount;
+  private BigDecimal materialCost;
+  private Integer stepCount;
+  private BigDecimal estimatedHours;
+  private BigDecimal actualHours;
+
+  public Integer getCategoryId() {
+    return categoryId;
+  }
+
+  public Integer getProjectCount() {
+    return projectCount;
+  }
+
+  public Integer getMaterialCount() {
+    return materialCount;
+  }
+
+  public BigDecimal getMaterialCost() {
+    return materialCost;
+  }
+
+  public Integer getStepCount() {
+    return stepCount;
+  }
+
+  public BigDecimal getEstimatedHours() {
+    return estimatedHours;
+  }
+
+  public BigDecimal getActualHours() {
+    return actualHours;
+  }
+
+  @Override
+  public String toString() {
+    return "categoryId=" + categoryId + ", projectCount=" + projectCount + ", materialCount=" + materialCount
+        + ", materialCost=" + materialCost + ", stepCount=" + stepCount + ", estimatedHours=" + estimatedHours
+        + ", actualHours=" + actualHours;
+  }
+}
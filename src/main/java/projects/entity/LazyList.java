@@ -0,0 +1,82 @@
+/**
+ * 
+ */
+package projects.entity;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * A list whose contents are loaded the first time it is read or changed. Until then it holds
+ * only the loader. Loading happens at most once, even if several threads touch the list at the
+ * same time; if the loader throws, the exception reaches the caller and the next access tries
+ * again.
+ * 
+ * @author Promineo
+ *
+ * @param <E> The type of element in the list.
+ */
+public class LazyList<E> extends AbstractList<E> {
+  private Supplier<? extends List<E>> loader;
+  private volatile List<E> elements;
+
+  public LazyList(Supplier<? extends List<E>> loader) {
+    this.loader = Objects.requireNonNull(loader);
+  }
+
+  /**
+   * Returns true once the contents have been loaded.
+   */
+  public boolean isLoaded() {
+    return Objects.nonNull(elements);
+  }
+
+  @Override
+  public E get(int index) {
+    return elements().get(index);
+  }
+
+  @Override
+  public int size() {
+    return elements().size();
+  }
+
+  @Override
+  public E set(int index, E element) {
+    return elements().set(index, element);
+  }
+
+  @Override
+  public void add(int index, E element) {
+    elements().add(index, element);
+    modCount++;
+  }
+
+  @Override
+  public E remove(int index) {
+    E removed = elements().remove(index);
+    modCount++;
+    return removed;
+  }
+
+  private List<E> elements() {
+    List<E> loaded = elements;
+
+    if(Objects.isNull(loaded)) {
+      synchronized(this) {
+        loaded = elements;
+
+        if(Objects.isNull(loaded)) {
+          loaded = new ArrayList<>(loader.get());
+          elements = loaded;
+          loader = null;
+        }
+      }
+    }
+
+    return loaded;
+  }
+}
@@ -4,10 +4,26 @@
 package projects.entity;
 
 import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Supplier;
 
 /**
+ * A project and its materials, steps and categories.
+ * 
+ * The project records which of its columns have been changed through a setter since it was
+ * loaded (or since {@link #markClean()}), so that an update only writes those columns. Setting
+ * a field to the value it already has is not a change. Objects created by the DAO's row mapper
+ * start out clean, because the mapper writes the fields directly.
+ * 
+ * The child lists are normally filled when the project is loaded. A project loaded lazily (see
+ * {@link #setChildLoaders(Supplier, Supplier, Supplier)}) instead reads each child list from the
+ * database the first time it is accessed.
+ * 
  * @author Promineo
  *
  */
@@ -23,6 +39,8 @@ public class Project {
   private List<Step> steps = new LinkedList<>();
   private List<Category> categories = new LinkedList<>();
 
+  private final Set<ProjectColumn> changedColumns = EnumSet.noneOf(ProjectColumn.class);
+
   public Integer getProjectId() {
     return projectId;
   }
@@ -36,6 +54,7 @@ public class Project {
   }
 
   public void setProjectName(String projectName) {
+    markChanged(ProjectColumn.PROJECT_NAME, this.projectName, projectName);
     this.projectName = projectName;
   }
 
@@ -44,6 +63,7 @@ public class Project {
   }
 
   public void setEstimatedHours(BigDecimal estimatedHours) {
+    markChanged(ProjectColumn.ESTIMATED_HOURS, this.estimatedHours, estimatedHours);
     this.estimatedHours = estimatedHours;
   }
 
@@ -52,6 +72,7 @@ public class Project {
   }
 
   public void setActualHours(BigDecimal actualHours) {
+    markChanged(ProjectColumn.ACTUAL_HOURS, this.actualHours, actualHours);
     this.actualHours = actualHours;
   }
 
@@ -60,6 +81,7 @@ public class Project {
   }
 
   public void setDifficulty(Integer difficulty) {
+    markChanged(ProjectColumn.DIFFICULTY, this.difficulty, difficulty);
     this.difficulty = difficulty;
   }
 
@@ -68,9 +90,58 @@ public class Project {
   }
 
   public void setNotes(String notes) {
+    markChanged(ProjectColumn.NOTES, this.notes, notes);
     this.notes = notes;
   }
 
+  /**
+   * Returns the columns changed since the project was loaded or last marked clean.
+   */
+  public Set<ProjectColumn> getChangedColumns() {
+    return Collections.unmodifiableSet(EnumSet.copyOf(changedColumns));
+  }
+
+  public boolean isChanged() {
+    return !changedColumns.isEmpty();
+  }
+
+  /**
+   * Forgets all changes, typically after they have been written to the database.
+   */
+  public void markClean() {
+    changedColumns.clear();
+  }
+
+  /**
+   * Records a change unless the new value equals the old one. Decimals are compared by value, so
+   * 1.5 and 1.50 are the same.
+   */
+  private void markChanged(ProjectColumn column, Object oldValue, Object newValue) {
+    boolean same;
+
+    if(oldValue instanceof BigDecimal && newValue instanceof BigDecimal) {
+      same = ((BigDecimal)oldValue).compareTo((BigDecimal)newValue) == 0;
+    }
+    else {
+      same = Objects.equals(oldValue, newValue);
+    }
+
+    if(!same) {
+      changedColumns.add(column);
+    }
+  }
+
+  /**
+   * Replaces the three child lists with {@link LazyList}s that call the given loaders on first
+   * access. Any children already added are discarded.
+   */
+  public void setChildLoaders(Supplier<List<Material>> materialLoader, Supplier<List<Step>> stepLoader,
+      Supplier<List<Category>> categoryLoader) {
+    materials = new LazyList<>(materialLoader);
+    steps = new LazyList<>(stepLoader);
+    categories = new LazyList<>(categoryLoader);
+  }
+
   public List<Material> getMaterials() {
     return materials;
   }
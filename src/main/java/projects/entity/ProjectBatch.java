@@ -0,0 +1,355 @@
+/**
+ * 
+ */
+package projects.entity;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * A page of projects and their children stored column by column in primitive arrays, for bulk
+ * reads such as exports and analytics. A batch of any size is a few dozen arrays, instead of a
+ * dozen objects per project plus one per child row.
+ * 
+ * Projects are addressed by row (0 to {@link #size()} - 1) and are in project ID order. Hours and
+ * costs are fixed-point longs with {@link #SCALE} decimal places, matching the DECIMAL(7,2)
+ * columns: 12.5 hours is 1250. NULL is stored as {@link #NULL_INT} or {@link #NULL_FIXED}.
+ * 
+ * The children of each kind are stored in one set of arrays, grouped by project; the children of
+ * row r are at indexes {@code getMaterialStart(r)} (inclusive) to {@code getMaterialEnd(r)}
+ * (exclusive), and likewise for steps and categories. Steps are in step order. Categories are
+ * stored by ID only.
+ * 
+ * @author Promineo
+ *
+ */
+public class ProjectBatch {
+  /** The number of decimal places in the fixed-point hour and cost values */
+  public static final int SCALE = 2;
+
+  /** Stored in an int column for NULL */
+  public static final int NULL_INT = Integer.MIN_VALUE;
+
+  /** Stored in a fixed-point column for NULL */
+  public static final long NULL_FIXED = Long.MIN_VALUE;
+
+  private final int size;
+  private final int[] projectIds;
+  private final String[] projectNames;
+  private final long[] estimatedHours;
+  private final long[] actualHours;
+  private final int[] difficulties;
+  private final String[] notes;
+
+  private final int[] materialOffsets;
+  private final int[] materialIds;
+  private final String[] materialNames;
+  private final int[] numRequired;
+  private final long[] materialCosts;
+
+  private final int[] stepOffsets;
+  private final int[] stepIds;
+  private final String[] stepTexts;
+  private final int[] stepOrders;
+
+  private final int[] categoryOffsets;
+  private final int[] categoryIds;
+
+  private ProjectBatch(Builder builder) {
+    size = builder.size;
+    projectIds = Arrays.copyOf(builder.projectIds, size);
+    projectNames = Arrays.copyOf(builder.projectNames, size);
+    estimatedHours = Arrays.copyOf(builder.estimatedHours, size);
+    actualHours = Arrays.copyOf(builder.actualHours, size);
+    difficulties = Arrays.copyOf(builder.difficulties, size);
+    notes = Arrays.copyOf(builder.notes, size);
+
+    materialOffsets = offsets(builder.materialRows, builder.materialCount, size);
+    materialIds = Arrays.copyOf(builder.materialIds, builder.materialCount);
+    materialNames = Arrays.copyOf(builder.materialNames, builder.materialCount);
+    numRequired = Arrays.copyOf(builder.numRequired, builder.materialCount);
+    materialCosts = Arrays.copyOf(builder.materialCosts, builder.materialCount);
+
+    stepOffsets = offsets(builder.stepRows, builder.stepCount, size);
+    stepIds = Arrays.copyOf(builder.stepIds, builder.stepCount);
+    stepTexts = Arrays.copyOf(builder.stepTexts, builder.stepCount);
+    stepOrders = Arrays.copyOf(builder.stepOrders, builder.stepCount);
+
+    categoryOffsets = offsets(builder.categoryRows, builder.categoryCount, size);
+    categoryIds = Arrays.copyOf(builder.categoryIds, builder.categoryCount);
+  }
+
+  /**
+   * Turns the owning row of each child into start offsets: the children of row r are at
+   * offsets[r] to offsets[r + 1]. The children arrive grouped by row, in row order.
+   */
+  private static int[] offsets(int[] rows, int count, int size) {
+    int[] offsets = new int[size + 1];
+
+    for(int index = 0; index < count; index++) {
+      offsets[rows[index] + 1]++;
+    }
+
+    for(int row = 0; row < size; row++) {
+      offsets[row + 1] += offsets[row];
+    }
+
+    return offsets;
+  }
+
+  /**
+   * Converts a fixed-point value from this batch to a decimal, or null for {@link #NULL_FIXED}.
+   */
+  public static BigDecimal toDecimal(long fixed) {
+    return fixed == NULL_FIXED ? null : BigDecimal.valueOf(fixed, SCALE);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Returns the ID of the last project in the batch, for reading the next batch.
+   */
+  public int getLastProjectId() {
+    if(size == 0) {
+      throw new IllegalStateException("The batch is empty");
+    }
+
+    return projectIds[size - 1];
+  }
+
+  public int getProjectId(int row) {
+    return projectIds[row];
+  }
+
+  public String getProjectName(int row) {
+    return projectNames[row];
+  }
+
+  public long getEstimatedHours(int row) {
+    return estimatedHours[row];
+  }
+
+  public long getActualHours(int row) {
+    return actualHours[row];
+  }
+
+  public int getDifficulty(int row) {
+    return difficulties[row];
+  }
+
+  public String getNotes(int row) {
+    return notes[row];
+  }
+
+  public int getMaterialStart(int row) {
+    return materialOffsets[row];
+  }
+
+  public int getMaterialEnd(int row) {
+    return materialOffsets[row + 1];
+  }
+
+  public int getMaterialCount() {
+    return materialIds.length;
+  }
+
+  public int getMaterialId(int index) {
+    return materialIds[index];
+  }
+
+  public String getMaterialName(int index) {
+    return materialNames[index];
+  }
+
+  public int getNumRequired(int index) {
+    return numRequired[index];
+  }
+
+  public long getMaterialCost(int index) {
+    return materialCosts[index];
+  }
+
+  public int getStepStart(int row) {
+    return stepOffsets[row];
+  }
+
+  public int getStepEnd(int row) {
+    return stepOffsets[row + 1];
+  }
+
+  public int getStepCount() {
+    return stepIds.length;
+  }
+
+  public int getStepId(int index) {
+    return stepIds[index];
+  }
+
+  public String getStepText(int index) {
+    return stepTexts[index];
+  }
+
+  public int getStepOrder(int index) {
+    return stepOrders[index];
+  }
+
+  public int getCategoryStart(int row) {
+    return categoryOffsets[row];
+  }
+
+  public int getCategoryEnd(int row) {
+    return categoryOffsets[row + 1];
+  }
+
+  public int getCategoryCount() {
+    return categoryIds.length;
+  }
+
+  public int getCategoryId(int index) {
+    return categoryIds[index];
+  }
+
+  /**
+   * Collects the columns of a batch. Projects must be added in ascending ID order, and children
+   * grouped by project in the same order, which is how the DAO's queries return them.
+   */
+  public static class Builder {
+    private int size;
+    private int[] projectIds = new int[16];
+    private String[] projectNames = new String[16];
+    private long[] estimatedHours = new long[16];
+    private long[] actualHours = new long[16];
+    private int[] difficulties = new int[16];
+    private String[] notes = new String[16];
+
+    private int materialCount;
+    private int materialRow;
+    private int[] materialRows = new int[16];
+    private int[] materialIds = new int[16];
+    private String[] materialNames = new String[16];
+    private int[] numRequired = new int[16];
+    private long[] materialCosts = new long[16];
+
+    private int stepCount;
+    private int stepRow;
+    private int[] stepRows = new int[16];
+    private int[] stepIds = new int[16];
+    private String[] stepTexts = new String[16];
+    private int[] stepOrders = new int[16];
+
+    private int categoryCount;
+    private int categoryRow;
+    private int[] categoryRows = new int[16];
+    private int[] categoryIds = new int[16];
+
+    public Builder addProject(int projectId, String projectName, long estimatedHours, long actualHours,
+        int difficulty, String notes) {
+      if(size > 0 && projectId <= projectIds[size - 1]) {
+        throw new IllegalArgumentException("Project " + projectId + " is out of ID order");
+      }
+
+      if(size == projectIds.length) {
+        int capacity = size * 2;
+        projectIds = Arrays.copyOf(projectIds, capacity);
+        projectNames = Arrays.copyOf(projectNames, capacity);
+        this.estimatedHours = Arrays.copyOf(this.estimatedHours, capacity);
+        this.actualHours = Arrays.copyOf(this.actualHours, capacity);
+        difficulties = Arrays.copyOf(difficulties, capacity);
+        this.notes = Arrays.copyOf(this.notes, capacity);
+      }
+
+      projectIds[size] = projectId;
+      projectNames[size] = projectName;
+      this.estimatedHours[size] = estimatedHours;
+      this.actualHours[size] = actualHours;
+      difficulties[size] = difficulty;
+      this.notes[size] = notes;
+      size++;
+      return this;
+    }
+
+    public Builder addMaterial(int projectId, int materialId, String materialName, int numRequired, long cost) {
+      materialRow = rowOf(projectId, materialRow);
+
+      if(materialCount == materialIds.length) {
+        int capacity = materialCount * 2;
+        materialRows = Arrays.copyOf(materialRows, capacity);
+        materialIds = Arrays.copyOf(materialIds, capacity);
+        materialNames = Arrays.copyOf(materialNames, capacity);
+        this.numRequired = Arrays.copyOf(this.numRequired, capacity);
+        materialCosts = Arrays.copyOf(materialCosts, capacity);
+      }
+
+      materialRows[materialCount] = materialRow;
+      materialIds[materialCount] = materialId;
+      materialNames[materialCount] = materialName;
+      this.numRequired[materialCount] = numRequired;
+      materialCosts[materialCount] = cost;
+      materialCount++;
+      return this;
+    }
+
+    public Builder addStep(int projectId, int stepId, String stepText, int stepOrder) {
+      stepRow = rowOf(projectId, stepRow);
+
+      if(stepCount == stepIds.length) {
+        int capacity = stepCount * 2;
+        stepRows = Arrays.copyOf(stepRows, capacity);
+        stepIds = Arrays.copyOf(stepIds, capacity);
+        stepTexts = Arrays.copyOf(stepTexts, capacity);
+        stepOrders = Arrays.copyOf(stepOrders, capacity);
+      }
+
+      stepRows[stepCount] = stepRow;
+      stepIds[stepCount] = stepId;
+      stepTexts[stepCount] = stepText;
+      stepOrders[stepCount] = stepOrder;
+      stepCount++;
+      return this;
+    }
+
+    public Builder addCategory(int projectId, int categoryId) {
+      categoryRow = rowOf(projectId, categoryRow);
+
+      if(categoryCount == categoryIds.length) {
+        int capacity = categoryCount * 2;
+        categoryRows = Arrays.copyOf(categoryRows, capacity);
+        categoryIds = Arrays.copyOf(categoryIds, capacity);
+      }
+
+      categoryRows[categoryCount] = categoryRow;
+      categoryIds[categoryCount] = categoryId;
+      categoryCount++;
+      return this;
+    }
+
+    public ProjectBatch build() {
+      return new ProjectBatch(this);
+    }
+
+    /**
+     * Finds the row of the project a child belongs to, searching forward from the row of the
+     * previous child of the same kind.
+     */
+    private int rowOf(int projectId, int fromRow) {
+      int row = fromRow;
+
+      while(row < size && projectIds[row] < projectId) {
+        row++;
+      }
+
+      if(row == size || projectIds[row] != projectId) {
+        throw new IllegalArgumentException("Child of project " + projectId
+            + " is not grouped in project order or its project is not in the batch");
+      }
+
+      return row;
+    }
+  }
+}
@@ -0,0 +1,49 @@
+/**
+ * 
+ */
+package projects.entity;
+
+import java.math.BigDecimal;
+import java.util.function.Function;
+
+/**
+ * The columns of the project table, with the Java type and {@link Project} getter of each one.
+ * {@link Project} uses them to record which fields have been changed, and the DAO uses them to
+ * build statements that only touch those columns.
+ * 
+ * @author Promineo
+ *
+ */
+public enum ProjectColumn {
+  PROJECT_ID("project_id", Integer.class, Project::getProjectId),
+  PROJECT_NAME("project_name", String.class, Project::getProjectName),
+  ESTIMATED_HOURS("estimated_hours", BigDecimal.class, Project::getEstimatedHours),
+  ACTUAL_HOURS("actual_hours", BigDecimal.class, Project::getActualHours),
+  DIFFICULTY("difficulty", Integer.class, Project::getDifficulty),
+  NOTES("notes", String.class, Project::getNotes);
+
+  private final String columnName;
+  private final Class<?> type;
+  private final Function<Project, Object> getter;
+
+  private ProjectColumn(String columnName, Class<?> type, Function<Project, Object> getter) {
+    this.columnName = columnName;
+    this.type = type;
+    this.getter = getter;
+  }
+
+  public String getColumnName() {
+    return columnName;
+  }
+
+  public Class<?> getType() {
+    return type;
+  }
+
+  /**
+   * Returns the value of this column from the given project.
+   */
+  public Object getValue(Project project) {
+    return getter.apply(project);
+  }
+}
@@ -0,0 +1,53 @@
+/**
+ * 
+ */
+package projects.entity;
+
+import java.math.BigDecimal;
+
+/**
+ * The precomputed totals of one project, from the project_rollup table: the number of materials
+ * and their total cost (num_required * cost), the number of steps, and the estimated and actual
+ * hours. Missing values count as zero.
+ * 
+ * @author Promineo
+ *
+ */
+public class ProjectRollup {
+  private Integer projectId;
+  private Integer materialCount;
+  private BigDecimal materialCost;
+  private Integer stepCount;
+  private BigDecimal estimatedHours;
+  private BigDecimal actualHours;
+
+  public Integer getProjectId() {
+    return projectId;
+  }
+
+  public Integer getMaterialCount() {
+    return materialCount;
+  }
+
+  public BigDecimal getMaterialCost() {
+    return materialCost;
+  }
+
+  public Integer getStepCount() {
+    return stepCount;
+  }
+
+  public BigDecimal getEstimatedHours() {
+    return estimatedHours;
+  }
+
+  public BigDecimal getActualHours() {
+    return actualHours;
+  }
+
+  @Override
+  public String toString() {
+    return "projectId=" + projectId + ", materialCount=" + materialCount + ", materialCost=" + materialCost
+        + ", stepCount=" + stepCount + ", estimatedHours=" + estimatedHours + ", actualHours=" + actualHours;
+  }
+}
@@ -0,0 +1,62 @@
+/**
+ * 
+ */
+package projects.entity;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * A read-only view of a project row for listings and menus. It holds only the columns a
+ * projection query selected (the others are null) and no child lists, so a page of summaries
+ * costs a fraction of the memory of full {@link Project} objects.
+ * 
+ * @author Promineo
+ *
+ */
+public class ProjectSummary {
+  /**
+   * The columns needed to show a project in a list: its ID and name. They are always selected,
+   * because pages are ordered by them.
+   */
+  public static final Set<ProjectColumn> LISTING_COLUMNS =
+      Collections.unmodifiableSet(EnumSet.of(ProjectColumn.PROJECT_ID, ProjectColumn.PROJECT_NAME));
+
+  private Integer projectId;
+  private String projectName;
+  private BigDecimal estimatedHours;
+  private BigDecimal actualHours;
+  private Integer difficulty;
+  private String notes;
+
+  public Integer getProjectId() {
+    return projectId;
+  }
+
+  public String getProjectName() {
+    return projectName;
+  }
+
+  public BigDecimal getEstimatedHours() {
+    return estimatedHours;
+  }
+
+  public BigDecimal getActualHours() {
+    return actualHours;
+  }
+
+  public Integer getDifficulty() {
+    return difficulty;
+  }
+
+  public String getNotes() {
+    return notes;
+  }
+
+  @Override
+  public String toString() {
+    return projectId + ": " + projectName;
+  }
+}
@@ -0,0 +1,361 @@
+package projects.importer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+import projects.dao.CategoryDictionary;
+import projects.dao.DbConnection;
+import projects.dao.ProjectDao;
+import projects.exception.DbException;
+import projects.importer.ImportTable.Column;
+import provided.util.DaoBase;
+
+/* BulkImporter loads CSV or JSON Lines files straight into the project tables. It is meant for
+ * migrating large catalogs, where inserting one project at a time through ProjectService would
+ * take far too long.
+ *
+ * Files are streamed: only the current record and the current JDBC batch are held in memory.
+ * Rows are sent in JDBC batches of BATCH_SIZE and committed every chunkSize rows. Each commit also
+ * records in the import_checkpoint table how many rows of the file have been committed, in the
+ * same transaction as the rows themselves. If an import fails or is stopped, running it again
+ * with the same file skips the committed rows and carries on from the first uncommitted chunk.
+ * A file that was imported completely is skipped entirely. "The same file" means the same
+ * absolute path, size and modification time; a file that was edited or replaced since starts over.
+ *
+ * Usage: java projects.importer.BulkImporter [--chunk-size=N] table=file ...
+ * for example: project=projects.csv step=steps.jsonl. Files are loaded in foreign-key order
+ * whatever order they are given in.
+ */
+public class BulkImporter extends DaoBase {
+	public static final int DEFAULT_CHUNK_SIZE = 10_000;
+
+	// The number of rows sent to the server in one JDBC batch
+	private static final int BATCH_SIZE = 1_000;
+
+	// Leaves room in import_checkpoint.source_name (255) for the separator and a SHA-256 in hex
+	private static final int CHECKPOINT_NAME_LENGTH = 190;
+
+	// @formatter:off
+	private static final String CHECKPOINT_SELECT = ""
+		+ "SELECT rows_committed FROM import_checkpoint "
+		+ "WHERE source_name = ? AND table_name = ?";
+
+	private static final String CHECKPOINT_SAVE = ""
+		+ "INSERT INTO import_checkpoint (source_name, table_name, rows_committed) "
+		+ "VALUES (?, ?, ?) "
+		+ "ON DUPLICATE KEY UPDATE rows_committed = VALUES(rows_committed), updated_at = CURRENT_TIMESTAMP";
+	// @formatter:on
+
+	private final int chunkSize;
+	private final Consumer<ImportResult> progressListener;
+
+	public BulkImporter() {
+		this(DEFAULT_CHUNK_SIZE, BulkImporter::printProgress);
+	}
+
+	/* chunkSize is the number of rows committed per transaction. The progress listener is called
+	 * after every commit with the running totals for the file.
+	 */
+	public BulkImporter(int chunkSize, Consumer<ImportResult> progressListener) {
+		if(chunkSize < 1) {
+			throw new IllegalArgumentException("Chunk size must be at least 1, was " + chunkSize);
+		}
+
+		this.chunkSize = chunkSize;
+		this.progressListener = Objects.requireNonNull(progressListener);
+	}
+
+	public static void main(String[] args) {
+		int chunkSize = DEFAULT_CHUNK_SIZE;
+		Map<ImportTable, Path> files = new EnumMap<>(ImportTable.class);
+
+		for(String arg : args) {
+			if(arg.startsWith("--chunk-size=")) {
+				chunkSize = Integer.parseInt(arg.substring("--chunk-size=".length()));
+				continue;
+			}
+
+			int equals = arg.indexOf('=');
+
+			if(equals < 1) {
+				System.out.println("Usage: java projects.importer.BulkImporter [--chunk-size=N] table=file ...");
+				System.exit(1);
+			}
+
+			files.put(ImportTable.forTableName(arg.substring(0, equals)), Paths.get(arg.substring(equals + 1)));
+		}
+
+		for(ImportResult result : new TimedBulkImporter(chunkSize, BulkImporter::printProgress).importFiles(files)) {
+			System.out.println("Done: " + result);
+		}
+	}
+
+	/* Imports the files in foreign-key order (projects and categories before their children), then
+	 * rebuilds the project and category rollups.
+	 */
+	public List<ImportResult> importFiles(Map<ImportTable, Path> files) {
+		List<ImportResult> results = new ArrayList<>();
+
+		for(Map.Entry<ImportTable, Path> file : new EnumMap<>(files).entrySet()) {
+			results.add(importFile(file.getKey(), file.getValue()));
+		}
+
+		/* The rows were written around ProjectDao, so its rollup tables have to be recomputed. That
+		 * includes rows committed by an earlier run that stopped before getting here: any file with
+		 * committed rows, skipped now or imported now, triggers the rebuild.
+		 */
+		if(results.stream().anyMatch(result -> result.getRowsSkipped() > 0 || result.getRowsImported() > 0)) {
+			new ProjectDao().rebuildRollups();
+		}
+
+		return results;
+	}
+
+	/* Imports one file into the given table, resuming after the rows a previous run committed.
+	 * The checkpoint is keyed by the file (see checkpointKey) and the table.
+	 */
+	public ImportResult importFile(ImportTable table, Path file) {
+		String source = file.getFileName().toString();
+		long startedAt = System.nanoTime();
+
+		try (RecordReader reader = RecordReader.open(file)) {
+			String checkpoint = checkpointKey(file);
+			long committed = readCheckpoint(checkpoint, table);
+
+			Map<String, String> record = reader.next();
+
+			for(long skipped = 0; skipped < committed && Objects.nonNull(record); skipped++) {
+				record = reader.next();
+			}
+
+			if(Objects.isNull(record)) {
+				ImportResult result = new ImportResult(table, source, committed, 0, System.nanoTime() - startedAt);
+				progressListener.accept(result);
+				return result;
+			}
+
+			List<Column> columns = resolveColumns(table, record.keySet(), file);
+			String sql = insertSql(table, columns);
+			long imported = 0;
+
+			while(Objects.nonNull(record)) {
+				long chunkStartLine = reader.getLineNumber();
+
+				try (Connection conn = DbConnection.getConnection()) {
+					startTransaction(conn);
+
+					try {
+						int rows = 0;
+
+						try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+							while(Objects.nonNull(record) && rows < chunkSize) {
+								bindRecord(stmt, table, columns, record, file, reader.getLineNumber());
+								stmt.addBatch();
+								rows++;
+
+								if(rows % BATCH_SIZE == 0) {
+									stmt.executeBatch();
+								}
+
+								record = reader.next();
+							}
+
+							stmt.executeBatch();
+						}
+
+						saveCheckpoint(conn, checkpoint, table, committed + imported + rows);
+						commitTransaction(conn);
+						DbConnection.recordWrite();
+						imported += rows;
+					}
+					catch(Exception e) {
+						rollbackTransaction(conn);
+						throw new DbException("Import of " + file + " into " + table.getTableName()
+								+ " failed in the chunk starting on line " + chunkStartLine + ". "
+								+ (committed + imported) + " rows are committed; run the import again to resume.", e);
+					}
+				}
+
+				progressListener.accept(new ImportResult(table, source, committed, imported, System.nanoTime() - startedAt));
+			}
+
+			if(table == ImportTable.CATEGORY) {
+				CategoryDictionary.get().invalidate();
+			}
+
+			return new ImportResult(table, source, committed, imported, System.nanoTime() - startedAt);
+		}
+		catch(IOException e) {
+			throw new DbException("Unable to read import file " + file, e);
+		}
+		catch(SQLException e) {
+			throw new DbException(e);
+		}
+	}
+
+	/* Identifies a file by its absolute path, size and modification time, so another file with the
+	 * same name, or this file after an edit, is not mistaken for a partly imported one. The key is
+	 * the file name (cut to CHECKPOINT_NAME_LENGTH) followed by a SHA-256 of those three values, which
+	 * keeps it readable and within the source_name column however long the path is.
+	 */
+	private static String checkpointKey(Path file) throws IOException {
+		Path absolute = file.toAbsolutePath().normalize();
+		BasicFileAttributes attributes = Files.readAttributes(absolute, BasicFileAttributes.class);
+		String identity = absolute + "|" + attributes.size() + "|" + attributes.lastModifiedTime().toMillis();
+		String name = file.getFileName().toString();
+
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(identity.getBytes(StandardCharsets.UTF_8));
+			return name.substring(0, Math.min(name.length(), CHECKPOINT_NAME_LENGTH)) + "#"
+					+ HexFormat.of().formatHex(hash);
+		}
+		catch(NoSuchAlgorithmException e) {
+			// Every Java platform is required to provide SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/* Returns the number of rows of the file that an earlier run has already committed. The
+	 * checkpoint table is created by the V1 migration (and by projects-schema.sql), not here.
+	 */
+	private long readCheckpoint(String source, ImportTable table) throws SQLException {
+		try (Connection conn = DbConnection.getConnection();
+				PreparedStatement stmt = conn.prepareStatement(CHECKPOINT_SELECT)) {
+			setParameter(stmt, 1, source, String.class);
+			setParameter(stmt, 2, table.getTableName(), String.class);
+
+			try (ResultSet rs = stmt.executeQuery()) {
+				return rs.next() ? rs.getLong(1) : 0;
+			}
+		}
+		catch(SQLException e) {
+			// 42S02: base table or view not found
+			if("42S02".equals(e.getSQLState())) {
+				throw new DbException("The import_checkpoint table does not exist. Run "
+						+ "projects.migration.MigrationRunner to bring the schema up to date before importing.", e);
+			}
+
+			throw e;
+		}
+	}
+
+	private void saveCheckpoint(Connection conn, String source, ImportTable table, long rowsCommitted)
+			throws SQLException {
+		try (PreparedStatement stmt = conn.prepareStatement(CHECKPOINT_SAVE)) {
+			setParameter(stmt, 1, source, String.class);
+			setParameter(stmt, 2, table.getTableName(), String.class);
+			stmt.setLong(3, rowsCommitted);
+			stmt.executeUpdate();
+		}
+	}
+
+	/* Checks the column names of the first record against the table and returns the matching
+	 * columns. Unknown names and missing required columns are rejected before anything is written.
+	 */
+	private List<Column> resolveColumns(ImportTable table, Iterable<String> names, Path file) {
+		List<Column> columns = new ArrayList<>();
+
+		for(String name : names) {
+			Column column = table.getColumn(name);
+
+			if(Objects.isNull(column)) {
+				throw new DbException("Column \"" + name + "\" in " + file + " is not a column of table "
+						+ table.getTableName() + ". Allowed columns: " + String.join(", ", table.getColumnNames()));
+			}
+
+			columns.add(column);
+		}
+
+		for(Column required : table.getRequiredColumns()) {
+			if(!columns.contains(required)) {
+				throw new DbException(file + " has no " + required.getName() + " column, which table "
+						+ table.getTableName() + " requires");
+			}
+		}
+
+		// Bind the columns in table order, so the statement text does not depend on the file's column order
+		List<Column> ordered = new ArrayList<>();
+
+		for(String name : table.getColumnNames()) {
+			Column column = table.getColumn(name);
+
+			if(columns.contains(column)) {
+				ordered.add(column);
+			}
+		}
+
+		return ordered;
+	}
+
+	private String insertSql(ImportTable table, List<Column> columns) {
+		List<String> names = new ArrayList<>();
+
+		for(Column column : columns) {
+			names.add(column.getName());
+		}
+
+		return "INSERT INTO " + table.getTableName() + " (" + String.join(", ", names) + ") VALUES ("
+				+ String.join(", ", Collections.nCopies(columns.size(), "?")) + ")";
+	}
+
+	/* Binds the values of one record. Every record must use the columns of the first one; a
+	 * JSON Lines record may leave a column out, which imports it as NULL.
+	 */
+	private void bindRecord(PreparedStatement stmt, ImportTable table, List<Column> columns,
+			Map<String, String> record, Path file, long lineNumber) throws SQLException {
+		Map<Column, String> values = new HashMap<>();
+
+		for(Map.Entry<String, String> entry : record.entrySet()) {
+			Column column = table.getColumn(entry.getKey());
+
+			if(Objects.isNull(column) || !columns.contains(column)) {
+				throw new DbException("Line " + lineNumber + " of " + file + " has column \"" + entry.getKey()
+						+ "\", which the first record of the file does not have");
+			}
+
+			values.put(column, entry.getValue());
+		}
+
+		for(int index = 0; index < columns.size(); index++) {
+			Column column = columns.get(index);
+			Object value;
+
+			try {
+				value = column.convert(values.get(column));
+			}
+			catch(NumberFormatException e) {
+				throw new DbException("Line " + lineNumber + " of " + file + ": \"" + values.get(column)
+						+ "\" is not a valid value for " + column.getName(), e);
+			}
+
+			if(Objects.isNull(value) && column.isRequired()) {
+				throw new DbException("Line " + lineNumber + " of " + file + " has no value for " + column.getName());
+			}
+
+			setParameter(stmt, index + 1, value, column.getType());
+		}
+	}
+
+	private static void printProgress(ImportResult progress) {
+		System.out.println(progress);
+	}
+}
@@ -0,0 +1,194 @@
+package projects.importer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/* Reads RFC 4180 CSV: the first row holds the column names, fields are separated by commas and
+ * may be enclosed in double quotes. A quoted field can contain commas, line breaks and doubled
+ * quotes (""). An empty unquoted field is read as NULL; an empty quoted field ("") is an empty
+ * string.
+ */
+public class CsvRecordReader implements RecordReader {
+	private final Reader reader;
+	private final String[] header;
+	private final StringBuilder field = new StringBuilder();
+
+	private long lineNumber = 1;
+	private long recordLineNumber;
+	private int pushedBack = -2;
+	private boolean endOfFile;
+
+	public CsvRecordReader(Reader reader) throws IOException {
+		this.reader = reader;
+
+		List<String> names = readRow();
+
+		if(Objects.isNull(names)) {
+			throw new IOException("The CSV file is empty; the first row must contain the column names");
+		}
+
+		for(int index = 0; index < names.size(); index++) {
+			String name = names.get(index);
+
+			if(Objects.isNull(name) || name.isBlank()) {
+				throw new IOException("Column " + (index + 1) + " of the CSV header has no name");
+			}
+
+			names.set(index, name.strip());
+
+			if(names.subList(0, index).contains(names.get(index))) {
+				throw new IOException("Column " + names.get(index) + " appears twice in the CSV header");
+			}
+		}
+
+		this.header = names.toArray(new String[0]);
+	}
+
+	// The column names from the header row, in file order
+	public String[] getHeader() {
+		return header.clone();
+	}
+
+	@Override
+	public Map<String, String> next() throws IOException {
+		List<String> values = readRow();
+
+		if(Objects.isNull(values)) {
+			return null;
+		}
+
+		if(values.size() != header.length) {
+			throw new IOException("Line " + recordLineNumber + " has " + values.size()
+					+ " fields, but the header has " + header.length);
+		}
+
+		Map<String, String> record = new HashMap<>(header.length * 2);
+
+		for(int index = 0; index < header.length; index++) {
+			record.put(header[index], values.get(index));
+		}
+
+		return record;
+	}
+
+	@Override
+	public long getLineNumber() {
+		return recordLineNumber;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	/* Reads the fields of the next row, skipping blank lines. Returns null at the end of the file. */
+	private List<String> readRow() throws IOException {
+		while(!endOfFile) {
+			recordLineNumber = lineNumber;
+			List<String> values = new ArrayList<>();
+
+			boolean endOfRow = false;
+
+			while(!endOfRow) {
+				int ch = read();
+				boolean quoted = false;
+				boolean empty = true;
+				field.setLength(0);
+
+				if(ch == '"') {
+					quoted = true;
+					ch = readQuoted();
+
+					if(ch != ',' && ch != '\n' && ch != '\r' && ch != -1) {
+						throw new IOException("Unexpected text after closing quote on line " + lineNumber);
+					}
+				}
+
+				while(ch != ',' && ch != '\n' && ch != '\r' && ch != -1) {
+					if(ch == '"') {
+						throw new IOException("Unexpected quote in unquoted field on line " + lineNumber);
+					}
+
+					field.append((char)ch);
+					empty = false;
+					ch = read();
+				}
+
+				if(ch == '\r') {
+					int following = read();
+
+					if(following != '\n') {
+						unread(following);
+					}
+				}
+
+				if(ch != ',') {
+					endOfRow = true;
+					endOfFile = ch == -1;
+
+					if(ch != -1) {
+						lineNumber++;
+					}
+				}
+
+				values.add(quoted || !empty ? field.toString() : null);
+			}
+
+			// A blank line reads as a single NULL field
+			if(values.size() == 1 && Objects.isNull(values.get(0))) {
+				continue;
+			}
+
+			return values;
+		}
+
+		return null;
+	}
+
+	/* Reads a quoted field into the buffer, up to and including its closing quote. Returns the
+	 * character that follows the closing quote.
+	 */
+	private int readQuoted() throws IOException {
+		long startLine = lineNumber;
+
+		while(true) {
+			int ch = read();
+
+			if(ch == -1) {
+				throw new IOException("Quoted field starting on line " + startLine + " is not closed");
+			}
+
+			if(ch == '"') {
+				int following = read();
+
+				if(following != '"') {
+					return following;
+				}
+			}
+			else if(ch == '\n') {
+				lineNumber++;
+			}
+
+			field.append((char)ch);
+		}
+	}
+
+	private int read() throws IOException {
+		if(pushedBack != -2) {
+			int ch = pushedBack;
+			pushedBack = -2;
+			return ch;
+		}
+
+		return reader.read();
+	}
+
+	private void unread(int ch) {
+		pushedBack = ch;
+	}
+}
@@ -0,0 +1,51 @@
+package projects.importer;
+
+/* The progress of one import file: how many rows had already been committed by an earlier run
+ * and were skipped, how many this run has committed, and how fast.
+ */
+public class ImportResult {
+	private final ImportTable table;
+	private final String source;
+	private final long rowsSkipped;
+	private final long rowsImported;
+	private final long elapsedNanos;
+
+	ImportResult(ImportTable table, String source, long rowsSkipped, long rowsImported, long elapsedNanos) {
+		this.table = table;
+		this.source = source;
+		this.rowsSkipped = rowsSkipped;
+		this.rowsImported = rowsImported;
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	public ImportTable getTable() {
+		return table;
+	}
+
+	public String getSource() {
+		return source;
+	}
+
+	public long getRowsSkipped() {
+		return rowsSkipped;
+	}
+
+	public long getRowsImported() {
+		return rowsImported;
+	}
+
+	public long getElapsedMillis() {
+		return elapsedNanos / 1_000_000;
+	}
+
+	// Rows committed by this run per second of elapsed time
+	public double getRowsPerSecond() {
+		return elapsedNanos == 0 ? 0.0 : rowsImported * 1_000_000_000.0 / elapsedNanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s <- %s: %d rows imported, %d skipped, %.1f s, %.0f rows/s",
+				table.getTableName(), source, rowsImported, rowsSkipped, elapsedNanos / 1e9, getRowsPerSecond());
+	}
+}
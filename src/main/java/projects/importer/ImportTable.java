@@ -0,0 +1,156 @@
+package projects.importer;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/* The tables in projects-schema.sql that can be bulk imported, in the order they must be loaded
+ * so that every foreign key points at a row that is already there. Only the columns listed here
+ * are accepted in an import file; column names are never copied into SQL without being checked
+ * against this list.
+ *
+ * ID columns are optional: leave them out to let the database assign them, or include them so that
+ * the files for child tables can refer to the imported rows.
+ */
+public enum ImportTable {
+	// @formatter:off
+	PROJECT("project",
+		column("project_id", Integer.class, false),
+		column("project_name", String.class, true),
+		column("estimated_hours", BigDecimal.class, false),
+		column("actual_hours", BigDecimal.class, false),
+		column("difficulty", Integer.class, false),
+		column("notes", String.class, false)),
+
+	CATEGORY("category",
+		column("category_id", Integer.class, false),
+		column("category_name", String.class, true)),
+
+	STEP("step",
+		column("step_id", Integer.class, false),
+		column("project_id", Integer.class, true),
+		column("step_text", String.class, true),
+		column("step_order", Integer.class, true)),
+
+	MATERIAL("material",
+		column("material_id", Integer.class, false),
+		column("project_id", Integer.class, true),
+		column("material_name", String.class, true),
+		column("num_required", Integer.class, false),
+		column("cost", BigDecimal.class, false)),
+
+	PROJECT_CATEGORY("project_category",
+		column("project_id", Integer.class, true),
+		column("category_id", Integer.class, true));
+	// @formatter:on
+
+	private final String tableName;
+	private final Map<String, Column> columns = new LinkedHashMap<>();
+
+	private ImportTable(String tableName, Column... columns) {
+		this.tableName = tableName;
+
+		for(Column column : columns) {
+			this.columns.put(column.name, column);
+		}
+	}
+
+	public String getTableName() {
+		return tableName;
+	}
+
+	// Returns the column with the given name (case-insensitive), or null if the table has no such column
+	Column getColumn(String name) {
+		return columns.get(name.strip().toLowerCase(Locale.ROOT));
+	}
+
+	List<String> getColumnNames() {
+		return Collections.unmodifiableList(new ArrayList<>(columns.keySet()));
+	}
+
+	List<Column> getRequiredColumns() {
+		List<Column> required = new ArrayList<>();
+
+		for(Column column : columns.values()) {
+			if(column.required) {
+				required.add(column);
+			}
+		}
+
+		return required;
+	}
+
+	public static ImportTable forTableName(String tableName) {
+		for(ImportTable table : values()) {
+			if(table.tableName.equalsIgnoreCase(tableName.strip())) {
+				return table;
+			}
+		}
+
+		throw new IllegalArgumentException("Unknown table " + tableName + ". Tables that can be imported: "
+				+ String.join(", ", tableNames()));
+	}
+
+	private static List<String> tableNames() {
+		List<String> names = new ArrayList<>();
+
+		for(ImportTable table : values()) {
+			names.add(table.tableName);
+		}
+
+		return names;
+	}
+
+	private static Column column(String name, Class<?> type, boolean required) {
+		return new Column(name, type, required);
+	}
+
+	/* A column of an import table and the Java type its text values are converted to */
+	static class Column {
+		private final String name;
+		private final Class<?> type;
+		private final boolean required;
+
+		private Column(String name, Class<?> type, boolean required) {
+			this.name = name;
+			this.type = type;
+			this.required = required;
+		}
+
+		String getName() {
+			return name;
+		}
+
+		Class<?> getType() {
+			return type;
+		}
+
+		boolean isRequired() {
+			return required;
+		}
+
+		/* Converts the text value from an import file. Numbers may have surrounding spaces;
+		 * strings are kept exactly as they are.
+		 */
+		Object convert(String value) {
+			if(Objects.isNull(value) || (type != String.class && value.isBlank())) {
+				return null;
+			}
+
+			if(type == Integer.class) {
+				return Integer.valueOf(value.strip());
+			}
+
+			if(type == BigDecimal.class) {
+				return new BigDecimal(value.strip());
+			}
+
+			return value;
+		}
+	}
+}
@@ -0,0 +1,222 @@
+package projects.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/* Reads JSON Lines: one JSON object per line, blank lines are skipped. Objects must be flat;
+ * every value is a string, number, boolean or null. Numbers keep their original text so that
+ * decimals are not rounded through a double.
+ */
+public class JsonLinesRecordReader implements RecordReader {
+	private static final Pattern NUMBER = Pattern.compile("-?(0|[1-9]\\d*)(\\.\\d+)?([eE][+-]?\\d+)?");
+
+	private final BufferedReader reader;
+	private final StringBuilder text = new StringBuilder();
+
+	private long lineNumber;
+	private String line;
+	private int pos;
+
+	public JsonLinesRecordReader(BufferedReader reader) {
+		this.reader = reader;
+	}
+
+	@Override
+	public Map<String, String> next() throws IOException {
+		while((line = reader.readLine()) != null) {
+			lineNumber++;
+			pos = 0;
+			skipWhitespace();
+
+			if(pos < line.length()) {
+				return readObject();
+			}
+		}
+
+		return null;
+	}
+
+	@Override
+	public long getLineNumber() {
+		return lineNumber;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	private Map<String, String> readObject() throws IOException {
+		Map<String, String> record = new HashMap<>();
+		expect('{');
+		skipWhitespace();
+
+		if(peek() == '}') {
+			pos++;
+		}
+		else {
+			while(true) {
+				skipWhitespace();
+				expect('"');
+				String name = readString();
+				skipWhitespace();
+				expect(':');
+				skipWhitespace();
+
+				if(record.containsKey(name)) {
+					throw error("Duplicate key \"" + name + "\"");
+				}
+
+				record.put(name, readValue());
+
+				skipWhitespace();
+				char ch = nextChar();
+
+				if(ch == '}') {
+					break;
+				}
+
+				if(ch != ',') {
+					throw error("Expected ',' or '}' but found '" + ch + "'");
+				}
+			}
+		}
+
+		skipWhitespace();
+
+		if(pos < line.length()) {
+			throw error("Unexpected text after the end of the object");
+		}
+
+		return record;
+	}
+
+	private String readValue() throws IOException {
+		char ch = peek();
+
+		if(ch == '"') {
+			pos++;
+			return readString();
+		}
+
+		if(ch == '{' || ch == '[') {
+			throw error("Nested objects and arrays are not supported");
+		}
+
+		int start = pos;
+
+		while(pos < line.length() && ",}\t\r\n ".indexOf(line.charAt(pos)) < 0) {
+			pos++;
+		}
+
+		String literal = line.substring(start, pos);
+
+		if(literal.equals("null")) {
+			return null;
+		}
+
+		if(literal.equals("true") || literal.equals("false")) {
+			return literal;
+		}
+
+		if(NUMBER.matcher(literal).matches()) {
+			return literal;
+		}
+
+		throw error("Invalid value '" + literal + "'");
+	}
+
+	// Reads a string whose opening quote has already been consumed
+	private String readString() throws IOException {
+		text.setLength(0);
+
+		while(true) {
+			char ch = nextChar();
+
+			if(ch == '"') {
+				return text.toString();
+			}
+
+			if(ch != '\\') {
+				text.append(ch);
+				continue;
+			}
+
+			char escaped = nextChar();
+
+			switch(escaped) {
+			case '"':
+			case '\\':
+			case '/':
+				text.append(escaped);
+				break;
+			case 'b':
+				text.append('\b');
+				break;
+			case 'f':
+				text.append('\f');
+				break;
+			case 'n':
+				text.append('\n');
+				break;
+			case 'r':
+				text.append('\r');
+				break;
+			case 't':
+				text.append('\t');
+				break;
+			case 'u':
+				if(pos + 4 > line.length()) {
+					throw error("Incomplete \\u escape");
+				}
+
+				try {
+					text.append((char)Integer.parseInt(line.substring(pos, pos + 4), 16));
+				}
+				catch(NumberFormatException e) {
+					throw error("Invalid \\u escape");
+				}
+
+				pos += 4;
+				break;
+			default:
+				throw error("Invalid escape \\" + escaped);
+			}
+		}
+	}
+
+	private void skipWhitespace() {
+		while(pos < line.length() && Character.isWhitespace(line.charAt(pos))) {
+			pos++;
+		}
+	}
+
+	private void expect(char expected) throws IOException {
+		char ch = nextChar();
+
+		if(ch != expected) {
+			throw error("Expected '" + expected + "' but found '" + ch + "'");
+		}
+	}
+
+	private char peek() throws IOException {
+		if(pos >= line.length()) {
+			throw error("Unexpected end of line");
+		}
+
+		return line.charAt(pos);
+	}
+
+	private char nextChar() throws IOException {
+		char ch = peek();
+		pos++;
+		return ch;
+	}
+
+	private IOException error(String message) {
+		return new IOException(message + " on line " + lineNumber + ", column " + (pos + 1));
+	}
+}
@@ -0,0 +1,45 @@
+package projects.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+
+/* RecordReader reads an import file one record at a time, so only the current record is held in
+ * memory no matter how large the file is. A record maps column names to their text values; a
+ * null value means the column is NULL.
+ */
+public interface RecordReader extends AutoCloseable {
+
+	// Returns the next record, or null at the end of the file
+	Map<String, String> next() throws IOException;
+
+	// The line number of the record returned by the last call to next(), for error messages
+	long getLineNumber();
+
+	@Override
+	void close() throws IOException;
+
+	/* Opens the file with the reader that matches its extension: .csv files must start with a
+	 * header row, .jsonl/.ndjson files contain one flat JSON object per line.
+	 */
+	static RecordReader open(Path file) throws IOException {
+		String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+		BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+
+		if(name.endsWith(".csv")) {
+			return new CsvRecordReader(reader);
+		}
+
+		if(name.endsWith(".jsonl") || name.endsWith(".ndjson")) {
+			return new JsonLinesRecordReader(reader);
+		}
+
+		reader.close();
+		throw new IllegalArgumentException("Unsupported import file " + file
+				+ ". Use a .csv, .jsonl or .ndjson file.");
+	}
+}
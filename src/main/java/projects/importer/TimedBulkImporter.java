@@ -0,0 +1,25 @@
+package projects.importer;
+
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+import projects.metrics.Metrics;
+
+/* TimedBulkImporter records the time and failures of each file import under
+ * "importer.importFile" in Metrics, the same way TimedProjectDao times the DAO. importFiles goes
+ * through importFile, so every file of a multi-file import is timed.
+ */
+public class TimedBulkImporter extends BulkImporter {
+	public TimedBulkImporter() {
+		super();
+	}
+
+	public TimedBulkImporter(int chunkSize, Consumer<ImportResult> progressListener) {
+		super(chunkSize, progressListener);
+	}
+
+	@Override
+	public ImportResult importFile(ImportTable table, Path file) {
+		return Metrics.get().time("importer.importFile", () -> super.importFile(table, file));
+	}
+}
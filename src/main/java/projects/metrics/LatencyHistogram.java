@@ -0,0 +1,92 @@
+package projects.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/* LatencyHistogram records durations in nanoseconds into log-linear buckets, the layout used by
+ * HDR histograms: every power of two is split into 32 equal buckets, so any recorded value is
+ * reported within about 3% no matter whether it is a microsecond or a minute. Recording is one
+ * array increment and is safe to call from many threads at once without locking.
+ */
+public class LatencyHistogram {
+	private static final int LINEAR_BUCKETS = 64;
+	private static final int SUB_BUCKETS = 32;
+	// Values above 2^40 ns (about 18 minutes) are recorded as 2^40 ns
+	private static final int MAX_EXPONENT = 40;
+	private static final long MAX_VALUE = (1L << MAX_EXPONENT) - 1;
+	private static final int BUCKET_COUNT = LINEAR_BUCKETS + (MAX_EXPONENT - 5) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+
+	public void record(long nanos) {
+		long value = Math.max(0, Math.min(nanos, MAX_VALUE));
+
+		counts.incrementAndGet(bucketIndex(value));
+		count.increment();
+		sum.add(value);
+
+		if(value > max.get()) {
+			max.accumulateAndGet(value, Math::max);
+		}
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public long getMaxNanos() {
+		return max.get();
+	}
+
+	public long getMeanNanos() {
+		long total = count.sum();
+		return total == 0 ? 0 : sum.sum() / total;
+	}
+
+	/* Returns the value below which the given fraction (0.0 to 1.0) of the recorded values fall,
+	 * rounded up to the top of its bucket.
+	 */
+	public long getPercentileNanos(double fraction) {
+		long total = count.sum();
+
+		if(total == 0) {
+			return 0;
+		}
+
+		long rank = Math.max(1, (long)Math.ceil(fraction * total));
+		long seen = 0;
+
+		for(int index = 0; index < BUCKET_COUNT; index++) {
+			seen += counts.get(index);
+
+			if(seen >= rank) {
+				return Math.min(bucketUpperBound(index), max.get());
+			}
+		}
+
+		return max.get();
+	}
+
+	private static int bucketIndex(long value) {
+		if(value < LINEAR_BUCKETS) {
+			return (int)value;
+		}
+
+		int shift = 63 - Long.numberOfLeadingZeros(value) - 5;
+		return LINEAR_BUCKETS + (shift - 1) * SUB_BUCKETS + (int)((value >>> shift) - SUB_BUCKETS);
+	}
+
+	private static long bucketUpperBound(int index) {
+		if(index < LINEAR_BUCKETS) {
+			return index;
+		}
+
+		int shift = (index - LINEAR_BUCKETS) / SUB_BUCKETS + 1;
+		long subBucket = (index - LINEAR_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+		return ((subBucket + 1) << shift) - 1;
+	}
+}
@@ -0,0 +1,130 @@
+package projects.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/* Metrics is the process-wide registry of operation timings. The Timed* decorators
+ * (TimedProjectDao, TimedProjectService, TimedStepSequencer, TimedBulkImporter) wrap each public
+ * operation in time(...), which records its latency and whether it failed. Work that no public
+ * call covers is timed where it runs: connection checkouts in DbConnection and each group of
+ * GroupCommitWriter on its own thread. Rows mapped while an operation runs are added to that
+ * operation with rowsMapped(...). The counters can be read with snapshot() or through JMX under
+ * the name projects:type=Metrics.
+ */
+public class Metrics implements MetricsMXBean {
+	private static final Metrics INSTANCE = new Metrics();
+
+	static {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE,
+					new ObjectName("projects:type=Metrics"));
+		}
+		catch(JMException e) {
+			System.out.println("Unable to register metrics with JMX: " + e);
+		}
+	}
+
+	private final Map<String, OperationStats> operations = new ConcurrentHashMap<>();
+	private final LongAdder commits = new LongAdder();
+	private final LongAdder rollbacks = new LongAdder();
+
+	// The innermost operation running on each thread, so rows can be attributed to it
+	private final ThreadLocal<OperationStats> current = new ThreadLocal<>();
+
+	private Metrics() {
+	}
+
+	public static Metrics get() {
+		return INSTANCE;
+	}
+
+	/* Runs the body as the named operation and records how long it took and whether it threw. */
+	public <T> T time(String operation, Supplier<T> body) {
+		OperationStats stats = stats(operation);
+		OperationStats outer = current.get();
+		long start = System.nanoTime();
+		boolean failed = true;
+
+		current.set(stats);
+
+		try {
+			T result = body.get();
+			failed = false;
+			return result;
+		}
+		finally {
+			stats.record(System.nanoTime() - start, failed);
+
+			if(outer == null) {
+				current.remove();
+			}
+			else {
+				current.set(outer);
+			}
+		}
+	}
+
+	public void time(String operation, Runnable body) {
+		time(operation, () -> {
+			body.run();
+			return null;
+		});
+	}
+
+	/* Adds to the number of rows mapped by the operation currently running on this thread. */
+	public void rowsMapped(long count) {
+		OperationStats stats = current.get();
+
+		if(stats != null) {
+			stats.addRows(count);
+		}
+	}
+
+	public void commit() {
+		commits.increment();
+	}
+
+	public void rollback() {
+		rollbacks.increment();
+	}
+
+	private OperationStats stats(String operation) {
+		OperationStats stats = operations.get(operation);
+		return stats != null ? stats : operations.computeIfAbsent(operation, name -> new OperationStats());
+	}
+
+	public MetricsSnapshot snapshot() {
+		return new MetricsSnapshot(getOperations(), commits.sum(), rollbacks.sum());
+	}
+
+	@Override
+	public Map<String, OperationSnapshot> getOperations() {
+		Map<String, OperationSnapshot> result = new TreeMap<>();
+		operations.forEach((name, stats) -> result.put(name, stats.snapshot(name)));
+		return result;
+	}
+
+	@Override
+	public long getCommits() {
+		return commits.sum();
+	}
+
+	@Override
+	public long getRollbacks() {
+		return rollbacks.sum();
+	}
+
+	@Override
+	public void reset() {
+		operations.clear();
+		commits.reset();
+		rollbacks.reset();
+	}
+}
@@ -0,0 +1,16 @@
+package projects.metrics;
+
+import java.util.Map;
+
+/* The JMX view of Metrics, registered as projects:type=Metrics. Any JMX console (jconsole,
+ * VisualVM) can browse the per-operation latencies and counters while the application runs.
+ */
+public interface MetricsMXBean {
+	Map<String, OperationSnapshot> getOperations();
+
+	long getCommits();
+
+	long getRollbacks();
+
+	void reset();
+}
@@ -0,0 +1,43 @@
+package projects.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+
+/* A point-in-time copy of all counters kept by Metrics */
+public class MetricsSnapshot {
+	private final Map<String, OperationSnapshot> operations;
+	private final long commits;
+	private final long rollbacks;
+
+	MetricsSnapshot(Map<String, OperationSnapshot> operations, long commits, long rollbacks) {
+		this.operations = Collections.unmodifiableMap(operations);
+		this.commits = commits;
+		this.rollbacks = rollbacks;
+	}
+
+	// Operation name (for example dao.fetchProjectById) to its counters, sorted by name
+	public Map<String, OperationSnapshot> getOperations() {
+		return operations;
+	}
+
+	public long getCommits() {
+		return commits;
+	}
+
+	public long getRollbacks() {
+		return rollbacks;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder result = new StringBuilder();
+
+		result.append("commits=").append(commits).append(", rollbacks=").append(rollbacks);
+
+		for(OperationSnapshot operation : operations.values()) {
+			result.append("\n   ").append(operation);
+		}
+
+		return result.toString();
+	}
+}
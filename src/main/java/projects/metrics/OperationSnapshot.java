@@ -0,0 +1,78 @@
+package projects.metrics;
+
+import java.beans.ConstructorProperties;
+
+/* A point-in-time copy of the counters of one operation. Latencies are in microseconds. */
+public class OperationSnapshot {
+	private final String name;
+	private final long calls;
+	private final long errors;
+	private final long rows;
+	private final long meanMicros;
+	private final long p50Micros;
+	private final long p95Micros;
+	private final long p99Micros;
+	private final long maxMicros;
+
+	@ConstructorProperties({ "name", "calls", "errors", "rows", "meanMicros", "p50Micros", "p95Micros",
+			"p99Micros", "maxMicros" })
+	public OperationSnapshot(String name, long calls, long errors, long rows, long meanMicros,
+			long p50Micros, long p95Micros, long p99Micros, long maxMicros) {
+		this.name = name;
+		this.calls = calls;
+		this.errors = errors;
+		this.rows = rows;
+		this.meanMicros = meanMicros;
+		this.p50Micros = p50Micros;
+		this.p95Micros = p95Micros;
+		this.p99Micros = p99Micros;
+		this.maxMicros = maxMicros;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getCalls() {
+		return calls;
+	}
+
+	public long getErrors() {
+		return errors;
+	}
+
+	public double getErrorRate() {
+		return calls == 0 ? 0.0 : (double)errors / calls;
+	}
+
+	public long getRows() {
+		return rows;
+	}
+
+	public long getMeanMicros() {
+		return meanMicros;
+	}
+
+	public long getP50Micros() {
+		return p50Micros;
+	}
+
+	public long getP95Micros() {
+		return p95Micros;
+	}
+
+	public long getP99Micros() {
+		return p99Micros;
+	}
+
+	public long getMaxMicros() {
+		return maxMicros;
+	}
+
+	@Override
+	public String toString() {
+		return name + ": calls=" + calls + ", errors=" + errors + ", rows=" + rows + ", mean=" + meanMicros
+				+ "us, p50=" + p50Micros + "us, p95=" + p95Micros + "us, p99=" + p99Micros + "us, max="
+				+ maxMicros + "us";
+	}
+}
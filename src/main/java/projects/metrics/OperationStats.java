@@ -0,0 +1,33 @@
+package projects.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/* The counters kept for one named operation: a latency histogram of every call, the number of
+ * calls that failed and the number of rows mapped.
+ */
+public class OperationStats {
+	private final LatencyHistogram latency = new LatencyHistogram();
+	private final LongAdder errors = new LongAdder();
+	private final LongAdder rows = new LongAdder();
+
+	void record(long nanos, boolean failed) {
+		latency.record(nanos);
+
+		if(failed) {
+			errors.increment();
+		}
+	}
+
+	void addRows(long count) {
+		rows.add(count);
+	}
+
+	OperationSnapshot snapshot(String name) {
+		long calls = latency.getCount();
+
+		return new OperationSnapshot(name, calls, errors.sum(), rows.sum(),
+				latency.getMeanNanos() / 1000, latency.getPercentileNanos(0.50) / 1000,
+				latency.getPercentileNanos(0.95) / 1000, latency.getPercentileNanos(0.99) / 1000,
+				latency.getMaxNanos() / 1000);
+	}
+}
@@ -0,0 +1,104 @@
+package projects.migration;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import projects.exception.DbException;
+
+/* One versioned migration script, loaded from the classpath. File names follow the pattern
+ * V<version>__<description>.sql, for example V2__hot_query_indexes.sql.
+ *
+ * A script is a list of statements, each ending with a semicolon at the end of a line. Lines
+ * starting with -- are comments. Statements may span several lines but must not contain a
+ * semicolon at the end of a line inside a string literal.
+ */
+class Migration {
+	private static final Pattern FILE_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+	private static final Pattern STATEMENT_END = Pattern.compile(";\\s*$");
+
+	private final int version;
+	private final String description;
+	private final String script;
+	private final String text;
+
+	private Migration(int version, String description, String script, String text) {
+		this.version = version;
+		this.description = description;
+		this.script = script;
+		this.text = text;
+	}
+
+	static Migration load(String location, String script) {
+		Matcher matcher = FILE_NAME.matcher(script);
+
+		if(!matcher.matches()) {
+			throw new DbException("Migration " + script + " does not match V<version>__<description>.sql");
+		}
+
+		try(InputStream in = Migration.class.getClassLoader().getResourceAsStream(location + script)) {
+			if(Objects.isNull(in)) {
+				throw new DbException("Migration " + location + script + " is not on the classpath");
+			}
+
+			String text = new String(in.readAllBytes(), StandardCharsets.UTF_8).replace("\r\n", "\n");
+			return new Migration(Integer.parseInt(matcher.group(1)), matcher.group(2).replace('_', ' '), script, text);
+		}
+		catch(IOException e) {
+			throw new DbException("Unable to read migration " + location + script, e);
+		}
+	}
+
+	int getVersion() {
+		return version;
+	}
+
+	String getDescription() {
+		return description;
+	}
+
+	String getScript() {
+		return script;
+	}
+
+	// CRC32 of the script text; an applied migration whose file has since been edited no longer matches
+	long getChecksum() {
+		CRC32 crc = new CRC32();
+		crc.update(text.getBytes(StandardCharsets.UTF_8));
+		return crc.getValue();
+	}
+
+	List<String> getStatements() {
+		List<String> statements = new ArrayList<>();
+		StringBuilder statement = new StringBuilder();
+
+		for(String line : text.split("\n")) {
+			if(line.strip().startsWith("--")) {
+				continue;
+			}
+
+			Matcher end = STATEMENT_END.matcher(line);
+
+			if(end.find()) {
+				statement.append(line, 0, end.start());
+				statements.add(statement.toString().strip());
+				statement.setLength(0);
+			}
+			else {
+				statement.append(line).append('\n');
+			}
+		}
+
+		if(!statement.toString().isBlank()) {
+			statements.add(statement.toString().strip());
+		}
+
+		return statements;
+	}
+}
@@ -0,0 +1,206 @@
+package projects.migration;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import projects.dao.DbConnection;
+import projects.dao.QueryPlanCheck;
+import projects.exception.DbException;
+import provided.util.DaoBase;
+
+/* MigrationRunner brings a database up to the current schema version without losing data.
+ * The applied versions are recorded in the schema_version table along with a checksum of each
+ * script. Every run applies the scripts listed in MIGRATIONS that are not recorded yet, in
+ * version order, and refuses to run if an applied script has been edited since.
+ *
+ * projects-schema.sql still drops and recreates everything; use it only for a fresh database.
+ * Migrations are the way to change a database that holds data. To change the schema, add a new
+ * V<n+1>__<description>.sql file under db/migration and list it in MIGRATIONS. Never edit a
+ * script that has been released.
+ *
+ * Run it with: java projects.migration.MigrationRunner. After migrating, it runs QueryPlanCheck.
+ */
+public class MigrationRunner extends DaoBase {
+	private static final String LOCATION = "db/migration/";
+
+	// @formatter:off
+	private static final List<String> MIGRATIONS = List.of(
+		"V1__baseline.sql",
+		"V2__hot_query_indexes.sql",
+		"V3__rollup_tables.sql"
+	);
+
+	private static final String VERSION_TABLE = ""
+		+ "CREATE TABLE IF NOT EXISTS schema_version ("
+		+ "version INT NOT NULL, "
+		+ "description VARCHAR(200) NOT NULL, "
+		+ "script VARCHAR(255) NOT NULL, "
+		+ "checksum BIGINT NOT NULL, "
+		+ "installed_on TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, "
+		+ "execution_millis INT NOT NULL, "
+		+ "PRIMARY KEY (version))";
+
+	private static final String VERSION_SELECT =
+		"SELECT version, script, checksum FROM schema_version ORDER BY version";
+
+	private static final String VERSION_INSERT = ""
+		+ "INSERT INTO schema_version (version, description, script, checksum, execution_millis) "
+		+ "VALUES (?, ?, ?, ?, ?)";
+	// @formatter:on
+
+	// Several application instances may start at once; only one of them migrates at a time
+	private static final String LOCK_NAME = "projects.schema_version";
+	private static final int LOCK_TIMEOUT_SECONDS = 60;
+
+	public static void main(String[] args) {
+		int applied = new MigrationRunner().migrate();
+		System.out.println(applied == 0 ? "The schema is up to date." : "Applied " + applied + " migrations.");
+
+		for(String line : new QueryPlanCheck().verify()) {
+			System.out.println(line);
+		}
+	}
+
+	/* Applies every pending migration and returns how many were applied. */
+	public int migrate() {
+		List<Migration> migrations = new ArrayList<>();
+
+		for(String script : MIGRATIONS) {
+			migrations.add(Migration.load(LOCATION, script));
+		}
+
+		try(Connection conn = DbConnection.getConnection()) {
+			boolean locked = lock(conn);
+
+			try {
+				return migrate(conn, migrations);
+			}
+			finally {
+				if(locked) {
+					unlock(conn);
+				}
+			}
+		}
+		catch(SQLException e) {
+			throw new DbException(e);
+		}
+	}
+
+	private int migrate(Connection conn, List<Migration> migrations) throws SQLException {
+		try(Statement stmt = conn.createStatement()) {
+			stmt.execute(VERSION_TABLE);
+		}
+
+		Map<Integer, Long> appliedChecksums = new HashMap<>();
+
+		try(PreparedStatement stmt = conn.prepareStatement(VERSION_SELECT); ResultSet rs = stmt.executeQuery()) {
+			while(rs.next()) {
+				appliedChecksums.put(rs.getInt("version"), rs.getLong("checksum"));
+			}
+		}
+
+		int applied = 0;
+		int latest = 0;
+
+		for(Migration migration : migrations) {
+			if(migration.getVersion() <= latest) {
+				throw new DbException("Migration " + migration.getScript() + " is out of order");
+			}
+
+			latest = migration.getVersion();
+			Long checksum = appliedChecksums.remove(migration.getVersion());
+
+			if(Objects.nonNull(checksum)) {
+				if(checksum != migration.getChecksum()) {
+					throw new DbException("Migration " + migration.getScript() + " was changed after it was applied."
+							+ " Restore the original script and add a new migration instead.");
+				}
+
+				continue;
+			}
+
+			apply(conn, migration);
+			applied++;
+		}
+
+		if(!appliedChecksums.isEmpty()) {
+			System.out.println("The database has migrations this application does not know about: versions "
+					+ appliedChecksums.keySet());
+		}
+
+		return applied;
+	}
+
+	/* MySQL commits DDL statements immediately, so a migration cannot be rolled back as a whole.
+	 * The version is recorded only after every statement succeeded; if one fails, the error says
+	 * which statements already ran.
+	 */
+	private void apply(Connection conn, Migration migration) throws SQLException {
+		System.out.println("Applying migration " + migration.getScript());
+
+		long startedAt = System.nanoTime();
+		List<String> statements = migration.getStatements();
+
+		try(Statement stmt = conn.createStatement()) {
+			for(int index = 0; index < statements.size(); index++) {
+				try {
+					stmt.execute(statements.get(index));
+				}
+				catch(SQLException e) {
+					throw new DbException("Migration " + migration.getScript() + " failed at statement " + (index + 1)
+							+ " of " + statements.size() + "; the statements before it have been applied: "
+							+ statements.get(index), e);
+				}
+			}
+		}
+
+		try(PreparedStatement stmt = conn.prepareStatement(VERSION_INSERT)) {
+			setParameter(stmt, 1, migration.getVersion(), Integer.class);
+			setParameter(stmt, 2, migration.getDescription(), String.class);
+			setParameter(stmt, 3, migration.getScript(), String.class);
+			stmt.setLong(4, migration.getChecksum());
+			setParameter(stmt, 5, (int)((System.nanoTime() - startedAt) / 1_000_000), Integer.class);
+			stmt.executeUpdate();
+		}
+	}
+
+	// Takes a MySQL named lock; other databases run unlocked
+	private boolean lock(Connection conn) throws SQLException {
+		if(!isMySql(conn)) {
+			return false;
+		}
+
+		try(PreparedStatement stmt = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+			setParameter(stmt, 1, LOCK_NAME, String.class);
+			setParameter(stmt, 2, LOCK_TIMEOUT_SECONDS, Integer.class);
+
+			try(ResultSet rs = stmt.executeQuery()) {
+				if(!rs.next() || rs.getInt(1) != 1) {
+					throw new DbException("Another process is migrating the schema; gave up after "
+							+ LOCK_TIMEOUT_SECONDS + " seconds");
+				}
+			}
+		}
+
+		return true;
+	}
+
+	private void unlock(Connection conn) throws SQLException {
+		try(PreparedStatement stmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+			setParameter(stmt, 1, LOCK_NAME, String.class);
+			stmt.executeQuery().close();
+		}
+	}
+
+	private boolean isMySql(Connection conn) throws SQLException {
+		return "MySQL".equals(conn.getMetaData().getDatabaseProductName());
+	}
+}
@@ -0,0 +1,391 @@
+package projects.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import projects.entity.Project;
+import projects.entity.Step;
+
+/* SearchIndex is an in-memory inverted index over the notes and step text of every project.
+ * For each term it keeps, per project, the sorted positions at which the term occurs, so queries
+ * can match exact phrases as well as single terms.
+ *
+ * A project's notes occupy positions 0 and up; its steps start at STEPS_OFFSET, in step order,
+ * with one unused position between consecutive steps so that a phrase never matches across two
+ * steps. Keeping the two apart lets setNotes replace the notes without needing the steps.
+ *
+ * Queries are a list of terms and "quoted phrases". A project matches when it contains all of
+ * them; matches are ranked with BM25 over the query terms. Searches share a read lock and run
+ * concurrently; updates take the write lock.
+ */
+public class SearchIndex {
+	static final int STEPS_OFFSET = 1 << 24;
+
+	// BM25 parameters: term frequency saturation and document length normalization
+	private static final double K1 = 1.2;
+	private static final double B = 0.75;
+
+	private final Map<String, Map<Integer, int[]>> postings = new HashMap<>();
+	private final Map<Integer, Document> documents = new HashMap<>();
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private long totalLength;
+
+	/* Adds or replaces a project with its notes and steps. */
+	public void put(Project project) {
+		lock.writeLock().lock();
+
+		try {
+			removeDocument(project.getProjectId());
+
+			Document document = document(project.getProjectId());
+			document.projectName = project.getProjectName();
+			addTerms(project.getProjectId(), document, Tokenizer.tokenize(project.getNotes()), 0);
+
+			for(Step step : project.getSteps()) {
+				appendStep(project.getProjectId(), document, step.getStepText());
+			}
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void setProjectName(Integer projectId, String projectName) {
+		lock.writeLock().lock();
+
+		try {
+			document(projectId).projectName = projectName;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/* Replaces a project's notes and keeps its indexed steps. Used when the notes change but the
+	 * steps do not, and for the project rows of a streaming scan.
+	 */
+	public void setNotes(Integer projectId, String notes) {
+		lock.writeLock().lock();
+
+		try {
+			Document document = document(projectId);
+
+			for(String term : new ArrayList<>(document.terms)) {
+				Map<Integer, int[]> termPostings = postings.get(term);
+				int[] positions = termPostings.get(projectId);
+				int firstStep = firstAtOrAbove(positions, STEPS_OFFSET);
+
+				if(firstStep == 0) {
+					continue;
+				}
+
+				if(firstStep == positions.length) {
+					removePosting(term, termPostings, projectId);
+					document.terms.remove(term);
+				}
+				else {
+					termPostings.put(projectId, Arrays.copyOfRange(positions, firstStep, positions.length));
+				}
+			}
+
+			totalLength -= document.notesLength;
+			document.notesLength = 0;
+			addTerms(projectId, document, Tokenizer.tokenize(notes), 0);
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/* Appends one step to a project, after the steps already indexed. Steps must be appended in
+	 * step order.
+	 */
+	public void appendStep(Integer projectId, String stepText) {
+		lock.writeLock().lock();
+
+		try {
+			appendStep(projectId, document(projectId), stepText);
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public void remove(Integer projectId) {
+		lock.writeLock().lock();
+
+		try {
+			removeDocument(projectId);
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	public int size() {
+		lock.readLock().lock();
+
+		try {
+			return documents.size();
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/* Returns at most limit projects that contain every term and phrase of the query, best first. */
+	public List<SearchResult> search(String query, int limit) {
+		List<List<String>> clauses = parse(query);
+
+		if(clauses.isEmpty() || limit <= 0) {
+			return new ArrayList<>();
+		}
+
+		lock.readLock().lock();
+
+		try {
+			List<String> terms = new ArrayList<>();
+
+			for(List<String> clause : clauses) {
+				for(String term : clause) {
+					if(!postings.containsKey(term)) {
+						return new ArrayList<>();
+					}
+
+					terms.add(term);
+				}
+			}
+
+			// Walk the shortest posting list and check the other clauses against each of its projects
+			String rarest = terms.get(0);
+
+			for(String term : terms) {
+				if(postings.get(term).size() < postings.get(rarest).size()) {
+					rarest = term;
+				}
+			}
+
+			double averageLength = documents.isEmpty() ? 1.0 : Math.max(1.0, (double)totalLength / documents.size());
+			PriorityQueue<SearchResult> best = new PriorityQueue<>(
+					(left, right) -> Double.compare(left.getScore(), right.getScore()));
+
+			for(Integer projectId : postings.get(rarest).keySet()) {
+				if(!matchesAll(projectId, clauses)) {
+					continue;
+				}
+
+				Document document = documents.get(projectId);
+				double score = score(projectId, document, terms, averageLength);
+
+				if(best.size() < limit) {
+					best.add(new SearchResult(projectId, document.projectName, score));
+				}
+				else if(score > best.peek().getScore()) {
+					best.poll();
+					best.add(new SearchResult(projectId, document.projectName, score));
+				}
+			}
+
+			List<SearchResult> results = new ArrayList<>(best);
+			results.sort((left, right) -> Double.compare(right.getScore(), left.getScore()));
+			return results;
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/* Splits a query into clauses: each quoted phrase is one clause with several terms, every
+	 * other term is a clause of its own.
+	 */
+	static List<List<String>> parse(String query) {
+		List<List<String>> clauses = new ArrayList<>();
+
+		if(Objects.isNull(query)) {
+			return clauses;
+		}
+
+		String[] parts = query.split("\"", -1);
+
+		for(int index = 0; index < parts.length; index++) {
+			List<String> terms = Tokenizer.tokenize(parts[index]);
+
+			// Odd parts are inside quotes (an unclosed quote runs to the end of the query)
+			if(index % 2 == 1 && terms.size() > 1) {
+				clauses.add(terms);
+			}
+			else {
+				for(String term : terms) {
+					clauses.add(List.of(term));
+				}
+			}
+		}
+
+		return clauses;
+	}
+
+	private boolean matchesAll(Integer projectId, List<List<String>> clauses) {
+		for(List<String> clause : clauses) {
+			int[] first = postings.get(clause.get(0)).get(projectId);
+
+			if(first == null) {
+				return false;
+			}
+
+			if(clause.size() > 1 && !containsPhrase(projectId, clause, first)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private boolean containsPhrase(Integer projectId, List<String> phrase, int[] firstPositions) {
+		int[][] positions = new int[phrase.size()][];
+
+		for(int index = 1; index < phrase.size(); index++) {
+			positions[index] = postings.get(phrase.get(index)).get(projectId);
+
+			if(positions[index] == null) {
+				return false;
+			}
+		}
+
+		for(int start : firstPositions) {
+			boolean match = true;
+
+			for(int index = 1; index < phrase.size() && match; index++) {
+				match = Arrays.binarySearch(positions[index], start + index) >= 0;
+			}
+
+			if(match) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private double score(Integer projectId, Document document, List<String> terms, double averageLength) {
+		double score = 0;
+		int documentCount = documents.size();
+		double lengthNorm = K1 * (1 - B + B * document.length() / averageLength);
+
+		for(String term : terms) {
+			Map<Integer, int[]> termPostings = postings.get(term);
+			int frequency = termPostings.get(projectId).length;
+			int documentFrequency = termPostings.size();
+			double idf = Math.log(1 + (documentCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+			score += idf * frequency * (K1 + 1) / (frequency + lengthNorm);
+		}
+
+		return score;
+	}
+
+	private void appendStep(Integer projectId, Document document, String stepText) {
+		List<String> terms = Tokenizer.tokenize(stepText);
+
+		if(terms.isEmpty()) {
+			return;
+		}
+
+		int start = STEPS_OFFSET + document.stepPositions + (document.stepPositions == 0 ? 0 : 1);
+		document.stepPositions = start - STEPS_OFFSET + terms.size();
+		addTerms(projectId, document, terms, start);
+	}
+
+	/* Adds terms at consecutive positions from start. Notes (start below STEPS_OFFSET) go in front
+	 * of any step positions, steps go after them, so every position list stays sorted.
+	 */
+	private void addTerms(Integer projectId, Document document, List<String> terms, int start) {
+		boolean notes = start < STEPS_OFFSET;
+		Map<String, List<Integer>> added = new HashMap<>();
+
+		for(int index = 0; index < terms.size(); index++) {
+			added.computeIfAbsent(terms.get(index), term -> new ArrayList<>()).add(start + index);
+		}
+
+		for(Map.Entry<String, List<Integer>> entry : added.entrySet()) {
+			int[] positions = entry.getValue().stream().mapToInt(Integer::intValue).toArray();
+			Map<Integer, int[]> termPostings = postings.computeIfAbsent(entry.getKey(), term -> new HashMap<>());
+			int[] existing = termPostings.get(projectId);
+
+			if(existing != null) {
+				int[] merged = new int[existing.length + positions.length];
+				int[] front = notes ? positions : existing;
+				int[] back = notes ? existing : positions;
+				System.arraycopy(front, 0, merged, 0, front.length);
+				System.arraycopy(back, 0, merged, front.length, back.length);
+				positions = merged;
+			}
+
+			termPostings.put(projectId, positions);
+			document.terms.add(entry.getKey());
+		}
+
+		if(notes) {
+			document.notesLength += terms.size();
+		}
+		else {
+			document.stepsLength += terms.size();
+		}
+
+		totalLength += terms.size();
+	}
+
+	private void removeDocument(Integer projectId) {
+		Document document = documents.remove(projectId);
+
+		if(document == null) {
+			return;
+		}
+
+		for(String term : document.terms) {
+			removePosting(term, postings.get(term), projectId);
+		}
+
+		totalLength -= document.length();
+	}
+
+	private void removePosting(String term, Map<Integer, int[]> termPostings, Integer projectId) {
+		termPostings.remove(projectId);
+
+		if(termPostings.isEmpty()) {
+			postings.remove(term);
+		}
+	}
+
+	private Document document(Integer projectId) {
+		return documents.computeIfAbsent(projectId, id -> new Document());
+	}
+
+	// Index of the first position at or above the given value
+	private static int firstAtOrAbove(int[] positions, int value) {
+		int index = Arrays.binarySearch(positions, value);
+		return index >= 0 ? index : -index - 1;
+	}
+
+	/* What the index knows about one project, besides its postings */
+	private static class Document {
+		private String projectName;
+		private final Set<String> terms = new HashSet<>();
+		private int notesLength;
+		private int stepsLength;
+
+		// Positions used by the steps so far, relative to STEPS_OFFSET (including gaps)
+		private int stepPositions;
+
+		private int length() {
+			return notesLength + stepsLength;
+		}
+	}
+}
@@ -0,0 +1,31 @@
+package projects.search;
+
+/* One match of a project search: the project and its relevance score (higher is better). */
+public class SearchResult {
+	private final int projectId;
+	private final String projectName;
+	private final double score;
+
+	SearchResult(int projectId, String projectName, double score) {
+		this.projectId = projectId;
+		this.projectName = projectName;
+		this.score = score;
+	}
+
+	public int getProjectId() {
+		return projectId;
+	}
+
+	public String getProjectName() {
+		return projectName;
+	}
+
+	public double getScore() {
+		return score;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d: %s (%.3f)", projectId, projectName, score);
+	}
+}
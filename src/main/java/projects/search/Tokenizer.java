@@ -0,0 +1,41 @@
+package projects.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/* Splits text into lower-case terms: maximal runs of letters and digits. Everything else
+ * separates terms. Overlong runs are cut at MAX_TERM_LENGTH so a pasted blob cannot bloat the index.
+ */
+final class Tokenizer {
+	static final int MAX_TERM_LENGTH = 64;
+
+	private Tokenizer() {
+	}
+
+	static List<String> tokenize(String text) {
+		List<String> terms = new ArrayList<>();
+
+		if(text == null) {
+			return terms;
+		}
+
+		int length = text.length();
+		int start = -1;
+
+		for(int index = 0; index <= length; index++) {
+			boolean termChar = index < length && Character.isLetterOrDigit(text.charAt(index));
+
+			if(termChar && start < 0) {
+				start = index;
+			}
+			else if(!termChar && start >= 0) {
+				String term = text.substring(start, Math.min(index, start + MAX_TERM_LENGTH));
+				terms.add(term.toLowerCase(Locale.ROOT));
+				start = -1;
+			}
+		}
+
+		return terms;
+	}
+}
@@ -0,0 +1,221 @@
+package projects.service;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import projects.dao.DbConnection;
+import projects.entity.Project;
+
+/* AsyncProjectService is a non-blocking facade over ProjectService. Each method returns at once
+ * with a CompletableFuture that completes when the database call has finished, so a caller can
+ * start thousands of requests without tying up one of its own threads per request.
+ *
+ * The calls run on virtual threads when the JVM supports them (Java 21+). On older JVMs they run
+ * on a fixed pool of platform threads, one per database connection, and extra requests wait in
+ * the executor's queue instead of each holding a thread.
+ *
+ * Either way, at most one request per pooled connection talks to the database at a time. The rest
+ * wait on the limiter, which is much cheaper than waiting inside the connection pool with a
+ * checkout timeout running.
+ *
+ * The number of requests waiting is bounded too (QUEUED_PER_SLOT per connection by default). A
+ * request submitted while that many are already outstanding fails at once with a
+ * RejectedExecutionException, so an overloaded caller sees backpressure instead of an ever
+ * growing queue of futures.
+ *
+ * Each call runs in the caller's DbConnection session, captured when it is submitted, so a read
+ * submitted after a write completed sees that write even when replicas are configured and the two
+ * ran on different pool threads.
+ */
+public class AsyncProjectService implements AutoCloseable {
+	// Default number of requests allowed to wait for each slot of the concurrency limit
+	private static final int QUEUED_PER_SLOT = 64;
+
+	private final ProjectService projectService;
+	private final ExecutorService executor;
+	private final Semaphore limiter;
+	// One permit per request that may be outstanding (running or waiting); taken by the caller
+	private final Semaphore admission;
+	private final int maxOutstanding;
+	private final boolean virtualThreads;
+
+	/* The project cache and search index are process-wide, so a service created here and the one
+	 * the caller already has serve the same cached projects. Pass the caller's own service to share
+	 * anything else it holds.
+	 */
+	public AsyncProjectService() {
+		this(new TimedProjectService());
+	}
+
+	public AsyncProjectService(ProjectService projectService) {
+		this(projectService, DbConnection.getPoolSize());
+	}
+
+	/* maxConcurrency is the number of requests allowed to run against the database at once; it
+	 * should not be larger than the connection pool.
+	 */
+	public AsyncProjectService(ProjectService projectService, int maxConcurrency) {
+		this(projectService, maxConcurrency, maxConcurrency * QUEUED_PER_SLOT);
+	}
+
+	/* maxQueued is the number of requests allowed to wait for the limiter on top of the ones
+	 * running; further requests are rejected until some finish.
+	 */
+	public AsyncProjectService(ProjectService projectService, int maxConcurrency, int maxQueued) {
+		if(maxConcurrency < 1) {
+			throw new IllegalArgumentException("Concurrency limit must be at least 1, was " + maxConcurrency);
+		}
+
+		if(maxQueued < 0) {
+			throw new IllegalArgumentException("Queue limit must not be negative, was " + maxQueued);
+		}
+
+		this.projectService = projectService;
+		this.limiter = new Semaphore(maxConcurrency, true);
+		this.maxOutstanding = maxConcurrency + maxQueued;
+		this.admission = new Semaphore(maxOutstanding);
+
+		ExecutorService virtual = newVirtualThreadExecutor();
+		this.virtualThreads = virtual != null;
+		this.executor = virtualThreads ? virtual : newPlatformThreadExecutor(maxConcurrency, maxQueued);
+	}
+
+	public CompletableFuture<Project> addProject(Project project) {
+		return submit(() -> projectService.addProject(project));
+	}
+
+	public CompletableFuture<Project> fetchProjectById(Integer projectId) {
+		return submit(() -> projectService.fetchProjectById(projectId));
+	}
+
+	public CompletableFuture<List<Project>> fetchAllProjects() {
+		return submit(() -> projectService.fetchAllProjects());
+	}
+
+	public CompletableFuture<Void> modifyProjectDetails(Project project) {
+		return submit(() -> {
+			projectService.modifyProjectDetails(project);
+			return null;
+		});
+	}
+
+	public CompletableFuture<Void> deleteProject(Integer projectId) {
+		return submit(() -> {
+			projectService.deleteProject(projectId);
+			return null;
+		});
+	}
+
+	// True when requests run on virtual threads, false when they run on the platform thread pool
+	public boolean usesVirtualThreads() {
+		return virtualThreads;
+	}
+
+	// Number of requests waiting for a free slot in the concurrency limiter
+	public int getQueuedRequests() {
+		return limiter.getQueueLength();
+	}
+
+	/* Stops accepting requests and waits for the ones already submitted to finish. */
+	@Override
+	public void close() {
+		executor.shutdown();
+
+		try {
+			while(!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+				System.out.println("Waiting for outstanding project requests to finish...");
+			}
+		}
+		catch(InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/* Runs the call on the executor once the limiter has a free slot, or fails at once if too many
+	 * requests are already outstanding. The slot and the admission permit are released when the
+	 * call finishes, whether it succeeded or threw.
+	 */
+	private <T> CompletableFuture<T> submit(Supplier<T> call) {
+		DbConnection.Session session = DbConnection.currentSession();
+
+		if(!admission.tryAcquire()) {
+			return CompletableFuture.failedFuture(new RejectedExecutionException(
+					"Too many outstanding project requests (limit " + maxOutstanding + ")"));
+		}
+
+		try {
+			return CompletableFuture.supplyAsync(() -> {
+				try {
+					return DbConnection.inSession(session, () -> callWithinLimit(call));
+				}
+				finally {
+					admission.release();
+				}
+			}, executor);
+		}
+		catch(RejectedExecutionException e) {
+			// The executor has been shut down
+			admission.release();
+			throw e;
+		}
+	}
+
+	private <T> T callWithinLimit(Supplier<T> call) {
+		try {
+			limiter.acquire();
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CompletionException(e);
+		}
+
+		try {
+			return call.get();
+		}
+		finally {
+			limiter.release();
+		}
+	}
+
+	/* Executors.newVirtualThreadPerTaskExecutor() only exists on Java 21+, and the project is compiled
+	 * for Java 17, so it is looked up reflectively. Returns null when it is not available.
+	 */
+	private static ExecutorService newVirtualThreadExecutor() {
+		try {
+			Method factory = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService)factory.invoke(null);
+		}
+		catch(ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	/* A fixed pool with one daemon thread per permitted concurrent request. The queue holds the
+	 * admitted requests that are waiting. Admission keeps it from filling: the extra room for one
+	 * request per thread covers tasks that have released their permit but not yet their thread.
+	 */
+	private static ExecutorService newPlatformThreadExecutor(int threads, int queueCapacity) {
+		AtomicInteger threadNumber = new AtomicInteger();
+
+		ThreadFactory threadFactory = task -> {
+			Thread thread = new Thread(task, "project-service-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+
+		return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity + threads), threadFactory);
+	}
+}
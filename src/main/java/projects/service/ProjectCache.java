@@ -0,0 +1,308 @@
+package projects.service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import projects.entity.Project;
+
+/* ProjectCache is a bounded in-memory cache of full Project graphs keyed by project ID. It uses
+ * a simplified W-TinyLFU policy, which suits traffic that keeps coming back to a few hot
+ * projects:
+ *   - New entries go into a small LRU "window".
+ *   - When the window overflows, its oldest entry competes with the oldest entry of the main
+ *     LRU area. The one that has been requested more often (as estimated by a count-min sketch
+ *     of recent requests) stays; the other is evicted. A burst of one-off lookups therefore
+ *     cannot push the hot projects out.
+ *   - Entries expire a fixed time after they were loaded.
+ *   - When reads may come from a lagging replica, a project is not cached again until the
+ *     replicas have had time to apply the write that invalidated it; until then a load could
+ *     still return the old version, which would then be served for the whole time to live.
+ *
+ * The cached Project objects are shared between callers and must be treated as read-only.
+ */
+public class ProjectCache {
+	private final int windowMaxSize;
+	private final int mainMaxSize;
+	private final long timeToLiveNanos;
+
+	private final Map<Integer, Entry> window = new LinkedHashMap<>(16, 0.75f, true);
+	private final Map<Integer, Entry> main = new LinkedHashMap<>(16, 0.75f, true);
+	private final FrequencySketch sketch;
+
+	// Incremented on every invalidation; a load that started before an invalidation is not cached
+	private long generation;
+
+	// How long a replica may lag behind, and when each project was invalidated within that time (oldest first)
+	private final long replicaStalenessNanos;
+	private final Map<Integer, Long> recentInvalidations = new LinkedHashMap<>();
+
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long expirations;
+	private long invalidations;
+
+	ProjectCache(int maxSize, long timeToLiveMillis) {
+		this(maxSize, timeToLiveMillis, 0);
+	}
+
+	/* replicaStalenessMillis is how old a read from a replica can be
+	 * (DbConnection.getReplicaStalenessMillis()), 0 when every read goes to the primary.
+	 */
+	ProjectCache(int maxSize, long timeToLiveMillis, long replicaStalenessMillis) {
+		if(maxSize < 2) {
+			throw new IllegalArgumentException("Cache size must be at least 2, was " + maxSize);
+		}
+
+		this.windowMaxSize = Math.max(1, maxSize / 100);
+		this.mainMaxSize = maxSize - windowMaxSize;
+		this.timeToLiveNanos = timeToLiveMillis * 1_000_000;
+		this.sketch = new FrequencySketch(maxSize);
+		this.replicaStalenessNanos = replicaStalenessMillis * 1_000_000;
+	}
+
+	/* Returns the cached project, or null on a miss. A null ID is never cached and counts as a miss. */
+	synchronized Project get(Integer projectId) {
+		if(Objects.isNull(projectId)) {
+			misses++;
+			return null;
+		}
+
+		sketch.increment(projectId);
+
+		Map<Integer, Entry> area = window.containsKey(projectId) ? window : main;
+		Entry entry = area.get(projectId);
+
+		if(Objects.nonNull(entry) && System.nanoTime() - entry.loadedAt > timeToLiveNanos) {
+			area.remove(projectId);
+			expirations++;
+			entry = null;
+		}
+
+		if(Objects.isNull(entry)) {
+			misses++;
+			return null;
+		}
+
+		hits++;
+		return entry.project;
+	}
+
+	/* Call before loading a project from the database; pass the result to putIfCurrent. */
+	synchronized long startLoad() {
+		return generation;
+	}
+
+	/* Caches a project that was loaded after startLoad returned the given generation, unless an
+	 * invalidation happened in the meantime. That keeps a slow reader from caching a version of
+	 * the project that a concurrent update has already replaced. Nor is a project cached while a
+	 * replica may still be serving the version from before its last invalidation.
+	 */
+	synchronized void putIfCurrent(Project project, long loadGeneration) {
+		Integer projectId = project.getProjectId();
+
+		if(loadGeneration != generation || invalidatedRecently(projectId)) {
+			return;
+		}
+
+		main.remove(projectId);
+		window.put(projectId, new Entry(project));
+
+		if(window.size() > windowMaxSize) {
+			admitFromWindow();
+		}
+	}
+
+	/* Moves the oldest window entry into the main area if it is requested more often than the
+	 * entry it would displace.
+	 */
+	private void admitFromWindow() {
+		Iterator<Map.Entry<Integer, Entry>> windowOldest = window.entrySet().iterator();
+		Map.Entry<Integer, Entry> candidate = windowOldest.next();
+		windowOldest.remove();
+
+		if(main.size() < mainMaxSize) {
+			main.put(candidate.getKey(), candidate.getValue());
+			return;
+		}
+
+		Iterator<Map.Entry<Integer, Entry>> mainOldest = main.entrySet().iterator();
+		Map.Entry<Integer, Entry> victim = mainOldest.next();
+
+		evictions++;
+
+		if(sketch.frequency(candidate.getKey()) > sketch.frequency(victim.getKey())) {
+			mainOldest.remove();
+			main.put(candidate.getKey(), candidate.getValue());
+		}
+	}
+
+	synchronized void invalidate(Integer projectId) {
+		if(Objects.isNull(projectId)) {
+			return;
+		}
+
+		generation++;
+		invalidations++;
+		window.remove(projectId);
+		main.remove(projectId);
+
+		if(replicaStalenessNanos > 0) {
+			forgetOldInvalidations();
+			recentInvalidations.remove(projectId);
+			recentInvalidations.put(projectId, System.nanoTime());
+		}
+	}
+
+	// True if the project was invalidated less than replicaStalenessNanos ago
+	private boolean invalidatedRecently(Integer projectId) {
+		forgetOldInvalidations();
+		return recentInvalidations.containsKey(projectId);
+	}
+
+	private void forgetOldInvalidations() {
+		long now = System.nanoTime();
+		Iterator<Long> oldest = recentInvalidations.values().iterator();
+
+		while(oldest.hasNext() && now - oldest.next() >= replicaStalenessNanos) {
+			oldest.remove();
+		}
+	}
+
+	synchronized void clear() {
+		generation++;
+		window.clear();
+		main.clear();
+	}
+
+	synchronized Stats getStats() {
+		return new Stats(window.size() + main.size(), hits, misses, evictions, expirations, invalidations);
+	}
+
+	private static class Entry {
+		private final Project project;
+		private final long loadedAt = System.nanoTime();
+
+		private Entry(Project project) {
+			this.project = project;
+		}
+	}
+
+	/* A count-min sketch of how often each project ID has been requested recently. Counters are
+	 * capped at 15 and all halved once enough requests have been counted, so old popularity
+	 * fades and the sketch adapts when the hot set changes.
+	 */
+	private static class FrequencySketch {
+		private static final int DEPTH = 4;
+		private static final int MAX_COUNT = 15;
+		private static final int[] SEEDS = { 0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F };
+
+		private final int[][] counters;
+		private final int mask;
+		private final int sampleSize;
+		private int additions;
+
+		private FrequencySketch(int maxSize) {
+			int width = Integer.highestOneBit(Math.max(16, maxSize) * 2 - 1);
+			this.counters = new int[DEPTH][width];
+			this.mask = width - 1;
+			this.sampleSize = 10 * maxSize;
+		}
+
+		private void increment(int key) {
+			for(int row = 0; row < DEPTH; row++) {
+				int index = index(key, row);
+
+				if(counters[row][index] < MAX_COUNT) {
+					counters[row][index]++;
+				}
+			}
+
+			if(++additions >= sampleSize) {
+				halve();
+			}
+		}
+
+		private int frequency(int key) {
+			int min = MAX_COUNT;
+
+			for(int row = 0; row < DEPTH; row++) {
+				min = Math.min(min, counters[row][index(key, row)]);
+			}
+
+			return min;
+		}
+
+		private int index(int key, int row) {
+			int hash = key * SEEDS[row];
+			return (hash ^ (hash >>> 16)) & mask;
+		}
+
+		private void halve() {
+			for(int[] row : counters) {
+				for(int index = 0; index < row.length; index++) {
+					row[index] >>>= 1;
+				}
+			}
+
+			additions /= 2;
+		}
+	}
+
+	/* A point-in-time view of the cache counters */
+	public static class Stats {
+		private final int size;
+		private final long hits;
+		private final long misses;
+		private final long evictions;
+		private final long expirations;
+		private final long invalidations;
+
+		private Stats(int size, long hits, long misses, long evictions, long expirations, long invalidations) {
+			this.size = size;
+			this.hits = hits;
+			this.misses = misses;
+			this.evictions = evictions;
+			this.expirations = expirations;
+			this.invalidations = invalidations;
+		}
+
+		public int getSize() {
+			return size;
+		}
+
+		public long getHits() {
+			return hits;
+		}
+
+		public long getMisses() {
+			return misses;
+		}
+
+		public double getHitRate() {
+			long requests = hits + misses;
+			return requests == 0 ? 0.0 : (double)hits / requests;
+		}
+
+		public long getEvictions() {
+			return evictions;
+		}
+
+		public long getExpirations() {
+			return expirations;
+		}
+
+		public long getInvalidations() {
+			return invalidations;
+		}
+
+		@Override
+		public String toString() {
+			return "size=" + size + ", hits=" + hits + ", misses=" + misses
+					+ String.format(", hitRate=%.3f", getHitRate()) + ", evictions=" + evictions
+					+ ", expirations=" + expirations + ", invalidations=" + invalidations;
+		}
+	}
+}
@@ -1,23 +1,100 @@
 package projects.service;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
+import projects.dao.DbConnection;
+import projects.dao.GroupCommitWriter;
+import projects.dao.LazyLoadSession;
 import projects.dao.ProjectDao;
+import projects.dao.StepSequencer;
+import projects.dao.TimedProjectDao;
+import projects.dao.TimedStepSequencer;
+import projects.entity.CategoryRollup;
 import projects.entity.Project;
+import projects.entity.ProjectBatch;
+import projects.entity.ProjectColumn;
+import projects.entity.ProjectRollup;
+import projects.entity.ProjectSummary;
+import projects.entity.Step;
 import projects.exception.DbException;
+import projects.metrics.Metrics;
+import projects.metrics.MetricsSnapshot;
+import projects.search.SearchIndex;
+import projects.search.SearchResult;
+import projects.snapshot.SnapshotReader;
+import projects.snapshot.SnapshotRecord;
+import projects.snapshot.SnapshotWriter;
 
 //ProjectService class interacts with a ProjectDao object to add a project to a database.
 
 public class ProjectService {
-	private ProjectDao projectDao = new ProjectDao();
+	private ProjectDao projectDao = new TimedProjectDao();
+	private StepSequencer stepSequencer = new TimedStepSequencer();
+	
+	// Read-through cache of project graphs: at most CACHE_MAX_SIZE projects, each kept for CACHE_TTL_MILLIS
+	private static final int CACHE_MAX_SIZE = 10_000;
+	private static final long CACHE_TTL_MILLIS = 300_000;
+	// Number of project graphs loaded per query while writing a snapshot
+	private static final int SNAPSHOT_CHUNK_SIZE = 1024;
+	
+	/* The cache and the search index belong to the process, not to one ProjectService: every
+	 * instance (the one in ProjectsApp, the one behind an AsyncProjectService, ...) serves from and
+	 * invalidates the same copies, so a write through one is seen by reads through another.
+	 */
+	private static final ProjectCache PROJECT_CACHE = new ProjectCache(CACHE_MAX_SIZE, CACHE_TTL_MILLIS,
+			DbConnection.getReplicaStalenessMillis());
+
+	/* Full-text index over notes and step text, built on the first search. While a rebuild scans
+	 * the database, writes made through any service are applied to the live index and also
+	 * queued, then replayed onto the new index before it replaces the old one.
+	 */
+	private static volatile SearchIndex searchIndex;
+	private static List<Consumer<SearchIndex>> pendingSearchUpdates;
+	private static final Object SEARCH_LOCK = new Object();
+	private static final Object SEARCH_REBUILD_LOCK = new Object();
+
+	/* Shared GroupCommitWriter for the queue* methods, started on first use. It is flushed when the
+	 * JVM shuts down, so writes already queued are not lost on a normal exit.
+	 */
+	private static class GroupCommitHolder {
+		private static final GroupCommitWriter WRITER = start();
+
+		private static GroupCommitWriter start() {
+			GroupCommitWriter writer = new GroupCommitWriter();
+			Runtime.getRuntime().addShutdownHook(new Thread(writer::close, "group-commit-shutdown"));
+			return writer;
+		}
+	}
 
 	public Project addProject(Project project) {
-		return projectDao.insertProject(project);
+		Project added = projectDao.insertProject(project);
+		updateSearchIndex(index -> index.put(added));
+		return added;
 	
 // ProjectService class acts as an intermediary between the user interface (in the ProjectsApp class) and the data access layer
 	}
 
+	/* Inserts many projects, including their materials, steps and category links, using batched
+	 * writes in a single transaction.
+	 */
+	public List<Project> addProjects(List<Project> projects) {
+		List<Project> added = projectDao.insertProjects(projects);
+		updateSearchIndex(index -> added.forEach(index::put));
+		return added;
+	}
+
 	/*his method acts as a bridge between the projectService and the projectDao
 	 *  and returns the resulting list of projects to the caller.
 	 */
@@ -25,24 +102,329 @@ public class ProjectService {
 		return projectDao.fetchAllProjects();
 	}
 
+	/* Hands every project to the action as it is read from the database, without holding the
+	 * whole list in memory.
+	 */
+	public void forEachProject(Consumer<? super Project> action) {
+		projectDao.forEachProject(action);
+	}
+	
+	/* Returns the page of projects that follows the given project name and ID in name order.
+	 * A null name returns the first page.
+	 */
+	public List<Project> fetchProjectPage(String afterProjectName, Integer afterProjectId, int limit) {
+		return projectDao.fetchProjectPage(afterProjectName, afterProjectId, limit);
+	}
+
+	/* Returns a page of project summaries holding only the given columns (the ID and name are
+	 * always included). Pass ProjectSummary.LISTING_COLUMNS for a plain list of projects.
+	 */
+	public List<ProjectSummary> fetchProjectSummaries(Set<ProjectColumn> columns, String afterProjectName,
+			Integer afterProjectId, int limit) {
+		return projectDao.fetchProjectSummaries(columns, afterProjectName, afterProjectId, limit);
+	}
+
 	/*method serves as a layer between the projectService and projectDao and delegates
 	 *  the responsibility of fetching a project by its ID and returns the project if it exists.
+	 *  The project graph is served from the cache when possible. Cached projects are shared, so
+	 *  callers must not modify the returned object.
 	 */
 	public Project fetchProjectById(Integer projectId) {
-		return projectDao.fetchProjectById(projectId).orElseThrow(() -> new NoSuchElementException(
+		// No project has a null ID; ProjectsApp passes one when the user enters nothing
+		if(Objects.isNull(projectId)) {
+			throw new NoSuchElementException("Project with project ID=null does not exist.");
+		}
+		
+		Project cached = PROJECT_CACHE.get(projectId);
+		
+		if(Objects.nonNull(cached)) {
+			return cached;
+		}
+		
+		long loadGeneration = PROJECT_CACHE.startLoad();
+		
+		Project project = projectDao.fetchProjectById(projectId).orElseThrow(() -> new NoSuchElementException(
 				"Project with project ID=" + projectId + " does not exist."));
+		
+		PROJECT_CACHE.putIfCurrent(project, loadGeneration);
+		return project;
+	}
+	
+	/* Reads every project and its children as columnar batches of batchSize projects and hands
+	 *  each batch to the action, for exports and analytics over the whole table. Only one batch
+	 *  is held in memory at a time.
+	 */
+	public void forEachProjectBatch(int batchSize, Consumer<ProjectBatch> action) {
+		if(batchSize < 1) {
+			throw new IllegalArgumentException("Batch size must be at least 1, was " + batchSize);
+		}
+		
+		int afterProjectId = 0;
+		ProjectBatch batch;
+		
+		do {
+			batch = projectDao.fetchProjectBatch(afterProjectId, batchSize);
+			
+			if(!batch.isEmpty()) {
+				action.accept(batch);
+				afterProjectId = batch.getLastProjectId();
+			}
+		} while(batch.size() == batchSize);
+	}
+	
+	/* Opens a session that loads projects without their child lists; each list is read on first
+	 *  access, batched across the session's projects. Lazily loaded projects bypass the cache,
+	 *  which only holds complete graphs.
+	 */
+	public LazyLoadSession openLazySession() {
+		return new LazyLoadSession(projectDao);
+	}
+	
+	/* Loads the full graphs of many projects with a fixed number of queries per chunk of IDs
+	 * rather than four queries per project. IDs that do not exist are left out of the result.
+	 * Projects already in the cache are not loaded again.
+	 */
+	public List<Project> fetchProjectsByIds(Collection<Integer> projectIds) {
+		Map<Integer, Project> found = new HashMap<>();
+		List<Integer> missing = new ArrayList<>();
+		
+		for(Integer projectId : projectIds) {
+			Project cached = Objects.isNull(projectId) ? null : PROJECT_CACHE.get(projectId);
+			
+			if(Objects.nonNull(cached)) {
+				found.put(projectId, cached);
+			}
+			else if(Objects.nonNull(projectId)) {
+				missing.add(projectId);
+			}
+		}
+		
+		if(!missing.isEmpty()) {
+			long loadGeneration = PROJECT_CACHE.startLoad();
+			
+			for(Project project : projectDao.fetchProjectsByIds(missing)) {
+				PROJECT_CACHE.putIfCurrent(project, loadGeneration);
+				found.put(project.getProjectId(), project);
+			}
+		}
+		
+		List<Project> projects = new ArrayList<>(found.size());
+		
+		for(Integer projectId : new LinkedHashSet<>(projectIds)) {
+			Project project = found.get(projectId);
+			
+			if(Objects.nonNull(project)) {
+				projects.add(project);
+			}
+		}
+		
+		return projects;
+	}
+	
+	/* Writes every project graph to a snapshot file that warmCache can start from later. The
+	 * project IDs are read first and the graphs are loaded SNAPSHOT_CHUNK_SIZE at a time, so only
+	 * one chunk is held in memory. Returns the number of projects written.
+	 */
+	public int writeSnapshot(Path file) {
+		List<Integer> projectIds = projectDao.fetchProjectIds();
+		
+		try(SnapshotWriter writer = SnapshotWriter.create(file)) {
+			for(int from = 0; from < projectIds.size(); from += SNAPSHOT_CHUNK_SIZE) {
+				List<Integer> chunk = projectIds.subList(from, Math.min(from + SNAPSHOT_CHUNK_SIZE, projectIds.size()));
+				
+				for(Project project : projectDao.fetchProjectsByIds(chunk)) {
+					writer.write(project);
+				}
+			}
+			
+			writer.finish();
+			return writer.getCount();
+		}
+		catch(IOException e) {
+			throw new DbException("Unable to write snapshot " + file, e);
+		}
+	}
+	
+	/* Fills the cache from a snapshot file, then brings it up to date with the database. One query
+	 * fetches a digest of every project from the server; projects whose snapshot digest matches are
+	 * cached straight from the file, and only projects that changed or were added since the snapshot
+	 * was written are loaded from the database. Projects deleted since then are ignored. At most
+	 * CACHE_MAX_SIZE projects are cached. Returns the number of projects cached.
+	 */
+	public int warmCache(Path file) {
+		Map<Integer, Long> digests = projectDao.fetchProjectDigests();
+		long loadGeneration = PROJECT_CACHE.startLoad();
+		Set<Integer> stale = new LinkedHashSet<>(digests.keySet());
+		int cached = 0;
+		
+		try(SnapshotReader reader = SnapshotReader.open(file)) {
+			for(SnapshotRecord record : reader) {
+				if(cached >= CACHE_MAX_SIZE) {
+					break;
+				}
+				
+				Long digest = digests.get(record.getProjectId());
+				
+				if(Objects.nonNull(digest) && digest == record.getDigest()) {
+					PROJECT_CACHE.putIfCurrent(record.toProject(), loadGeneration);
+					stale.remove(record.getProjectId());
+					cached++;
+				}
+			}
+		}
+		catch(IOException e) {
+			throw new DbException("Unable to read snapshot " + file, e);
+		}
+		
+		List<Integer> reload = new ArrayList<>(stale);
+		reload = reload.subList(0, Math.min(reload.size(), CACHE_MAX_SIZE - cached));
+		
+		for(Project project : projectDao.fetchProjectsByIds(reload)) {
+			PROJECT_CACHE.putIfCurrent(project, loadGeneration);
+			cached++;
+		}
+		
+		return cached;
+	}
+	
+	/* Returns the projects whose notes and step text contain every term and "quoted phrase" of
+	 * the query, best match first. Searches run entirely in memory; the index is built from the
+	 * database on the first call. Changes made by other processes appear after rebuildSearchIndex.
+	 */
+	public List<SearchResult> searchProjects(String query, int limit) {
+		return searchIndex().search(query, limit);
+	}
+	
+	/* Rebuilds the search index with one streaming scan of the projects and one of the steps, and
+	 * returns the number of projects indexed. Searches keep using the old index until the new one
+	 * is complete.
+	 */
+	public int rebuildSearchIndex() {
+		synchronized(SEARCH_REBUILD_LOCK) {
+			synchronized(SEARCH_LOCK) {
+				pendingSearchUpdates = new ArrayList<>();
+			}
+			
+			SearchIndex index = new SearchIndex();
+			
+			try {
+				projectDao.forEachProject(project -> {
+					index.setProjectName(project.getProjectId(), project.getProjectName());
+					index.setNotes(project.getProjectId(), project.getNotes());
+				});
+				
+				projectDao.forEachStep(step -> index.appendStep(step.getProjectId(), step.getStepText()));
+				
+				synchronized(SEARCH_LOCK) {
+					pendingSearchUpdates.forEach(update -> update.accept(index));
+					searchIndex = index;
+				}
+			}
+			finally {
+				synchronized(SEARCH_LOCK) {
+					pendingSearchUpdates = null;
+				}
+			}
+			
+			return index.size();
+		}
+	}
+	
+	private SearchIndex searchIndex() {
+		SearchIndex index = searchIndex;
+		
+		if(Objects.isNull(index)) {
+			synchronized(SEARCH_REBUILD_LOCK) {
+				if(Objects.isNull(searchIndex)) {
+					rebuildSearchIndex();
+				}
+				
+				index = searchIndex;
+			}
+		}
+		
+		return index;
+	}
+	
+	// Applies a change to the live index, and queues it for the new index if a rebuild is running
+	private void updateSearchIndex(Consumer<SearchIndex> update) {
+		synchronized(SEARCH_LOCK) {
+			if(Objects.nonNull(pendingSearchUpdates)) {
+				pendingSearchUpdates.add(update);
+			}
+			
+			if(Objects.nonNull(searchIndex)) {
+				update.accept(searchIndex);
+			}
+		}
+	}
+	
+	// Returns a project's material count and cost, step count and hours without loading the project
+	public ProjectRollup fetchProjectRollup(Integer projectId) {
+		return projectDao.fetchProjectRollup(projectId)
+				.orElseThrow(() -> new NoSuchElementException("Project with project ID=" + projectId + " does not exist."));
+	}
+	
+	// Returns the totals over all projects in a category
+	public CategoryRollup fetchCategoryRollup(Integer categoryId) {
+		return projectDao.fetchCategoryRollup(categoryId)
+				.orElseThrow(() -> new NoSuchElementException("Category with category ID=" + categoryId + " has no projects."));
+	}
+	
+	// Returns the latency, error and row counters of the DAO, service and connection operations
+	public MetricsSnapshot getMetrics() {
+		return Metrics.get().snapshot();
+	}
+	
+	// Returns the cache hit/miss/eviction counters
+	public ProjectCache.Stats getCacheStats() {
+		return PROJECT_CACHE.getStats();
 	}
 	
 	/*
 	 *  the modifyProjectDetails() method calls the corresponding method in the projectDao object to modify
-	 *   the project details. If the modification fails, it throws a custom exception.
+	 *   the project details. Only changed columns are written; a project without changes is left
+	 *   alone. If the project does not exist, with or without changes, it throws a custom exception.
 	 */
 
 	public void modifyProjectDetails(Project project) {
-		if(!projectDao.modifyProjectDetails(project)) {
+		// Nothing to write, and the cached copy is still current. A cached project exists; otherwise
+		// a primary key lookup replaces the UPDATE that would have reported a missing project.
+		if(!project.isChanged()) {
+			Integer projectId = project.getProjectId();
+			
+			boolean cached = Objects.nonNull(projectId) && Objects.nonNull(PROJECT_CACHE.get(projectId));
+			
+			if(!cached && !projectDao.projectExists(projectId)) {
+				throw new DbException("Project with ID=" + projectId + " does not exist.");
+			}
+			
+			return;
+		}
+		
+		// The DAO marks the project clean, so note what changed first
+		Set<ProjectColumn> changed = project.getChangedColumns();
+		boolean modified;
+		
+		try {
+			modified = projectDao.modifyProjectDetails(project);
+		}
+		finally {
+			PROJECT_CACHE.invalidate(project.getProjectId());
+		}
+		
+		if(!modified) {
 			throw new DbException("Project with ID=" + project.getProjectId() + " does not exist.");
 		}
 		
+		if(changed.contains(ProjectColumn.PROJECT_NAME)) {
+			updateSearchIndex(index -> index.setProjectName(project.getProjectId(), project.getProjectName()));
+		}
+		
+		if(changed.contains(ProjectColumn.NOTES)) {
+			updateSearchIndex(index -> index.setNotes(project.getProjectId(), project.getNotes()));
+		}
+		
 	}
 	
 	/*
@@ -51,10 +433,155 @@ public class ProjectService {
 	 */
 
 	public void deleteProject(Integer projectId) {
-		if(!projectDao.deleteProject(projectId)) {
+		boolean deleted;
+		
+		try {
+			deleted = projectDao.deleteProject(projectId);
+		}
+		finally {
+			PROJECT_CACHE.invalidate(projectId);
+		}
+		
+		if(!deleted) {
 			throw new DbException("Project with ID=" + projectId + " does not exist.");
 		}
 		
+		updateSearchIndex(index -> index.remove(projectId));
+	
+	}
+
+	/* Queued versions of addProject, modifyProjectDetails and deleteProject for many concurrent
+	 * writers: the write is committed together with other writers' in one transaction (see
+	 * GroupCommitWriter) and the method returns at once. The future completes once the cache and
+	 * search index have been updated, and fails with the same DbException as the blocking call.
+	 */
+	public CompletableFuture<Project> queueAddProject(Project project) {
+		return GroupCommitHolder.WRITER.insertProject(project).thenApply(added -> {
+			updateSearchIndex(index -> index.put(added));
+			return added;
+		});
+	}
+
+	public CompletableFuture<Void> queueModifyProjectDetails(Project project) {
+		// Nothing to group; the existence check is a single lookup
+		if(!project.isChanged()) {
+			try {
+				modifyProjectDetails(project);
+				return CompletableFuture.completedFuture(null);
+			}
+			catch(DbException e) {
+				return CompletableFuture.failedFuture(e);
+			}
+		}
+		
+		// The writer marks the project clean, so note what changed first
+		Integer projectId = project.getProjectId();
+		Set<ProjectColumn> changed = project.getChangedColumns();
+		String projectName = project.getProjectName();
+		String notes = project.getNotes();
+		
+		return GroupCommitHolder.WRITER.modifyProjectDetails(project)
+				.whenComplete((modified, error) -> PROJECT_CACHE.invalidate(projectId))
+				.thenAccept(modified -> {
+					if(!modified) {
+						throw new DbException("Project with ID=" + projectId + " does not exist.");
+					}
+					
+					if(changed.contains(ProjectColumn.PROJECT_NAME)) {
+						updateSearchIndex(index -> index.setProjectName(projectId, projectName));
+					}
+					
+					if(changed.contains(ProjectColumn.NOTES)) {
+						updateSearchIndex(index -> index.setNotes(projectId, notes));
+					}
+				});
+	}
+
+	public CompletableFuture<Void> queueDeleteProject(Integer projectId) {
+		return GroupCommitHolder.WRITER.deleteProject(projectId)
+				.whenComplete((deleted, error) -> PROJECT_CACHE.invalidate(projectId))
+				.thenAccept(deleted -> {
+					if(!deleted) {
+						throw new DbException("Project with ID=" + projectId + " does not exist.");
+					}
+					
+					updateSearchIndex(index -> index.remove(projectId));
+				});
+	}
+
+	/* Step editing. Each call writes one step row (or one batched UPDATE for reorderSteps), see
+	 *  StepSequencer. The project's cached graph is dropped and its search entry refreshed.
+	 */
+	public Step appendStep(Integer projectId, String stepText) {
+		try {
+			Step step = stepSequencer.appendStep(projectId, stepText);
+			reindexProject(projectId);
+			return step;
+		}
+		finally {
+			PROJECT_CACHE.invalidate(projectId);
+		}
+	}
+	
+	public Step insertStepAfter(Integer projectId, Integer afterStepId, String stepText) {
+		try {
+			Step step = stepSequencer.insertStepAfter(projectId, afterStepId, stepText);
+			reindexProject(projectId);
+			return step;
+		}
+		finally {
+			PROJECT_CACHE.invalidate(projectId);
+		}
+	}
+	
+	public void moveStepAfter(Integer projectId, Integer stepId, Integer afterStepId) {
+		try {
+			stepSequencer.moveStepAfter(projectId, stepId, afterStepId);
+			reindexProject(projectId);
+		}
+		finally {
+			PROJECT_CACHE.invalidate(projectId);
+		}
+	}
+	
+	public void reorderSteps(Integer projectId, List<Integer> stepIds) {
+		try {
+			stepSequencer.reorderSteps(projectId, stepIds);
+			reindexProject(projectId);
+		}
+		finally {
+			PROJECT_CACHE.invalidate(projectId);
+		}
+	}
+	
+	public void deleteStep(Integer projectId, Integer stepId) {
+		boolean deleted;
+		
+		try {
+			deleted = stepSequencer.deleteStep(projectId, stepId);
+		}
+		finally {
+			PROJECT_CACHE.invalidate(projectId);
+		}
+		
+		if(!deleted) {
+			throw new DbException("Step with ID=" + stepId + " does not exist in project " + projectId + ".");
+		}
+		
+		reindexProject(projectId);
+	}
+	
+	// Replaces a project's search entry after its steps changed, if there is an index to update
+	private void reindexProject(Integer projectId) {
+		boolean indexed;
+		
+		synchronized(SEARCH_LOCK) {
+			indexed = Objects.nonNull(searchIndex) || Objects.nonNull(pendingSearchUpdates);
+		}
+		
+		if(indexed) {
+			projectDao.fetchProjectById(projectId).ifPresent(project -> updateSearchIndex(index -> index.put(project)));
+		}
 	}
 
 }
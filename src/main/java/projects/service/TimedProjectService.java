@@ -0,0 +1,133 @@
+package projects.service;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import projects.entity.CategoryRollup;
+import projects.entity.Project;
+import projects.entity.ProjectColumn;
+import projects.entity.ProjectRollup;
+import projects.entity.ProjectSummary;
+import projects.entity.Step;
+import projects.metrics.Metrics;
+import projects.search.SearchResult;
+
+/* TimedProjectService records the latency and failures of each ProjectService call under
+ * "service.<method>" in Metrics, on top of the "dao.*" timings of the DAO underneath. Cache hits
+ * show up here as fast service calls with no matching DAO call. The queue* methods return before
+ * their write runs, so they are not timed here; GroupCommitWriter times each group as
+ * "dao.groupCommit".
+ */
+public class TimedProjectService extends ProjectService {
+	@Override
+	public Project addProject(Project project) {
+		return Metrics.get().time("service.addProject", () -> super.addProject(project));
+	}
+
+	@Override
+	public List<Project> addProjects(List<Project> projects) {
+		return Metrics.get().time("service.addProjects", () -> super.addProjects(projects));
+	}
+
+	@Override
+	public List<Project> fetchAllProjects() {
+		return Metrics.get().time("service.fetchAllProjects", () -> super.fetchAllProjects());
+	}
+
+	@Override
+	public void forEachProject(Consumer<? super Project> action) {
+		Metrics.get().time("service.forEachProject", () -> super.forEachProject(action));
+	}
+
+	@Override
+	public List<Project> fetchProjectPage(String afterProjectName, Integer afterProjectId, int limit) {
+		return Metrics.get().time("service.fetchProjectPage",
+				() -> super.fetchProjectPage(afterProjectName, afterProjectId, limit));
+	}
+
+	@Override
+	public List<ProjectSummary> fetchProjectSummaries(Set<ProjectColumn> columns, String afterProjectName,
+			Integer afterProjectId, int limit) {
+		return Metrics.get().time("service.fetchProjectSummaries",
+				() -> super.fetchProjectSummaries(columns, afterProjectName, afterProjectId, limit));
+	}
+
+	@Override
+	public Project fetchProjectById(Integer projectId) {
+		return Metrics.get().time("service.fetchProjectById", () -> super.fetchProjectById(projectId));
+	}
+
+	@Override
+	public List<Project> fetchProjectsByIds(Collection<Integer> projectIds) {
+		return Metrics.get().time("service.fetchProjectsByIds", () -> super.fetchProjectsByIds(projectIds));
+	}
+
+	@Override
+	public int writeSnapshot(Path file) {
+		return Metrics.get().time("service.writeSnapshot", () -> super.writeSnapshot(file));
+	}
+
+	@Override
+	public int warmCache(Path file) {
+		return Metrics.get().time("service.warmCache", () -> super.warmCache(file));
+	}
+
+	@Override
+	public List<SearchResult> searchProjects(String query, int limit) {
+		return Metrics.get().time("service.searchProjects", () -> super.searchProjects(query, limit));
+	}
+
+	@Override
+	public int rebuildSearchIndex() {
+		return Metrics.get().time("service.rebuildSearchIndex", () -> super.rebuildSearchIndex());
+	}
+
+	@Override
+	public ProjectRollup fetchProjectRollup(Integer projectId) {
+		return Metrics.get().time("service.fetchProjectRollup", () -> super.fetchProjectRollup(projectId));
+	}
+
+	@Override
+	public CategoryRollup fetchCategoryRollup(Integer categoryId) {
+		return Metrics.get().time("service.fetchCategoryRollup", () -> super.fetchCategoryRollup(categoryId));
+	}
+
+	@Override
+	public void modifyProjectDetails(Project project) {
+		Metrics.get().time("service.modifyProjectDetails", () -> super.modifyProjectDetails(project));
+	}
+
+	@Override
+	public void deleteProject(Integer projectId) {
+		Metrics.get().time("service.deleteProject", () -> super.deleteProject(projectId));
+	}
+
+	@Override
+	public Step appendStep(Integer projectId, String stepText) {
+		return Metrics.get().time("service.appendStep", () -> super.appendStep(projectId, stepText));
+	}
+
+	@Override
+	public Step insertStepAfter(Integer projectId, Integer afterStepId, String stepText) {
+		return Metrics.get().time("service.insertStepAfter",
+				() -> super.insertStepAfter(projectId, afterStepId, stepText));
+	}
+
+	@Override
+	public void moveStepAfter(Integer projectId, Integer stepId, Integer afterStepId) {
+		Metrics.get().time("service.moveStepAfter", () -> super.moveStepAfter(projectId, stepId, afterStepId));
+	}
+
+	@Override
+	public void reorderSteps(Integer projectId, List<Integer> stepIds) {
+		Metrics.get().time("service.reorderSteps", () -> super.reorderSteps(projectId, stepIds));
+	}
+
+	@Override
+	public void deleteStep(Integer projectId, Integer stepId) {
+		Metrics.get().time("service.deleteStep", () -> super.deleteStep(projectId, stepId));
+	}
+}
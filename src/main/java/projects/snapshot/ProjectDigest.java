@@ -0,0 +1,65 @@
+package projects.snapshot;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+import projects.entity.Category;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.Step;
+
+/* ProjectDigest computes the checksum of a project graph exactly as ProjectDao.fetchProjectDigests
+ * does on the server: every row is turned into its '|'-separated column values (NULL as an empty
+ * string), CRC32'd as UTF-8, and the row checksums are XORed together. If a snapshot's digest for a
+ * project matches the server's, the project has not changed since the snapshot was written.
+ *
+ * A false mismatch (for example a decimal loaded with a different scale) only costs a reload of
+ * that project from the database.
+ */
+public final class ProjectDigest {
+	private ProjectDigest() {
+	}
+
+	public static long of(Project project) {
+		CRC32 crc = new CRC32();
+
+		long digest = row(crc, "p", project.getProjectId(), project.getProjectName(), project.getEstimatedHours(),
+				project.getActualHours(), project.getDifficulty(), project.getNotes());
+
+		for(Material material : project.getMaterials()) {
+			digest ^= row(crc, "m", material.getMaterialId(), material.getMaterialName(), material.getNumRequired(),
+					material.getCost());
+		}
+
+		for(Step step : project.getSteps()) {
+			digest ^= row(crc, "s", step.getStepId(), step.getStepText(), step.getStepOrder());
+		}
+
+		for(Category category : project.getCategories()) {
+			digest ^= row(crc, "c", category.getCategoryId(), category.getCategoryName());
+		}
+
+		return digest;
+	}
+
+	private static long row(CRC32 crc, String type, Object... values) {
+		StringBuilder text = new StringBuilder(type);
+
+		for(Object value : values) {
+			text.append('|');
+
+			if(value instanceof BigDecimal) {
+				text.append(((BigDecimal)value).toPlainString());
+			}
+			else if(Objects.nonNull(value)) {
+				text.append(value);
+			}
+		}
+
+		crc.reset();
+		crc.update(text.toString().getBytes(StandardCharsets.UTF_8));
+		return crc.getValue();
+	}
+}
@@ -0,0 +1,35 @@
+package projects.snapshot;
+
+/* Layout of a project snapshot file. All numbers are big-endian.
+ *
+ *   header:  long MAGIC, int VERSION, int project count, long creation time (epoch millis)
+ *   project: int length of the rest of the record in bytes
+ *            int project_id, long digest (see ProjectDigest)
+ *            string project_name, decimal estimated_hours, decimal actual_hours,
+ *            nullable int difficulty, string notes
+ *            int material count, then per material:
+ *              nullable int material_id, string material_name, nullable int num_required, decimal cost
+ *            int step count, then per step:
+ *              nullable int step_id, string step_text, nullable int step_order
+ *            int category count, then per category:
+ *              nullable int category_id, string category_name
+ *
+ *   string:       int byte length (-1 for NULL) followed by the UTF-8 bytes
+ *   decimal:      byte scale (NULL_SCALE for NULL) followed by long unscaled value
+ *   nullable int: byte 0 for NULL, or byte 1 followed by int value
+ *
+ * The record length lets a reader index every project without decoding it.
+ */
+final class SnapshotFormat {
+	static final long MAGIC = 0x50524A534E415031L; // "PRJSNAP1"
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 24;
+	static final int COUNT_OFFSET = 12;
+	static final byte NULL_SCALE = Byte.MIN_VALUE;
+
+	// Offset of the project name from the start of a record (after length, project ID and digest)
+	static final int NAME_OFFSET = 16;
+
+	private SnapshotFormat() {
+	}
+}
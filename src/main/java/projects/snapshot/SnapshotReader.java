@@ -0,0 +1,124 @@
+package projects.snapshot;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/* Reads a snapshot file through a read-only memory mapping, so the operating system pages the
+ * data in straight from its file cache and nothing is copied onto the Java heap until a project
+ * is actually decoded. Opening the snapshot only walks the record lengths to index the projects.
+ *
+ * The mapping stays valid after close() until the reader and every record and slice obtained
+ * from it are garbage collected. Files larger than 2 GB cannot be mapped in one piece and are
+ * rejected.
+ */
+public class SnapshotReader implements AutoCloseable, Iterable<SnapshotRecord> {
+	private final FileChannel channel;
+	private final ByteBuffer buffer;
+	private final int[] offsets;
+	private final long createdAtMillis;
+
+	private SnapshotReader(Path file) throws IOException {
+		this.channel = FileChannel.open(file, StandardOpenOption.READ);
+
+		try {
+			long size = channel.size();
+
+			if(size > Integer.MAX_VALUE) {
+				throw new IOException("Snapshot " + file + " is too large to map (" + size + " bytes)");
+			}
+
+			if(size < SnapshotFormat.HEADER_SIZE) {
+				throw new IOException(file + " is not a project snapshot");
+			}
+
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			this.buffer = mapped.asReadOnlyBuffer();
+
+			if(buffer.getLong(0) != SnapshotFormat.MAGIC) {
+				throw new IOException(file + " is not a project snapshot");
+			}
+
+			int version = buffer.getInt(8);
+
+			if(version != SnapshotFormat.VERSION) {
+				throw new IOException("Snapshot " + file + " has version " + version + ", expected "
+						+ SnapshotFormat.VERSION);
+			}
+
+			int count = buffer.getInt(SnapshotFormat.COUNT_OFFSET);
+			this.createdAtMillis = buffer.getLong(16);
+			this.offsets = new int[count];
+
+			int offset = SnapshotFormat.HEADER_SIZE;
+
+			for(int index = 0; index < count; index++) {
+				if(offset + Integer.BYTES > size) {
+					throw new IOException("Snapshot " + file + " is truncated");
+				}
+
+				offsets[index] = offset;
+				offset += Integer.BYTES + buffer.getInt(offset);
+			}
+
+			if(offset != size) {
+				throw new IOException("Snapshot " + file + " is corrupt: records end at " + offset
+						+ " but the file has " + size + " bytes");
+			}
+		}
+		catch(IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	public static SnapshotReader open(Path file) throws IOException {
+		return new SnapshotReader(file);
+	}
+
+	public int size() {
+		return offsets.length;
+	}
+
+	public long getCreatedAtMillis() {
+		return createdAtMillis;
+	}
+
+	/* Returns a view of the project at the given position. Views are cheap to create but are not
+	 * thread-safe; use one per thread.
+	 */
+	public SnapshotRecord get(int index) {
+		return new SnapshotRecord(buffer, offsets[index]);
+	}
+
+	@Override
+	public Iterator<SnapshotRecord> iterator() {
+		return new Iterator<>() {
+			private int index;
+
+			@Override
+			public boolean hasNext() {
+				return index < offsets.length;
+			}
+
+			@Override
+			public SnapshotRecord next() {
+				if(!hasNext()) {
+					throw new NoSuchElementException();
+				}
+
+				return get(index++);
+			}
+		};
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
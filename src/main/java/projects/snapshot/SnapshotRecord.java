@@ -0,0 +1,134 @@
+package projects.snapshot;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Objects;
+
+import projects.dao.CategoryDictionary;
+import projects.entity.Category;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.Step;
+
+/* One project in a mapped snapshot. The ID, digest and name are read in place; toProject()
+ * decodes the whole graph into entity objects. Categories are resolved through CategoryDictionary,
+ * so they are the same shared instances that ProjectDao hands out.
+ */
+public final class SnapshotRecord {
+	private final ByteBuffer buffer;
+	private final int offset;
+
+	// Read position used while decoding, relative to the start of the buffer
+	private int position;
+
+	SnapshotRecord(ByteBuffer buffer, int offset) {
+		this.buffer = buffer;
+		this.offset = offset;
+	}
+
+	public int getProjectId() {
+		return buffer.getInt(offset + Integer.BYTES);
+	}
+
+	public long getDigest() {
+		return buffer.getLong(offset + 2 * Integer.BYTES);
+	}
+
+	public Utf8Slice getProjectName() {
+		position = offset + SnapshotFormat.NAME_OFFSET;
+		return readSlice();
+	}
+
+	public Project toProject() {
+		Project project = new Project();
+		project.setProjectId(getProjectId());
+
+		position = offset + SnapshotFormat.NAME_OFFSET;
+		project.setProjectName(readString());
+		project.setEstimatedHours(readDecimal());
+		project.setActualHours(readDecimal());
+		project.setDifficulty(readNullableInt());
+		project.setNotes(readString());
+
+		List<Material> materials = project.getMaterials();
+
+		for(int count = readInt(); count > 0; count--) {
+			Material material = new Material();
+			material.setProjectId(project.getProjectId());
+			material.setMaterialId(readNullableInt());
+			material.setMaterialName(readString());
+			material.setNumRequired(readNullableInt());
+			material.setCost(readDecimal());
+			materials.add(material);
+		}
+
+		List<Step> steps = project.getSteps();
+
+		for(int count = readInt(); count > 0; count--) {
+			Step step = new Step();
+			step.setProjectId(project.getProjectId());
+			step.setStepId(readNullableInt());
+			step.setStepText(readString());
+			step.setStepOrder(readNullableInt());
+			steps.add(step);
+		}
+
+		List<Category> categories = project.getCategories();
+
+		for(int count = readInt(); count > 0; count--) {
+			Integer categoryId = readNullableInt();
+			readString();
+
+			// The stored name is skipped: the dictionary has the current one, and a category deleted since is left out
+			Category category = Objects.isNull(categoryId) ? null : CategoryDictionary.get().getCategory(categoryId);
+
+			if(Objects.nonNull(category)) {
+				categories.add(category);
+			}
+		}
+
+		project.markClean();
+		return project;
+	}
+
+	private int readInt() {
+		int value = buffer.getInt(position);
+		position += Integer.BYTES;
+		return value;
+	}
+
+	private Integer readNullableInt() {
+		byte present = buffer.get(position++);
+		return present == 0 ? null : readInt();
+	}
+
+	private BigDecimal readDecimal() {
+		byte scale = buffer.get(position++);
+
+		if(scale == SnapshotFormat.NULL_SCALE) {
+			return null;
+		}
+
+		long unscaled = buffer.getLong(position);
+		position += Long.BYTES;
+		return BigDecimal.valueOf(unscaled, scale);
+	}
+
+	private Utf8Slice readSlice() {
+		int length = readInt();
+
+		if(length < 0) {
+			return null;
+		}
+
+		Utf8Slice slice = new Utf8Slice(buffer, position, length);
+		position += length;
+		return slice;
+	}
+
+	private String readString() {
+		Utf8Slice slice = readSlice();
+		return slice == null ? null : slice.toString();
+	}
+}
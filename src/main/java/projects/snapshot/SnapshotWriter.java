@@ -0,0 +1,167 @@
+package projects.snapshot;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+import projects.entity.Category;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.Step;
+
+/* Writes project graphs to a snapshot file (see SnapshotFormat) in one sequential pass. The data
+ * goes to a temporary file next to the target, which replaces the target only when finish()
+ * succeeds, so a reader never sees a half-written snapshot. Closing the writer without calling
+ * finish() throws the partial data away.
+ */
+public class SnapshotWriter implements AutoCloseable {
+	private final Path target;
+	private final Path temporary;
+	private final FileChannel channel;
+	private final DataOutputStream out;
+
+	// Each record is assembled here first so that its length can be written in front of it
+	private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(4096);
+	private final DataOutputStream record = new DataOutputStream(recordBytes);
+
+	private int count;
+	private boolean finished;
+
+	private SnapshotWriter(Path target) throws IOException {
+		Path directory = target.toAbsolutePath().getParent();
+		this.target = target;
+		this.temporary = Files.createTempFile(directory, target.getFileName().toString(), ".tmp");
+		this.channel = FileChannel.open(temporary, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+
+		out.writeLong(SnapshotFormat.MAGIC);
+		out.writeInt(SnapshotFormat.VERSION);
+		out.writeInt(0); // project count, filled in by close()
+		out.writeLong(System.currentTimeMillis());
+	}
+
+	public static SnapshotWriter create(Path file) throws IOException {
+		return new SnapshotWriter(file);
+	}
+
+	/* Appends a full project graph. The project's digest is computed from the data written. */
+	public void write(Project project) throws IOException {
+		recordBytes.reset();
+
+		record.writeInt(project.getProjectId());
+		record.writeLong(ProjectDigest.of(project));
+		writeString(project.getProjectName());
+		writeDecimal(project.getEstimatedHours());
+		writeDecimal(project.getActualHours());
+		writeNullableInt(project.getDifficulty());
+		writeString(project.getNotes());
+
+		record.writeInt(project.getMaterials().size());
+
+		for(Material material : project.getMaterials()) {
+			writeNullableInt(material.getMaterialId());
+			writeString(material.getMaterialName());
+			writeNullableInt(material.getNumRequired());
+			writeDecimal(material.getCost());
+		}
+
+		record.writeInt(project.getSteps().size());
+
+		for(Step step : project.getSteps()) {
+			writeNullableInt(step.getStepId());
+			writeString(step.getStepText());
+			writeNullableInt(step.getStepOrder());
+		}
+
+		record.writeInt(project.getCategories().size());
+
+		for(Category category : project.getCategories()) {
+			writeNullableInt(category.getCategoryId());
+			writeString(category.getCategoryName());
+		}
+
+		record.flush();
+		out.writeInt(recordBytes.size());
+		recordBytes.writeTo(out);
+		count++;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	/* Completes the header and moves the snapshot into place. Until this is called the target
+	 * file is left untouched.
+	 */
+	public void finish() throws IOException {
+		if(finished) {
+			return;
+		}
+
+		out.flush();
+
+		ByteBuffer countBytes = ByteBuffer.allocate(Integer.BYTES).putInt(0, count);
+		channel.write(countBytes, SnapshotFormat.COUNT_OFFSET);
+		channel.force(true);
+		out.close();
+
+		Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		finished = true;
+	}
+
+	/* Discards the temporary file if finish() was not called or failed. */
+	@Override
+	public void close() throws IOException {
+		if(!finished) {
+			out.close();
+			Files.deleteIfExists(temporary);
+		}
+	}
+
+	private void writeString(String value) throws IOException {
+		if(Objects.isNull(value)) {
+			record.writeInt(-1);
+			return;
+		}
+
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		record.writeInt(bytes.length);
+		record.write(bytes);
+	}
+
+	private void writeDecimal(BigDecimal value) throws IOException {
+		if(Objects.isNull(value)) {
+			record.writeByte(SnapshotFormat.NULL_SCALE);
+			return;
+		}
+
+		if(value.scale() <= SnapshotFormat.NULL_SCALE || value.scale() > Byte.MAX_VALUE
+				|| value.unscaledValue().bitLength() > 63) {
+			throw new IOException("Decimal " + value + " is out of range for the snapshot format");
+		}
+
+		record.writeByte(value.scale());
+		record.writeLong(value.unscaledValue().longValueExact());
+	}
+
+	private void writeNullableInt(Integer value) throws IOException {
+		if(Objects.isNull(value)) {
+			record.writeByte(0);
+		}
+		else {
+			record.writeByte(1);
+			record.writeInt(value);
+		}
+	}
+}
@@ -0,0 +1,99 @@
+package projects.snapshot;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/* A string stored in a snapshot, read in place from the mapped file. Creating a slice copies
+ * nothing. As long as the text is ASCII (as project names usually are), length(), charAt() and
+ * contentEquals() read the mapped bytes directly; other text is decoded once, on first use.
+ */
+public final class Utf8Slice implements CharSequence {
+	private final ByteBuffer buffer;
+	private final int offset;
+	private final int byteLength;
+
+	private int ascii = -1; // -1 not checked yet, 0 no, 1 yes
+	private String decoded;
+
+	Utf8Slice(ByteBuffer buffer, int offset, int byteLength) {
+		this.buffer = buffer;
+		this.offset = offset;
+		this.byteLength = byteLength;
+	}
+
+	@Override
+	public int length() {
+		return isAscii() ? byteLength : toString().length();
+	}
+
+	@Override
+	public char charAt(int index) {
+		if(isAscii()) {
+			if(index < 0 || index >= byteLength) {
+				throw new IndexOutOfBoundsException(index);
+			}
+
+			return (char)buffer.get(offset + index);
+		}
+
+		return toString().charAt(index);
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		if(isAscii()) {
+			if(start < 0 || end > byteLength || start > end) {
+				throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + byteLength);
+			}
+
+			return new Utf8Slice(buffer, offset + start, end - start);
+		}
+
+		return toString().subSequence(start, end);
+	}
+
+	// Compares the text with the given characters without decoding when the slice is ASCII
+	public boolean contentEquals(CharSequence other) {
+		if(!isAscii()) {
+			return toString().contentEquals(other);
+		}
+
+		if(other.length() != byteLength) {
+			return false;
+		}
+
+		for(int index = 0; index < byteLength; index++) {
+			if(buffer.get(offset + index) != other.charAt(index)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		if(decoded == null) {
+			byte[] bytes = new byte[byteLength];
+			buffer.get(offset, bytes, 0, byteLength);
+			decoded = new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		return decoded;
+	}
+
+	private boolean isAscii() {
+		if(ascii < 0) {
+			ascii = 1;
+
+			for(int index = 0; index < byteLength; index++) {
+				if(buffer.get(offset + index) < 0) {
+					ascii = 0;
+					break;
+				}
+			}
+		}
+
+		return ascii == 1;
+	}
+}
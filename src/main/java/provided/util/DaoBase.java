@@ -3,18 +3,13 @@
  */
 package provided.util;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
 import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.sql.Time;
-import java.sql.Timestamp;
 import java.sql.Types;
-import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.Objects;
 
@@ -37,6 +32,84 @@ public abstract class DaoBase {
     conn.setAutoCommit(false);
   }
 
+  /**
+   * This starts a MySQL transaction with the given isolation level. Use it for writes that need
+   * something other than the server default (REPEATABLE READ).
+   * 
+   * @param conn The connection on which to start the transaction.
+   * @param isolationLevel One of the {@link Connection} TRANSACTION_ constants.
+   * @throws SQLException Thrown if an error occurs starting the transaction.
+   */
+  protected void startTransaction(Connection conn, int isolationLevel) throws SQLException {
+    setIsolation(conn, isolationLevel);
+    conn.setAutoCommit(false);
+  }
+
+  /**
+   * This prepares a connection for a read that consists of a single statement. No transaction is
+   * started: the statement runs in auto-commit mode, which MySQL executes as a read-only
+   * transaction without keeping any snapshot alive afterwards. The connection is flagged as
+   * read-only so that it can be routed to read-optimized servers. There is nothing to commit or
+   * roll back afterwards.
+   * 
+   * @param conn The connection on which the read will run.
+   * @throws SQLException Thrown if an error occurs.
+   */
+  protected void startReadOnly(Connection conn) throws SQLException {
+    conn.setReadOnly(true);
+
+    if(!conn.getAutoCommit()) {
+      conn.setAutoCommit(true);
+    }
+  }
+
+  /**
+   * This starts a read-only MySQL transaction. Use it for reads that issue several statements
+   * and need all of them to see the same data. A read-only transaction does not get a
+   * transaction ID or undo segments, which makes it cheaper than a read-write transaction. End it
+   * with {@link #commitTransaction(Connection)}.
+   * 
+   * @param conn The connection on which to start the transaction.
+   * @param isolationLevel One of the {@link Connection} TRANSACTION_ constants. Use
+   *        TRANSACTION_REPEATABLE_READ for one consistent snapshot across all statements, or
+   *        TRANSACTION_READ_COMMITTED when each statement may see the latest committed data.
+   * @throws SQLException Thrown if an error occurs starting the transaction.
+   */
+  protected void startReadOnlyTransaction(Connection conn, int isolationLevel)
+      throws SQLException {
+    conn.setReadOnly(true);
+    setIsolation(conn, isolationLevel);
+    conn.setAutoCommit(false);
+    beginReadOnlyTransaction(conn);
+  }
+
+  /**
+   * Opens the read-only transaction on the server with MySQL's START TRANSACTION READ ONLY. A
+   * subclass used with a database that lacks this statement can override it to rely on the JDBC
+   * read-only flag alone.
+   * 
+   * @param conn The connection, already in manual commit mode.
+   * @throws SQLException Thrown if an error occurs starting the transaction.
+   */
+  protected void beginReadOnlyTransaction(Connection conn) throws SQLException {
+    try(Statement stmt = conn.createStatement()) {
+      stmt.execute("START TRANSACTION READ ONLY");
+    }
+  }
+
+  /**
+   * Sets the transaction isolation level if it differs from the current one.
+   * 
+   * @param conn The connection
+   * @param isolationLevel One of the {@link Connection} TRANSACTION_ constants.
+   * @throws SQLException Thrown if an error occurs.
+   */
+  private void setIsolation(Connection conn, int isolationLevel) throws SQLException {
+    if(conn.getTransactionIsolation() != isolationLevel) {
+      conn.setTransactionIsolation(isolationLevel);
+    }
+  }
+
   /**
    * Commit the transaction. This will write all the changes, if any, to the database.
    * 
@@ -194,15 +267,15 @@ public abstract class DaoBase {
 
   /**
    * This extracts an object of the given type from a result set. The object must have a
-   * zero-argument constructor. It builds an object from a result set using reflection as follows:
+   * zero-argument constructor. It builds an object from a result set as follows:
    * <ol>
-   * <li>The zero-argument constructor is obtained.</li>
+   * <li>A mapping plan for the class and the shape of the result set is obtained from
+   * {@link RowMapper}. The plan is built once and cached.</li>
    * <li>An object of the given class type is created.</li>
-   * <li>A list of fields is obtained using reflection.</li>
-   * <li>The field name is converted from Java naming to SQL naming conventions (camel case to snake
-   * case). Obviously, for this to work, the Java name must match the column name. So, if the Java
-   * name is numServings, the column name must be num_servings.</li>
-   * <li>The value is assigned to the field in the object.</li>
+   * <li>Each field whose name, converted from Java naming to SQL naming conventions (camel case to
+   * snake case), matches a column in the result set is assigned the column value. Obviously, for
+   * this to work, the Java name must match the column name. So, if the Java name is numServings,
+   * the column name must be num_servings.</li>
    * </ol>
    * 
    * Example: if a query returns values for a recipe, a Recipe object is returned. So:
@@ -224,6 +297,9 @@ public abstract class DaoBase {
    * Since the result set does not contain a column named "ingredients", the value is left alone and
    * the list initialization is preserved.
    * 
+   * When many rows are read from the same result set, call {@link #rowMapper(ResultSet, Class)}
+   * once before the loop and map each row with it. That skips the plan lookup for every row.
+   * 
    * @param <T> The Generic for the type of object to create and return.
    * @param rs The result set in which to extract values. The result set must be positioned on the
    *        correct row by the caller.
@@ -231,59 +307,20 @@ public abstract class DaoBase {
    * @return A populated class.
    */
   protected <T> T extract(ResultSet rs, Class<T> classType) {
-    try {
-      /* Obtain the constructor and create an object of the correct type. */
-      Constructor<T> con = classType.getConstructor();
-      T obj = con.newInstance();
-
-      /* Get the list of fields and loop through them. */
-      for(Field field : classType.getDeclaredFields()) {
-        String colName = camelCaseToSnakeCase(field.getName());
-        Class<?> fieldType = field.getType();
-
-        /*
-         * Set the field accessible flag which means that we can populate even private fields
-         * without using the setter.
-         */
-        field.setAccessible(true);
-        Object fieldValue = null;
-
-        try {
-          fieldValue = rs.getObject(colName);
-        }
-        catch(SQLException e) {
-          /*
-           * An exception caught here means that the field name isn't in the result set. Don't take
-           * any action.
-           */
-        }
-
-        /*
-         * Only set the value in the object if there is a value with the same name in the result
-         * set. This will preserve instance variables (like lists) that are assigned values when the
-         * object is created.
-         */
-        if(Objects.nonNull(fieldValue)) {
-          /*
-           * Convert the following types: Time -> LocalTime, and Timestamp -> LocalDateTime.
-           */
-          if(fieldValue instanceof Time && fieldType.equals(LocalTime.class)) {
-            fieldValue = ((Time)fieldValue).toLocalTime();
-          }
-          else if(fieldValue instanceof Timestamp && fieldType.equals(LocalDateTime.class)) {
-            fieldValue = ((Timestamp)fieldValue).toLocalDateTime();
-          }
-
-          field.set(obj, fieldValue);
-        }
-      }
-
-      return obj;
+    return rowMapper(rs, classType).map(rs);
+  }
 
-    }
-    catch(Exception e) {
-      throw new DaoException("Unable to create object of type " + classType.getName(), e);
-    }
+  /**
+   * This returns the cached mapping plan for the given class and the shape of the given result
+   * set. Obtain it once per result set and call {@link RowMapper#map(ResultSet)} for each row.
+   * 
+   * @param <T> The Generic for the type of object to create.
+   * @param rs The result set whose rows will be mapped.
+   * @param classType The actual class type of the object to create.
+   * @return The mapping plan.
+   */
+  protected <T> RowMapper<T> rowMapper(ResultSet rs, Class<T> classType) {
+    return RowMapper.forResultSet(rs, classType);
   }
 
   /**
@@ -292,7 +329,7 @@ public abstract class DaoBase {
    * @param identifier The name in camel case to convert.
    * @return The name converted to snake case.
    */
-  private String camelCaseToSnakeCase(String identifier) {
+  static String camelCaseToSnakeCase(String identifier) {
     StringBuilder nameBuilder = new StringBuilder();
 
     for(char ch : identifier.toCharArray()) {
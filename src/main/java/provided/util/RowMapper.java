@@ -0,0 +1,219 @@
+/**
+ *
+ */
+package provided.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import provided.util.DaoBase.DaoException;
+
+/**
+ * This is a precompiled mapping plan that copies the columns of a result set row into a new
+ * object. A plan is built once for each combination of class and result set shape (the list of
+ * column labels) and is then cached. Building the plan does the expensive work that
+ * {@link DaoBase#extract(ResultSet, Class)} used to do for every row:
+ * <ol>
+ * <li>The zero-argument constructor is looked up and turned into a method handle.</li>
+ * <li>Each field name is converted to snake case and matched to a column index using the result
+ * set metadata. Fields without a matching column are left out of the plan entirely, so no
+ * exception is thrown and caught per row.</li>
+ * <li>Each matched field gets a setter method handle, so private fields are written without
+ * reflective access checks.</li>
+ * </ol>
+ *
+ * Mapping a row then only reads the matched columns by index and invokes the setters.
+ *
+ * @param <T> The type of object created for each row.
+ */
+public final class RowMapper<T> {
+  private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+  private static final MethodType SETTER_TYPE =
+      MethodType.methodType(void.class, Object.class, Object.class);
+
+  private static final Map<PlanKey, RowMapper<?>> PLANS = new ConcurrentHashMap<>();
+
+  private final Class<T> classType;
+  private final MethodHandle constructor;
+  private final int[] columnIndexes;
+  private final MethodHandle[] setters;
+  private final Class<?>[] fieldTypes;
+
+  private RowMapper(Class<T> classType, MethodHandle constructor, int[] columnIndexes,
+      MethodHandle[] setters, Class<?>[] fieldTypes) {
+    this.classType = classType;
+    this.constructor = constructor;
+    this.columnIndexes = columnIndexes;
+    this.setters = setters;
+    this.fieldTypes = fieldTypes;
+  }
+
+  /**
+   * Returns the cached plan for the given class and the shape of the given result set, building
+   * it if this is the first time the combination is seen.
+   *
+   * @param <T> The type of object to create.
+   * @param rs The result set. Only its metadata is read.
+   * @param classType The class of object to create.
+   * @return The mapping plan.
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> RowMapper<T> forResultSet(ResultSet rs, Class<T> classType) {
+    try {
+      ResultSetMetaData meta = rs.getMetaData();
+      int count = meta.getColumnCount();
+      String[] labels = new String[count];
+
+      for(int index = 1; index <= count; index++) {
+        labels[index - 1] = meta.getColumnLabel(index);
+      }
+
+      PlanKey key = new PlanKey(classType, labels);
+      RowMapper<?> plan = PLANS.get(key);
+
+      if(Objects.isNull(plan)) {
+        plan = PLANS.computeIfAbsent(key, k -> build(classType, labels));
+      }
+
+      return (RowMapper<T>)plan;
+    }
+    catch(SQLException e) {
+      throw new DaoException("Unable to read result set metadata for " + classType.getName(), e);
+    }
+  }
+
+  /**
+   * Creates an object from the current row of the result set. Only non-null column values are
+   * assigned, so field initializers (like child lists) are preserved.
+   *
+   * @param rs The result set, positioned on the row to map.
+   * @return The populated object.
+   */
+  public T map(ResultSet rs) {
+    try {
+      Object obj = (Object)constructor.invokeExact();
+
+      for(int pos = 0; pos < columnIndexes.length; pos++) {
+        Object fieldValue = rs.getObject(columnIndexes[pos]);
+
+        if(Objects.nonNull(fieldValue)) {
+          /*
+           * Convert the following types: Time -> LocalTime, and Timestamp -> LocalDateTime.
+           */
+          if(fieldValue instanceof Time && fieldTypes[pos].equals(LocalTime.class)) {
+            fieldValue = ((Time)fieldValue).toLocalTime();
+          }
+          else if(fieldValue instanceof Timestamp && fieldTypes[pos].equals(LocalDateTime.class)) {
+            fieldValue = ((Timestamp)fieldValue).toLocalDateTime();
+          }
+
+          setters[pos].invokeExact(obj, fieldValue);
+        }
+      }
+
+      return classType.cast(obj);
+    }
+    catch(Throwable e) {
+      throw new DaoException("Unable to create object of type " + classType.getName(), e);
+    }
+  }
+
+  /**
+   * Builds a plan by matching the declared fields of the class against the column labels.
+   * Matching is case-insensitive and the first column with a given label wins, which is how
+   * {@link ResultSet#findColumn(String)} behaves.
+   */
+  private static <T> RowMapper<T> build(Class<T> classType, String[] labels) {
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+      Constructor<T> con = classType.getConstructor();
+      MethodHandle constructor = lookup.unreflectConstructor(con).asType(CONSTRUCTOR_TYPE);
+
+      Map<String, Integer> columns = new HashMap<>();
+
+      for(int index = labels.length; index >= 1; index--) {
+        columns.put(labels[index - 1].toLowerCase(Locale.ROOT), index);
+      }
+
+      List<Integer> indexes = new ArrayList<>();
+      List<MethodHandle> setters = new ArrayList<>();
+      List<Class<?>> fieldTypes = new ArrayList<>();
+
+      for(Field field : classType.getDeclaredFields()) {
+        if(Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) {
+          continue;
+        }
+
+        Integer index = columns.get(DaoBase.camelCaseToSnakeCase(field.getName()));
+
+        if(Objects.nonNull(index)) {
+          field.setAccessible(true);
+          indexes.add(index);
+          setters.add(lookup.unreflectSetter(field).asType(SETTER_TYPE));
+          fieldTypes.add(field.getType());
+        }
+      }
+
+      return new RowMapper<>(classType, constructor,
+          indexes.stream().mapToInt(Integer::intValue).toArray(),
+          setters.toArray(new MethodHandle[0]), fieldTypes.toArray(new Class<?>[0]));
+    }
+    catch(ReflectiveOperationException e) {
+      throw new DaoException("Unable to build a row mapping plan for " + classType.getName(), e);
+    }
+  }
+
+  /**
+   * The cache key: the target class plus the column labels in result set order.
+   */
+  private static final class PlanKey {
+    private final Class<?> classType;
+    private final String[] labels;
+    private final int hash;
+
+    private PlanKey(Class<?> classType, String[] labels) {
+      this.classType = classType;
+      this.labels = labels;
+      this.hash = 31 * classType.hashCode() + Arrays.hashCode(labels);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if(this == obj) {
+        return true;
+      }
+
+      if(!(obj instanceof PlanKey)) {
+        return false;
+      }
+
+      PlanKey other = (PlanKey)obj;
+      return classType.equals(other.classType) && Arrays.equals(labels, other.labels);
+    }
+  }
+}
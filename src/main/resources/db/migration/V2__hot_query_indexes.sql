@@ -0,0 +1,13 @@
+-- Indexes for the queries ProjectDao sends most often. QueryPlanCheck verifies that they are used.
+
+-- Project list and keyset pages: ORDER BY project_name, project_id [WHERE (project_name, project_id) > ...]
+-- read in index order instead of scanning and sorting the whole table.
+CREATE INDEX idx_project_name_id ON project (project_name, project_id);
+
+-- Steps of one or many projects in step order: WHERE project_id IN (...) ORDER BY project_id, step_order.
+-- Also serves the foreign key, so InnoDB drops the single-column index it created for it.
+CREATE INDEX idx_step_project_order ON step (project_id, step_order);
+
+-- Projects of a category: project_category joined by category_id. The index holds both columns, so the
+-- join never reads the table rows. It replaces the foreign key index on category_id.
+CREATE INDEX idx_project_category_category ON project_category (category_id, project_id);
@@ -0,0 +1,46 @@
+-- Summary tables with per-project and per-category totals, kept up to date by ProjectDao in the same
+-- transaction as every write (see ProjectRollups). The backfill below rebuilds them from scratch, so the
+-- script can also be run against a database whose projects-schema.sql already created the tables.
+
+CREATE TABLE IF NOT EXISTS project_rollup (
+  project_id INT NOT NULL,
+  material_count INT NOT NULL,
+  material_cost DECIMAL(20, 2) NOT NULL,
+  step_count INT NOT NULL,
+  estimated_hours DECIMAL(20, 2) NOT NULL,
+  actual_hours DECIMAL(20, 2) NOT NULL,
+  PRIMARY KEY (project_id),
+  FOREIGN KEY (project_id) REFERENCES project (project_id) ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS category_rollup (
+  category_id INT NOT NULL,
+  project_count INT NOT NULL,
+  material_count INT NOT NULL,
+  material_cost DECIMAL(20, 2) NOT NULL,
+  step_count INT NOT NULL,
+  estimated_hours DECIMAL(20, 2) NOT NULL,
+  actual_hours DECIMAL(20, 2) NOT NULL,
+  PRIMARY KEY (category_id),
+  FOREIGN KEY (category_id) REFERENCES category (category_id) ON DELETE CASCADE
+);
+
+DELETE FROM category_rollup;
+
+DELETE FROM project_rollup;
+
+INSERT INTO project_rollup (project_id, material_count, material_cost, step_count, estimated_hours, actual_hours)
+SELECT p.project_id, COALESCE(m.material_count, 0), COALESCE(m.material_cost, 0), COALESCE(s.step_count, 0),
+  COALESCE(p.estimated_hours, 0), COALESCE(p.actual_hours, 0)
+FROM project p
+LEFT JOIN (SELECT project_id, COUNT(*) AS material_count, SUM(num_required * cost) AS material_cost
+  FROM material GROUP BY project_id) m ON m.project_id = p.project_id
+LEFT JOIN (SELECT project_id, COUNT(*) AS step_count FROM step GROUP BY project_id) s ON s.project_id = p.project_id;
+
+INSERT INTO category_rollup (category_id, project_count, material_count, material_cost, step_count, estimated_hours, actual_hours)
+SELECT c.category_id, COUNT(pr.project_id), COALESCE(SUM(pr.material_count), 0), COALESCE(SUM(pr.material_cost), 0),
+  COALESCE(SUM(pr.step_count), 0), COALESCE(SUM(pr.estimated_hours), 0), COALESCE(SUM(pr.actual_hours), 0)
+FROM category c
+LEFT JOIN project_category pc ON pc.category_id = c.category_id
+LEFT JOIN project_rollup pr ON pr.project_id = pc.project_id
+GROUP BY c.category_id;
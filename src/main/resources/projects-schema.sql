@@ -1,3 +1,12 @@
+-- Creates an empty schema, dropping any existing tables. To upgrade a database that holds data, and to add
+-- the indexes, run projects.migration.MigrationRunner instead (it also works after this script).
+-- schema_version is dropped too, so MigrationRunner applies every migration again afterwards; otherwise
+-- it would consider the indexes of V2 present although the tables they were on are gone.
+
+DROP TABLE IF EXISTS schema_version;
+DROP TABLE IF EXISTS import_checkpoint;
+DROP TABLE IF EXISTS category_rollup;
+DROP TABLE IF EXISTS project_rollup;
 DROP TABLE IF EXISTS project_category;
 DROP TABLE IF EXISTS material;
 DROP TABLE IF EXISTS step;
@@ -47,5 +56,33 @@ CREATE TABLE project_category (
   UNIQUE KEY (project_id, category_id)
 );
 
+CREATE TABLE import_checkpoint (
+  source_name VARCHAR(255) NOT NULL,
+  table_name VARCHAR(64) NOT NULL,
+  rows_committed BIGINT NOT NULL,
+  updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (source_name, table_name)
+);
 
+CREATE TABLE project_rollup (
+  project_id INT NOT NULL,
+  material_count INT NOT NULL,
+  material_cost DECIMAL(20, 2) NOT NULL,
+  step_count INT NOT NULL,
+  estimated_hours DECIMAL(20, 2) NOT NULL,
+  actual_hours DECIMAL(20, 2) NOT NULL,
+  PRIMARY KEY (project_id),
+  FOREIGN KEY (project_id) REFERENCES project (project_id) ON DELETE CASCADE
+);
 
+CREATE TABLE category_rollup (
+  category_id INT NOT NULL,
+  project_count INT NOT NULL,
+  material_count INT NOT NULL,
+  material_cost DECIMAL(20, 2) NOT NULL,
+  step_count INT NOT NULL,
+  estimated_hours DECIMAL(20, 2) NOT NULL,
+  actual_hours DECIMAL(20, 2) NOT NULL,
+  PRIMARY KEY (category_id),
+  FOREIGN KEY (category_id) REFERENCES category (category_id) ON DELETE CASCADE
+);
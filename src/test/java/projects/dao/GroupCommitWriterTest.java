@@ -0,0 +1,199 @@
+package projects.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import projects.exception.DbException;
+
+/* Runs GroupCommitWriter against a stub JDBC driver that only counts commits and rollbacks, so
+ * the grouping and error handling can be checked without a database. The DAO is replaced by one
+ * that fails on chosen project IDs.
+ */
+class GroupCommitWriterTest {
+	private static final String STUB_URL = "jdbc:stub:groupcommit";
+
+	private static final AtomicInteger commits = new AtomicInteger();
+	private static final AtomicInteger rollbacks = new AtomicInteger();
+	private static final AtomicInteger savepointRollbacks = new AtomicInteger();
+	private static final AtomicBoolean failCommits = new AtomicBoolean();
+
+	// Fails the delete of every tenth project, the way a constraint violation would
+	private final ProjectDao projectDao = new ProjectDao() {
+		@Override
+		boolean deleteProject(Connection conn, Integer projectId) throws SQLException {
+			if(projectId % 10 == 0) {
+				throw new SQLException("Cannot delete project " + projectId);
+			}
+
+			return true;
+		}
+	};
+
+	/* The pool reads projects.db.url when it is first used, so this has to run before any test
+	 * asks DbConnection for a connection.
+	 */
+	@BeforeAll
+	static void registerStubDriver() throws SQLException {
+		DriverManager.registerDriver(new StubDriver());
+		System.setProperty("projects.db.url", STUB_URL);
+	}
+
+	@BeforeEach
+	void resetCounters() {
+		commits.set(0);
+		rollbacks.set(0);
+		savepointRollbacks.set(0);
+		failCommits.set(false);
+	}
+
+	@Test
+	void failedWriteOnlyFailsItsOwnFuture() {
+		int writes = 50;
+		List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+
+		try(GroupCommitWriter writer = new GroupCommitWriter(projectDao, 50, 256)) {
+			for(int projectId = 1; projectId <= writes; projectId++) {
+				futures.add(writer.deleteProject(projectId));
+			}
+		}
+
+		for(int projectId = 1; projectId <= writes; projectId++) {
+			CompletableFuture<Boolean> future = futures.get(projectId - 1);
+
+			if(projectId % 10 == 0) {
+				ExecutionException e = assertThrows(ExecutionException.class, future::get);
+				assertInstanceOf(DbException.class, e.getCause());
+				assertInstanceOf(SQLException.class, e.getCause().getCause());
+			}
+			else {
+				assertTrue(future.getNow(false));
+			}
+		}
+
+		assertEquals(writes / 10, savepointRollbacks.get());
+		assertEquals(0, rollbacks.get());
+		assertTrue(commits.get() >= 1 && commits.get() < writes, "writes were not grouped: " + commits + " commits");
+	}
+
+	@Test
+	void commitFailureFailsEveryFuture() {
+		failCommits.set(true);
+		List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+
+		try(GroupCommitWriter writer = new GroupCommitWriter(projectDao, 50, 256)) {
+			for(int projectId = 1; projectId <= 9; projectId++) {
+				futures.add(writer.deleteProject(projectId));
+			}
+		}
+
+		for(CompletableFuture<Boolean> future : futures) {
+			ExecutionException e = assertThrows(ExecutionException.class, future::get);
+			assertInstanceOf(DbException.class, e.getCause());
+		}
+
+		assertEquals(0, commits.get());
+		assertTrue(rollbacks.get() >= 1);
+	}
+
+	@Test
+	void rejectsWritesAfterClose() {
+		GroupCommitWriter writer = new GroupCommitWriter(projectDao, 50, 256);
+		writer.close();
+
+		ExecutionException e = assertThrows(ExecutionException.class, () -> writer.deleteProject(1).get());
+		assertInstanceOf(IllegalStateException.class, e.getCause());
+	}
+
+	// A driver whose connections accept everything, count commits and rollbacks, and return no data
+	private static class StubDriver implements Driver {
+		@Override
+		public Connection connect(String url, Properties info) {
+			if(!acceptsURL(url)) {
+				return null;
+			}
+
+			return (Connection)Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Connection.class},
+					(proxy, method, args) -> {
+						switch(method.getName()) {
+						case "commit":
+							if(failCommits.get()) {
+								throw new SQLException("Commit failed");
+							}
+
+							commits.incrementAndGet();
+							return null;
+						case "rollback":
+							(args == null ? rollbacks : savepointRollbacks).incrementAndGet();
+							return null;
+						case "setSavepoint":
+							return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Savepoint.class},
+									(savepoint, savepointMethod, savepointArgs) -> 0);
+						case "getAutoCommit":
+						case "isValid":
+							return true;
+						case "getTransactionIsolation":
+							return Connection.TRANSACTION_REPEATABLE_READ;
+						case "hashCode":
+							return System.identityHashCode(proxy);
+						case "equals":
+							return proxy == args[0];
+						default:
+							Class<?> type = method.getReturnType();
+							return type == boolean.class ? false : type == int.class ? 0 : null;
+						}
+					});
+		}
+
+		@Override
+		public boolean acceptsURL(String url) {
+			return url.startsWith(STUB_URL);
+		}
+
+		@Override
+		public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+			return new DriverPropertyInfo[0];
+		}
+
+		@Override
+		public int getMajorVersion() {
+			return 1;
+		}
+
+		@Override
+		public int getMinorVersion() {
+			return 0;
+		}
+
+		@Override
+		public boolean jdbcCompliant() {
+			return false;
+		}
+
+		@Override
+		public Logger getParentLogger() {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package projects.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+/* Checks the step_order arithmetic of StepSequencer. writeOrder runs against a stub connection
+ * that records the parameters of every UPDATE it would send.
+ */
+class StepSequencerTest {
+	private static final int GAP = StepSequencer.GAP;
+	private static final int PROJECT_ID = 7;
+
+	@Test
+	void slotIsHalfwayBetweenNeighboursOrOneGapAfterTheLast() {
+		assertEquals(GAP, StepSequencer.slotBetween(0, null));
+		assertEquals(GAP / 2, StepSequencer.slotBetween(0, GAP));
+		assertEquals(GAP + GAP / 2, StepSequencer.slotBetween(GAP, 2 * GAP));
+		assertEquals(GAP + 1, StepSequencer.slotBetween(GAP, GAP + 2));
+		assertNull(StepSequencer.slotBetween(GAP, GAP + 1));
+	}
+
+	@Test
+	void appendingNeverOverflowsTheColumn() {
+		assertEquals(Integer.MAX_VALUE, StepSequencer.slotBetween(StepSequencer.MAX_ORDER, null));
+		assertNull(StepSequencer.slotBetween(StepSequencer.MAX_ORDER + 1, null));
+	}
+
+	// The class comment promises about ten insertions at one spot before a resequence
+	@Test
+	void tenInsertionsFitBetweenTwoNeighbours() {
+		int previous = GAP;
+		Integer next = 2 * GAP;
+		int insertions = 0;
+
+		for(Integer slot = StepSequencer.slotBetween(previous, next); slot != null;
+				slot = StepSequencer.slotBetween(previous, next)) {
+			next = slot;
+			insertions++;
+		}
+
+		assertEquals(10, insertions);
+	}
+
+	@Test
+	void smallProjectIsRenumberedWithOnePaddedUpdate() throws SQLException {
+		List<Update> updates = writeOrder(List.of(30, 10, 20));
+
+		assertEquals(1, updates.size());
+		assertEquals(4, updates.get(0).size);
+		assertEquals(List.of(30, 10, 20, 20), updates.get(0).stepIds());
+		assertEquals(List.of(GAP, 2 * GAP, 3 * GAP, 3 * GAP), updates.get(0).orders());
+		assertEquals(List.of(30, 10, 20, 20), updates.get(0).inList());
+	}
+
+	@Test
+	void largeProjectIsRenumberedInFullChunksAndOneTail() throws SQLException {
+		int chunk = ProjectSql.MAX_IN_LIST_SIZE;
+		List<Integer> stepIds = IntStream.rangeClosed(1, 2 * chunk + 3).boxed().collect(Collectors.toList());
+
+		List<Update> updates = writeOrder(stepIds);
+
+		assertEquals(List.of(chunk, chunk, 4), updates.stream().map(update -> update.size).toList());
+		assertEquals(List.of(true, true, false), updates.stream().map(update -> update.batched).toList());
+
+		List<Integer> orders = new ArrayList<>();
+		updates.forEach(update -> orders.addAll(update.orders()));
+
+		for(int position = 0; position < stepIds.size(); position++) {
+			assertEquals((position + 1) * GAP, orders.get(position));
+		}
+
+		assertEquals((2 * chunk + 3) * GAP, orders.get(orders.size() - 1));
+	}
+
+	private static List<Update> writeOrder(List<Integer> stepIds) throws SQLException {
+		List<Update> updates = new ArrayList<>();
+		new StepSequencer().writeOrder(connection(updates), PROJECT_ID, stepIds);
+		return updates;
+	}
+
+	/* A connection whose statements collect their setInt parameters and record one Update per
+	 * batch entry or executeUpdate.
+	 */
+	private static Connection connection(List<Update> updates) {
+		return (Connection)Proxy.newProxyInstance(StepSequencerTest.class.getClassLoader(),
+				new Class<?>[] {Connection.class}, (proxy, method, args) -> {
+					if(!method.getName().equals("prepareStatement")) {
+						throw new UnsupportedOperationException(method.getName());
+					}
+
+					int size = (int)((String)args[0]).chars().filter(ch -> ch == '?').count() / 3;
+					List<Integer> parameters = new ArrayList<>();
+
+					return Proxy.newProxyInstance(StepSequencerTest.class.getClassLoader(),
+							new Class<?>[] {PreparedStatement.class}, (statement, call, values) -> {
+								switch(call.getName()) {
+								case "setInt":
+									parameters.add((Integer)values[1]);
+									return null;
+								case "addBatch":
+									updates.add(new Update(size, List.copyOf(parameters), true));
+									parameters.clear();
+									return null;
+								case "executeUpdate":
+									updates.add(new Update(size, List.copyOf(parameters), false));
+									return 0;
+								case "executeBatch":
+									return new int[0];
+								case "close":
+									return null;
+								default:
+									throw new UnsupportedOperationException(call.getName());
+								}
+							});
+				});
+	}
+
+	// The parameters of one stepReorder(size) UPDATE: size (step ID, order) pairs, the project, size step IDs
+	private static class Update {
+		private final int size;
+		private final List<Integer> parameters;
+		private final boolean batched;
+
+		private Update(int size, List<Integer> parameters, boolean batched) {
+			assertEquals(3 * size + 1, parameters.size());
+			assertEquals(PROJECT_ID, parameters.get(2 * size));
+			this.size = size;
+			this.parameters = parameters;
+			this.batched = batched;
+		}
+
+		private List<Integer> stepIds() {
+			return IntStream.range(0, size).mapToObj(index -> parameters.get(2 * index)).toList();
+		}
+
+		private List<Integer> orders() {
+			return IntStream.range(0, size).mapToObj(index -> parameters.get(2 * index + 1)).toList();
+		}
+
+		private List<Integer> inList() {
+			return parameters.subList(2 * size + 1, parameters.size());
+		}
+	}
+}
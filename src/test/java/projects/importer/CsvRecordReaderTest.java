@@ -0,0 +1,69 @@
+package projects.importer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+class CsvRecordReaderTest {
+	@Test
+	void readsQuotedFieldsWithCommasQuotesAndLineBreaks() throws IOException {
+		CsvRecordReader reader = reader("name,notes\r\n"
+				+ "\"Shelf, oak\",\"Say \"\"hi\"\"\r\nthen sand\"\r\n"
+				+ "Bench,plain\n");
+
+		Map<String, String> shelf = reader.next();
+		assertEquals("Shelf, oak", shelf.get("name"));
+		assertEquals("Say \"hi\"\r\nthen sand", shelf.get("notes"));
+		assertEquals(2, reader.getLineNumber());
+
+		Map<String, String> bench = reader.next();
+		assertEquals("Bench", bench.get("name"));
+		assertEquals(4, reader.getLineNumber());
+
+		assertNull(reader.next());
+	}
+
+	@Test
+	void emptyUnquotedFieldIsNullAndEmptyQuotedFieldIsEmpty() throws IOException {
+		CsvRecordReader reader = reader("name,notes,difficulty\nShelf,\"\",\n");
+
+		Map<String, String> record = reader.next();
+		assertEquals("", record.get("notes"));
+		assertNull(record.get("difficulty"));
+		assertTrue(record.containsKey("difficulty"));
+	}
+
+	@Test
+	void skipsBlankLinesAndKeepsCountingThem() throws IOException {
+		CsvRecordReader reader = reader("\n name , notes\n\nShelf,x\n\n\nBench,y");
+
+		assertArrayEquals(new String[] {"name", "notes"}, reader.getHeader());
+		assertEquals("Shelf", reader.next().get("name"));
+		assertEquals(4, reader.getLineNumber());
+		assertEquals("Bench", reader.next().get("name"));
+		assertEquals(7, reader.getLineNumber());
+		assertNull(reader.next());
+	}
+
+	@Test
+	void rejectsMalformedInput() throws IOException {
+		assertThrows(IOException.class, () -> reader(""));
+		assertThrows(IOException.class, () -> reader("name,name\n"));
+		assertThrows(IOException.class, () -> reader("name,\n"));
+		assertThrows(IOException.class, () -> reader("name,notes\nShelf\n").next());
+		assertThrows(IOException.class, () -> reader("name\nSh\"elf\n").next());
+		assertThrows(IOException.class, () -> reader("name\n\"Shelf\"x\n").next());
+	}
+
+	private static CsvRecordReader reader(String csv) throws IOException {
+		return new CsvRecordReader(new StringReader(csv));
+	}
+}
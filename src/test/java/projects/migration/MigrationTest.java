@@ -0,0 +1,66 @@
+package projects.migration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.junit.jupiter.api.Test;
+
+import projects.exception.DbException;
+
+class MigrationTest {
+	private static final String TEST_LOCATION = "db/test-migration/";
+
+	@Test
+	void readsVersionAndDescriptionFromTheFileName() {
+		Migration migration = Migration.load(TEST_LOCATION, "V7__split_sample.sql");
+
+		assertEquals(7, migration.getVersion());
+		assertEquals("split sample", migration.getDescription());
+		assertEquals("V7__split_sample.sql", migration.getScript());
+	}
+
+	@Test
+	void splitsStatementsAtSemicolonsThatEndALine() {
+		List<String> statements = Migration.load(TEST_LOCATION, "V7__split_sample.sql").getStatements();
+
+		assertEquals(List.of(
+				"CREATE TABLE sample (\n"
+						+ "  id INT NOT NULL, -- inline comments stay with the statement\n"
+						+ "  note VARCHAR(16) DEFAULT 'a;b'\n"
+						+ ")",
+				"INSERT INTO sample (id) VALUES (1)",
+				"UPDATE sample SET note = 'x' WHERE id = 1"), statements);
+	}
+
+	@Test
+	void shippedIndexMigrationHasOneStatementPerIndex() {
+		List<String> statements = Migration.load("db/migration/", "V2__hot_query_indexes.sql").getStatements();
+
+		assertEquals(3, statements.size());
+		assertTrue(statements.stream().allMatch(statement -> statement.startsWith("CREATE INDEX ")), statements.toString());
+	}
+
+	@Test
+	void checksumIsTheCrc32OfTheScript() throws IOException {
+		CRC32 crc = new CRC32();
+
+		try(InputStream in = getClass().getClassLoader().getResourceAsStream(TEST_LOCATION + "V7__split_sample.sql")) {
+			crc.update(in.readAllBytes());
+		}
+
+		assertEquals(crc.getValue(), Migration.load(TEST_LOCATION, "V7__split_sample.sql").getChecksum());
+		assertTrue(crc.getValue() != Migration.load("db/migration/", "V2__hot_query_indexes.sql").getChecksum());
+	}
+
+	@Test
+	void rejectsBadNamesAndMissingScripts() {
+		assertThrows(DbException.class, () -> Migration.load(TEST_LOCATION, "V7_split_sample.sql"));
+		assertThrows(DbException.class, () -> Migration.load(TEST_LOCATION, "V8__not_there.sql"));
+	}
+}
@@ -0,0 +1,111 @@
+package projects.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import projects.entity.Project;
+import projects.entity.Step;
+
+class SearchIndexTest {
+	@Test
+	void scoresWithBm25() {
+		SearchIndex index = new SearchIndex();
+		index.put(project(1, "wood glue"));
+		index.put(project(2, "wood screws wood"));
+
+		List<SearchResult> results = index.search("wood", 10);
+
+		// Two documents of 2 and 3 terms, both containing the term: idf = ln(1 + 0.5 / 2.5)
+		double idf = Math.log(1.2);
+		double average = 2.5;
+		assertEquals(2, results.size());
+		assertEquals(2, results.get(0).getProjectId());
+		assertEquals(idf * 2 * 2.2 / (2 + 1.2 * (0.25 + 0.75 * 3 / average)), results.get(0).getScore(), 1e-9);
+		assertEquals(idf * 1 * 2.2 / (1 + 1.2 * (0.25 + 0.75 * 2 / average)), results.get(1).getScore(), 1e-9);
+	}
+
+	@Test
+	void rareTermsWeighMoreThanCommonOnes() {
+		SearchIndex index = new SearchIndex();
+		index.put(project(1, "oak shelf"));
+		index.put(project(2, "pine shelf"));
+		index.put(project(3, "pine bench"));
+		index.put(project(4, "pine stool"));
+
+		double rare = index.search("oak", 10).get(0).getScore();
+		double common = index.search("pine", 10).get(0).getScore();
+
+		assertTrue(rare > common, rare + " <= " + common);
+	}
+
+	@Test
+	void everyClauseMustMatchAndTheLimitKeepsTheBest() {
+		SearchIndex index = new SearchIndex();
+		index.put(project(1, "paint the fence"));
+		index.put(project(2, "paint paint fence"));
+		index.put(project(3, "paint the shed"));
+
+		assertEquals(List.of(2), ids(index.search("paint fence", 1)));
+		assertEquals(List.of(3), ids(index.search("shed PAINT", 10)));
+		assertTrue(index.search("paint roof", 10).isEmpty());
+	}
+
+	@Test
+	void phrasesMatchInOrderAndNeverAcrossSteps() {
+		SearchIndex index = new SearchIndex();
+		index.put(project(1, "", "cut the board", "sand edges"));
+		index.put(project(2, "", "cut board", "board the edges"));
+
+		assertEquals(List.of(1), ids(index.search("\"the board\" cut", 10)));
+		assertEquals(List.of(2), ids(index.search("\"cut board\"", 10)));
+		assertTrue(index.search("\"board sand\"", 10).isEmpty());
+		assertTrue(index.search("\"board board\"", 10).isEmpty());
+	}
+
+	@Test
+	void setNotesReplacesNotesAndKeepsSteps() {
+		SearchIndex index = new SearchIndex();
+		index.put(project(1, "old notes", "drill holes"));
+
+		index.setNotes(1, "new notes");
+
+		assertTrue(index.search("old", 10).isEmpty());
+		assertEquals(List.of(1), ids(index.search("new drill", 10)));
+		assertEquals(List.of(1), ids(index.search("notes holes", 10)));
+	}
+
+	@Test
+	void removeDropsTheProject() {
+		SearchIndex index = new SearchIndex();
+		index.put(project(1, "birdhouse"));
+		index.put(project(2, "birdhouse roof"));
+
+		index.remove(1);
+
+		assertEquals(1, index.size());
+		assertEquals(List.of(2), ids(index.search("birdhouse", 10)));
+	}
+
+	private static List<Integer> ids(List<SearchResult> results) {
+		return results.stream().map(SearchResult::getProjectId).toList();
+	}
+
+	private static Project project(int projectId, String notes, String... steps) {
+		Project project = new Project();
+		project.setProjectId(projectId);
+		project.setProjectName("project " + projectId);
+		project.setNotes(notes);
+
+		for(String text : steps) {
+			Step step = new Step();
+			step.setStepText(text);
+			project.getSteps().add(step);
+		}
+
+		return project;
+	}
+}
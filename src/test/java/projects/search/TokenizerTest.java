@@ -0,0 +1,29 @@
+package projects.search;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class TokenizerTest {
+	@Test
+	void splitsOnAnythingButLettersAndDigitsAndLowerCases() {
+		assertEquals(List.of("sand", "the", "2x4", "boards", "caf\u00e9"),
+				Tokenizer.tokenize("Sand the 2x4--boards, (CAF\u00c9)!"));
+	}
+
+	@Test
+	void nullAndSeparatorOnlyTextHaveNoTerms() {
+		assertTrue(Tokenizer.tokenize(null).isEmpty());
+		assertTrue(Tokenizer.tokenize(" ,.;-- ").isEmpty());
+	}
+
+	@Test
+	void cutsOverlongTermsAtMaxTermLength() {
+		String blob = "x".repeat(Tokenizer.MAX_TERM_LENGTH + 10);
+
+		assertEquals(List.of("x".repeat(Tokenizer.MAX_TERM_LENGTH), "end"), Tokenizer.tokenize(blob + " end"));
+	}
+}
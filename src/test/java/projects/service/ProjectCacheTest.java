@@ -0,0 +1,200 @@
+package projects.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import projects.entity.Project;
+
+class ProjectCacheTest {
+	private static final long NO_EXPIRY = 3_600_000;
+
+	@Test
+	void cachesLoadWithoutInterveningInvalidation() {
+		ProjectCache cache = new ProjectCache(100, NO_EXPIRY);
+		Project project = project(1, "loaded");
+
+		cache.putIfCurrent(project, cache.startLoad());
+
+		assertSame(project, cache.get(1));
+	}
+
+	@Test
+	void dropsLoadThatStartedBeforeInvalidation() {
+		ProjectCache cache = new ProjectCache(100, NO_EXPIRY);
+
+		// A reader starts loading, a writer updates and invalidates, then the reader finishes
+		long loadGeneration = cache.startLoad();
+		cache.invalidate(1);
+		cache.putIfCurrent(project(1, "stale"), loadGeneration);
+
+		assertNull(cache.get(1));
+
+		cache.putIfCurrent(project(1, "fresh"), cache.startLoad());
+		assertEquals("fresh", cache.get(1).getProjectName());
+	}
+
+	@Test
+	void nullIdIsAMissAndIsNeverInvalidated() {
+		ProjectCache cache = new ProjectCache(100, NO_EXPIRY);
+		long loadGeneration = cache.startLoad();
+
+		assertNull(cache.get(null));
+		cache.invalidate(null);
+
+		assertEquals(1, cache.getStats().getMisses());
+		assertEquals(0, cache.getStats().getInvalidations());
+		assertEquals(loadGeneration, cache.startLoad());
+	}
+
+	/* With replicas, a load that starts right after an invalidation may still read the old version
+	 * from a lagging replica, so nothing is cached for that project until the replicas have caught up.
+	 */
+	@Test
+	void skipsLoadsWhileReplicaMayStillBeStale() throws InterruptedException {
+		ProjectCache cache = new ProjectCache(100, NO_EXPIRY, 200);
+		cache.invalidate(1);
+
+		cache.putIfCurrent(project(1, "maybe stale"), cache.startLoad());
+		cache.putIfCurrent(project(2, "untouched"), cache.startLoad());
+
+		assertNull(cache.get(1));
+		assertNotNull(cache.get(2));
+
+		Thread.sleep(250);
+		cache.putIfCurrent(project(1, "fresh"), cache.startLoad());
+		assertEquals("fresh", cache.get(1).getProjectName());
+	}
+
+	/* A writer keeps bumping a version in the "database" and invalidates after each bump, while
+	 * readers load and cache it. Whatever is cached once both stop must be the final version.
+	 */
+	@Test
+	void concurrentReadersNeverCacheOverwrittenVersion() throws InterruptedException {
+		ProjectCache cache = new ProjectCache(100, NO_EXPIRY);
+		AtomicInteger database = new AtomicInteger();
+		int writes = 20_000;
+		CountDownLatch start = new CountDownLatch(1);
+
+		Thread writer = new Thread(() -> {
+			await(start);
+
+			for(int write = 0; write < writes; write++) {
+				database.incrementAndGet();
+				cache.invalidate(1);
+			}
+		});
+
+		Thread[] readers = new Thread[4];
+
+		for(int i = 0; i < readers.length; i++) {
+			readers[i] = new Thread(() -> {
+				await(start);
+
+				while(database.get() < writes) {
+					if(cache.get(1) == null) {
+						long loadGeneration = cache.startLoad();
+						Project loaded = project(1, String.valueOf(database.get()));
+						cache.putIfCurrent(loaded, loadGeneration);
+					}
+				}
+			});
+			readers[i].start();
+		}
+
+		writer.start();
+		start.countDown();
+		writer.join();
+
+		for(Thread reader : readers) {
+			reader.join();
+		}
+
+		Project cached = cache.get(1);
+
+		if(cached != null) {
+			assertEquals(String.valueOf(writes), cached.getProjectName());
+		}
+	}
+
+	@Test
+	void burstOfOneOffLookupsDoesNotEvictHotProjects() {
+		ProjectCache cache = new ProjectCache(100, NO_EXPIRY);
+
+		for(int id = 1; id <= 90; id++) {
+			load(cache, id);
+		}
+
+		for(int round = 0; round < 5; round++) {
+			for(int id = 1; id <= 90; id++) {
+				assertNotNull(cache.get(id));
+			}
+		}
+
+		// Each of these is requested once, the way a scan or a crawler would
+		for(int id = 1_000; id < 1_200; id++) {
+			load(cache, id);
+		}
+
+		// A plain LRU of this size would have lost every hot project. The sketch is approximate, so
+		// a few lose out to scan entries that share its counters.
+		int stillCached = 0;
+
+		for(int id = 1; id <= 90; id++) {
+			if(cache.get(id) != null) {
+				stillCached++;
+			}
+		}
+
+		assertTrue(stillCached >= 70, "only " + stillCached + " of 90 hot projects survived the scan");
+	}
+
+	@Test
+	void frequentlyRequestedNewcomerDisplacesColdEntry() {
+		ProjectCache cache = new ProjectCache(10, NO_EXPIRY);
+
+		for(int id = 1; id <= 10; id++) {
+			load(cache, id);
+		}
+
+		// Project 100 keeps being requested (and missed) before it is finally loaded
+		for(int request = 0; request < 5; request++) {
+			cache.get(100);
+		}
+
+		cache.putIfCurrent(project(100, "hot"), cache.startLoad());
+		cache.putIfCurrent(project(101, "pushes 100 out of the window"), cache.startLoad());
+
+		assertNotNull(cache.get(100));
+	}
+
+	// Looks a project up the way ProjectService does: a miss, then a load
+	private static void load(ProjectCache cache, int projectId) {
+		if(cache.get(projectId) == null) {
+			cache.putIfCurrent(project(projectId, "project " + projectId), cache.startLoad());
+		}
+	}
+
+	private static Project project(int projectId, String name) {
+		Project project = new Project();
+		project.setProjectId(projectId);
+		project.setProjectName(name);
+		return project;
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		}
+		catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,19 @@
+package projects.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.NoSuchElementException;
+
+import org.junit.jupiter.api.Test;
+
+class ProjectServiceTest {
+	// ProjectsApp passes a null ID when the user just presses Enter; this must not reach the database
+	@Test
+	void fetchProjectByIdRejectsNullId() {
+		NoSuchElementException e = assertThrows(NoSuchElementException.class,
+				() -> new ProjectService().fetchProjectById(null));
+
+		assertEquals("Project with project ID=null does not exist.", e.getMessage());
+	}
+}
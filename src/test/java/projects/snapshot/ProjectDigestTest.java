@@ -0,0 +1,88 @@
+package projects.snapshot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+
+import projects.entity.Category;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.Step;
+
+/* The expected values are CRC32s of the row texts that PROJECT_DIGESTS builds with CONCAT_WS on
+ * the server, e.g. SELECT CRC32('p|1|Shelf|1.50||3|') returns 2657357812 in MySQL.
+ */
+class ProjectDigestTest {
+	@Test
+	void projectRowMatchesServerCrc32() {
+		assertEquals(2657357812L, ProjectDigest.of(shelf()));
+	}
+
+	@Test
+	void nullColumnsAreEmptyAndTextIsUtf8() {
+		Project project = new Project();
+		project.setProjectId(2);
+		project.setProjectName("Caf\u00e9");
+
+		assertEquals(1476105088L, ProjectDigest.of(project));
+	}
+
+	@Test
+	void childRowsAreXoredInAnyOrder() {
+		Project project = shelf();
+
+		Material material = new Material();
+		material.setMaterialId(10);
+		material.setMaterialName("Oak board");
+		material.setNumRequired(2);
+		material.setCost(new BigDecimal("12.25"));
+		project.getMaterials().add(material);
+
+		project.getSteps().add(step(20, "Cut", 1024));
+		project.getSteps().add(step(21, "Sand", 2048));
+
+		Category category = new Category();
+		category.setCategoryId(3);
+		category.setCategoryName("Woodworking");
+		project.getCategories().add(category);
+
+		// p ^ m ^ s ^ s ^ c of the five row texts
+		assertEquals(3583915698L, ProjectDigest.of(project));
+
+		Collections.reverse(project.getSteps());
+		assertEquals(3583915698L, ProjectDigest.of(project));
+	}
+
+	@Test
+	void anyChangedColumnChangesTheDigest() {
+		Project changed = shelf();
+		changed.setNotes("");
+
+		// An empty string and NULL both read as '' on the server too
+		assertEquals(ProjectDigest.of(shelf()), ProjectDigest.of(changed));
+
+		changed.setDifficulty(4);
+		assertNotEquals(ProjectDigest.of(shelf()), ProjectDigest.of(changed));
+	}
+
+	private static Project shelf() {
+		Project project = new Project();
+		project.setProjectId(1);
+		project.setProjectName("Shelf");
+		project.setEstimatedHours(new BigDecimal("1.50"));
+		project.setDifficulty(3);
+		return project;
+	}
+
+	private static Step step(int stepId, String text, int order) {
+		Step step = new Step();
+		step.setStepId(stepId);
+		step.setStepText(text);
+		step.setStepOrder(order);
+		return step;
+	}
+}
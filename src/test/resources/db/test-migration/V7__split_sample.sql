@@ -0,0 +1,9 @@
+-- A comment line; with a semicolon at the end;
+CREATE TABLE sample (
+  id INT NOT NULL, -- inline comments stay with the statement
+  note VARCHAR(16) DEFAULT 'a;b'
+);
+
+  -- An indented comment
+INSERT INTO sample (id) VALUES (1);   
+UPDATE sample SET note = 'x' WHERE id = 1